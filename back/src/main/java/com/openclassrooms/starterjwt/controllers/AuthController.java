@@ -1,27 +1,42 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
+import com.openclassrooms.starterjwt.payload.response.EventsTicketResponse;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtClaims;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.JwtVerification;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.security.throttle.LoginThrottle;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -31,39 +46,114 @@ public class AuthController {
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final LoginThrottle loginThrottle;
 
     AuthController(AuthenticationManager authenticationManager,
             PasswordEncoder passwordEncoder,
             JwtUtils jwtUtils,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            UserDetailsServiceImpl userDetailsService,
+            LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
+        // Throttled attempts are rejected before any database read or password hashing
+        loginThrottle.acquire(loginRequest.getEmail(), request.getRemoteAddr());
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        } catch (InternalAuthenticationServiceException e) {
+            // The provider wraps hashing errors raised while looking up an unknown user
+            if (e.getCause() instanceof ServiceUnavailableException) {
+                throw (ServiceUnavailableException) e.getCause();
+            }
+            throw e;
+        }
+
+        // The principal was loaded once by UserDetailsServiceImpl and already carries the admin flag
+        loginThrottle.succeeded(loginRequest.getEmail());
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        boolean isAdmin = false;
-        User user = this.userRepository.findByEmail(userDetails.getUsername()).orElse(null);
-        if (user != null) {
-            isAdmin = user.isAdmin();
+        return ResponseEntity.ok(toJwtResponse(jwt, userDetails));
+    }
+
+    /**
+     * Exchanges a refresh token for a new access and refresh token pair. The presented refresh token is
+     * revoked, so each one can be used only once: of concurrent requests with the same token, only the one
+     * whose revocation wins gets new tokens, the others get a 401.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest refreshRequest) {
+        JwtVerification verification = jwtUtils.verify(refreshRequest.getRefreshToken());
+        if (!verification.isValid() || !verification.getClaims().isRefreshToken()
+                || verification.getClaims().getUserId() == null) {
+            return invalidRefreshToken();
+        }
+        JwtClaims claims = verification.getClaims();
+        if (!jwtUtils.revoke(claims)) {
+            // Spent by a concurrent request since it was verified
+            return invalidRefreshToken();
         }
 
-        return ResponseEntity.ok(new JwtResponse(jwt,
-                userDetails.getId(),
-                userDetails.getUsername(),
-                userDetails.getFirstName(),
-                userDetails.getLastName(),
-                isAdmin));
+        // Reload the user so that changes made since the last login end up in the new tokens
+        UserDetailsImpl userDetails;
+        try {
+            userDetails = userDetailsService.loadUserById(claims.getUserId());
+        } catch (UsernameNotFoundException e) {
+            return invalidRefreshToken();
+        }
+
+        return ResponseEntity.ok(toJwtResponse(jwtUtils.generateJwtToken(userDetails), userDetails));
+    }
+
+    /**
+     * Revokes the bearer access token and, when given, the refresh token.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logoutUser(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) TokenRefreshRequest refreshRequest) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            revokeIfValid(authorization.substring(7));
+        }
+        if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+            revokeIfValid(refreshRequest.getRefreshToken());
+        }
+
+        return ResponseEntity.ok(new MessageResponse("User logged out successfully!"));
+    }
+
+    /**
+     * Issues a ticket for the bearer to open the session event stream, as browsers' EventSource cannot send
+     * the Authorization header: {@code new EventSource("/api/session/events?ticket=" + ticket)}. A ticket is
+     * spent when the stream opens, so a client that lost its stream gets a new ticket before reconnecting.
+     */
+    @PostMapping("/events-ticket")
+    public ResponseEntity<?> eventsTicket() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!(authentication.getPrincipal() instanceof UserDetailsImpl)) {
+            // Only authenticated by a token of ours, which carries what a ticket needs
+            return ResponseEntity
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Error: Unauthorized"));
+        }
+
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        return ResponseEntity.ok(new EventsTicketResponse(jwtUtils.generateEventsTicket(userDetails),
+                jwtUtils.getEventsTicketMs()));
     }
 
     @PostMapping("/register")
@@ -85,4 +175,43 @@ public class AuthController {
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
+
+    private JwtResponse toJwtResponse(String jwt, UserDetailsImpl userDetails) {
+        return new JwtResponse(jwt,
+                jwtUtils.generateRefreshToken(userDetails),
+                userDetails.getId(),
+                userDetails.getUsername(),
+                userDetails.getFirstName(),
+                userDetails.getLastName(),
+                Boolean.TRUE.equals(userDetails.getAdmin()));
+    }
+
+    private void revokeIfValid(String token) {
+        JwtVerification verification = jwtUtils.verify(token);
+        if (verification.isValid()) {
+            jwtUtils.revoke(verification.getClaims());
+        }
+    }
+
+    private static ResponseEntity<?> invalidRefreshToken() {
+        return ResponseEntity
+                .status(HttpStatus.UNAUTHORIZED)
+                .body(new MessageResponse("Error: Refresh token is invalid or expired!"));
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<?> handleServiceUnavailable(ServiceUnavailableException e) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new MessageResponse("Error: Authentication is temporarily overloaded, please retry later."));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<?> handleTooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new MessageResponse("Error: Too many login attempts, please retry later."));
+    }
 }
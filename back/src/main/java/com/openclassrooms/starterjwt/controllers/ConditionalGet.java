@@ -0,0 +1,72 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.repository.Revision;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.ZoneId;
+
+/**
+ * Validators of a read endpoint, derived from the {@link Revision} of what it returns. The revision is
+ * read before the data, so a change in between can only make the client revalidate once more, never keep
+ * a stale copy.
+ */
+final class ConditionalGet {
+    /**
+     * Clients may keep the body but must revalidate it on every use; responses are per user.
+     */
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private final String eTag;
+
+    private final long lastModified;
+
+    private ConditionalGet(String eTag, long lastModified) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param resource distinguishes representations sharing a table, such as a collection and one of its items
+     */
+    static ConditionalGet of(String resource, Revision revision) {
+        long lastModified = revision.getLastModified() == null
+                ? -1
+                : revision.getLastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new ConditionalGet(
+                "\"" + resource + "-" + revision.getCount() + "-" + Math.max(lastModified, 0) + "\"", lastModified);
+    }
+
+    /**
+     * Whether the client's copy is current, in which case {@link #notModified()} is the whole answer.
+     */
+    boolean isNotModified(WebRequest request) {
+        return request.checkNotModified(eTag, lastModified);
+    }
+
+    ResponseEntity<?> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).eTag(eTag).build();
+    }
+
+    /**
+     * Sets the validators on a response written directly rather than through a {@link ResponseEntity}.
+     */
+    void applyTo(HttpServletResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CACHE_CONTROL);
+        headers.setETag(eTag);
+        if (lastModified >= 0) {
+            headers.setLastModified(lastModified);
+        }
+        headers.forEach((name, values) -> values.forEach(value -> response.setHeader(name, value)));
+    }
+
+    ResponseEntity.BodyBuilder ok() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CACHE_CONTROL).eTag(eTag);
+        return lastModified < 0 ? builder : builder.lastModified(lastModified);
+    }
+}
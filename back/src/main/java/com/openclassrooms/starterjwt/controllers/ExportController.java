@@ -0,0 +1,117 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.services.SessionExport;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+    static final String TEXT_CSV_VALUE = "text/csv;charset=UTF-8";
+
+    private final SessionExport sessionExport;
+    private final ObjectMapper objectMapper;
+
+    public ExportController(SessionExport sessionExport, ObjectMapper objectMapper) {
+        this.sessionExport = sessionExport;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Streams sessions, teachers or attendance as CSV or newline-delimited JSON, gzipped when the client
+     * accepts it. The status is sent with the first rows, so a failure midway can only abort the transfer,
+     * which the client sees as an incomplete response.
+     */
+    @GetMapping("/{dataset}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> export(@PathVariable("dataset") String name,
+                                    @RequestParam(value = "format", defaultValue = "csv") String format,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                    HttpServletResponse response) throws IOException {
+        Optional<SessionExport.Dataset> dataset = SessionExport.Dataset.of(name);
+        if (!dataset.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean csv = format.equals("csv");
+        if (!csv && !format.equals("ndjson")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SessionExport.Dataset exported = dataset.get();
+        response.setContentType(csv ? TEXT_CSV_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + exported.name().toLowerCase(Locale.ROOT) + "." + format + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        OutputStream out = response.getOutputStream();
+        if (acceptsGzip(acceptEncoding)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            out = new GZIPOutputStream(out, 8192);
+        }
+
+        // Closed only once complete: a failed export must not end with a gzip trailer or a last chunk that
+        // would pass it off as a whole file
+        if (csv) {
+            CsvRowWriter writer = new CsvRowWriter(out, exported.getColumns());
+            this.sessionExport.export(exported, writer);
+            writer.close();
+        } else {
+            NdjsonRowWriter writer = new NdjsonRowWriter(this.objectMapper, out, exported.getColumns());
+            this.sessionExport.export(exported, writer);
+            writer.close();
+        }
+        // Already written: a null entity leaves the response as is
+        return null;
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip, by name or through {@code *}, with a non-zero quality.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String value = parameters[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (value.equalsIgnoreCase("gzip")) {
+                gzip = quality;
+            } else if (value.equals("*")) {
+                any = quality;
+            }
+        }
+        // A coding named outright overrides the wildcard
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
+    }
+}
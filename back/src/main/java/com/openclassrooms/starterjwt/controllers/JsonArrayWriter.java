@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a JSON array to the response one element at a time, so that only the element being written is
+ * held in memory. The generator buffers and the servlet container flushes as its buffer fills, which
+ * switches the response to chunked encoding on large bodies.
+ *
+ * <p>Once the first bytes are sent the status can no longer change: a failure midway leaves a truncated
+ * array that clients reject as invalid JSON. The array is only ended by {@link #finish()}, so closing the
+ * writer on the way out of a failure cannot pass a partial listing off as a whole one.</p>
+ */
+final class JsonArrayWriter<T> implements Closeable {
+    private final ObjectWriter writer;
+
+    private final JsonGenerator generator;
+
+    private boolean finished;
+
+    JsonArrayWriter(ObjectMapper objectMapper, Class<T> type, HttpServletResponse response) throws IOException {
+        this.writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        this.generator.writeStartArray();
+    }
+
+    void write(T value) {
+        try {
+            writer.writeValue(generator, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ends the array once every element is written.
+     */
+    void finish() throws IOException {
+        generator.writeEndArray();
+        generator.close();
+        finished = true;
+    }
+
+    /**
+     * Aborts the array unless {@link #finish()} was called: what is buffered is flushed as is, and the
+     * response is left open for the container to cut short rather than end with a last chunk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.close();
+    }
+}
@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.security.jwt.JwtKeyRing;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/auth")
+public class JwksController {
+    private final JwtKeyRing jwtKeyRing;
+    private final long maxAgeSeconds;
+
+    JwksController(JwtKeyRing jwtKeyRing, @Value("${oc.app.jwksMaxAgeSeconds:86400}") long maxAgeSeconds) {
+        this.jwtKeyRing = jwtKeyRing;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    /**
+     * Public keys verifying the tokens of this service. The upcoming key is published one rotation ahead,
+     * so the body can be cached for long; a verifier meeting an unknown kid should fetch it again.
+     */
+    @GetMapping("/jwks")
+    public ResponseEntity<?> jwks(WebRequest request) {
+        String etag = jwtKeyRing.getJwksETag();
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).eTag(etag).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .body(jwtKeyRing.getJwks());
+    }
+
+    @PostMapping("/keys/rotate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rotate() {
+        if (!jwtKeyRing.isEnabled()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Tokens are signed with a shared secret!"));
+        }
+
+        return ResponseEntity.ok(new MessageResponse("Signing key rotated: " + jwtKeyRing.rotate()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.services.SessionExport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.List;
+
+/**
+ * Writes rows as newline-delimited JSON, one object per line keyed by column name. Dates are written as
+ * ISO-8601 strings, like in the CSV export.
+ */
+final class NdjsonRowWriter implements SessionExport.RowWriter, Closeable {
+    private final JsonGenerator generator;
+
+    private final List<String> columns;
+
+    NdjsonRowWriter(ObjectMapper objectMapper, OutputStream out, List<String> columns) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        // Lines are separated by hand, not by the space Jackson puts between root values
+        this.generator.setRootValueSeparator(null);
+        this.columns = columns;
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            generator.writeFieldName(columns.get(i));
+            Object value = values[i];
+            if (value instanceof TemporalAccessor) {
+                generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format((TemporalAccessor) value));
+            } else if (value instanceof Number || value instanceof Boolean || value == null) {
+                generator.writeObject(value);
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -1,52 +1,259 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionChangesResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionImportResponse;
+import com.openclassrooms.starterjwt.repository.Revision;
+import com.openclassrooms.starterjwt.services.ChangeCursor;
+import com.openclassrooms.starterjwt.services.Participation;
+import com.openclassrooms.starterjwt.services.SessionChanges;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionImportReport;
+import com.openclassrooms.starterjwt.services.SessionImporter;
+import com.openclassrooms.starterjwt.services.SessionPage;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = SessionController.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final ObjectMapper objectMapper;
+    private final SessionEventStream sessionEventStream;
+    private final SessionImporter sessionImporter;
+
+    @Value("${oc.app.sessionPageSize:20}")
+    private int defaultPageSize;
+
+    @Value("${oc.app.sessionPageMaxSize:100}")
+    private int maxPageSize;
+
+    @Value("${oc.app.streamChunkSize:500}")
+    private int streamChunkSize;
+
+    @Value("${oc.app.sessionRangeMaxDays:366}")
+    private int maxRangeDays;
+
+    /**
+     * Changes stamped this recently are not returned yet. A session is stamped when written, before its
+     * transaction commits, so this assumes every such transaction commits within the window: it must exceed
+     * oc.app.sessionChanges.writeTimeoutSeconds, the timeout session writes and import chunks run under.
+     */
+    @Value("${oc.app.sessionChanges.safetyWindowMs:15000}")
+    private long changesSafetyWindowMs;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             ObjectMapper objectMapper,
+                             SessionEventStream sessionEventStream,
+                             SessionImporter sessionImporter) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.objectMapper = objectMapper;
+        this.sessionEventStream = sessionEventStream;
+        this.sessionImporter = sessionImporter;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            Long sessionId = Long.valueOf(id);
+            Revision revision = this.sessionService.getRevision(sessionId);
+            if (revision.getCount() == 0) {
+                return ResponseEntity.notFound().build();
+            }
+            ConditionalGet conditionalGet = ConditionalGet.of("session-" + sessionId, revision);
+            if (conditionalGet.isNotModified(request)) {
+                return conditionalGet.notModified();
+            }
+
+            Session session = this.sessionService.getById(sessionId);
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            List<Session> sessions = Collections.singletonList(session);
+            return conditionalGet.ok().body(this.sessionMapper.toDto(sessions, this.sessionService.findParticipantIds(sessions)).get(0));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Without parameters, returns every session as before. With a {@code cursor} or a {@code size}, returns
+     * one page in (date, id) order; the cursor of the next page, if any, is in the X-Next-Cursor header.
+     */
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "size", required = false) Integer size,
+                                     WebRequest request) {
+        if (cursor == null && size == null) {
+            ConditionalGet conditionalGet = ConditionalGet.of("sessions", this.sessionService.getRevision());
+            if (conditionalGet.isNotModified(request)) {
+                return conditionalGet.notModified();
+            }
+            List<Session> sessions = this.sessionService.findAll();
+
+            return conditionalGet.ok().body(this.sessionMapper.toDto(sessions, this.sessionService.findParticipantIds(sessions)));
+        }
+
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        SessionPage page = this.sessionService.findPage(
+                cursor == null || cursor.isEmpty() ? null : SessionCursor.decode(cursor),
+                Math.min(pageSize, maxPageSize));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext().encode());
+        }
+        return response.body(this.sessionMapper.toDto(page.getSessions(),
+                this.sessionService.findParticipantIds(page.getSessions())));
+    }
+
+    /**
+     * Sessions from {@code from} included to {@code to} excluded, in (date, id) order, optionally of a single
+     * teacher. Dates are ISO date-times, and a range may span at most oc.app.sessionRangeMaxDays days.
+     */
+    @GetMapping("/range")
+    public ResponseEntity<?> findBetween(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                         @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                         @RequestParam(value = "teacherId", required = false) Long teacherId) {
+        if (!from.before(to) || to.getTime() - from.getTime() > TimeUnit.DAYS.toMillis(maxRangeDays)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Session> sessions = this.sessionService.findBetween(from, to, teacherId);
+        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions, this.sessionService.findParticipantIds(sessions)));
+    }
+
+    /**
+     * The next sessions from now on, soonest first, optionally of a single teacher.
+     */
+    @GetMapping("/upcoming")
+    public ResponseEntity<?> findUpcoming(@RequestParam(value = "teacherId", required = false) Long teacherId,
+                                          @RequestParam(value = "size", required = false) Integer size) {
+        int resultSize = size == null ? defaultPageSize : size;
+        if (resultSize < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Session> sessions = this.sessionService.findUpcoming(teacherId, Math.min(resultSize, maxPageSize));
+        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions, this.sessionService.findParticipantIds(sessions)));
+    }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+    /**
+     * Sessions written and ids of sessions deleted since the cursor, for clients that keep a copy of the
+     * schedule. Without {@code since}, returns every session. Call again with {@code next} while
+     * {@code hasMore} is true, then keep {@code next} for the following sync. Answers 410 when the cursor is
+     * older than the deletions kept; the client then syncs from scratch.
+     *
+     * <p>Changes of the last oc.app.sessionChanges.safetyWindowMs are held back until the next call, so that
+     * a transaction committing just after the read, with an earlier timestamp, is not skipped. Session writes
+     * are given a shorter timeout for that.</p>
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> findChanges(@RequestParam(value = "since", required = false) String since,
+                                         @RequestParam(value = "size", required = false) Integer size) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDateTime until = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(changesSafetyWindowMs));
+
+        SessionChanges changes = this.sessionService.findChanges(
+                since == null || since.isEmpty() ? null : ChangeCursor.decode(since),
+                until,
+                Math.min(pageSize, maxPageSize));
+
+        return ResponseEntity.ok().body(new SessionChangesResponse(
+                this.sessionMapper.toDto(changes.getSessions(), this.sessionService.findParticipantIds(changes.getSessions())),
+                changes.getDeletedIds(),
+                changes.getNext().encode(),
+                changes.hasMore()));
+    }
+
+    /**
+     * Sessions matching every word of {@code q} in their name or description, accents and case ignored and
+     * the last letters of a word optional, best matches first.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(value = "limit", required = false) Integer limit) {
+        int resultSize = limit == null ? defaultPageSize : limit;
+        if (resultSize < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Session> sessions = this.sessionService.search(query, Math.min(resultSize, maxPageSize));
+        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions, this.sessionService.findParticipantIds(sessions)));
+    }
+
+    /**
+     * Same body as the unpaged listing, written session by session as rows come from the database, so the
+     * memory used does not depend on the number of sessions.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<?> streamAll(WebRequest request, HttpServletResponse response) throws IOException {
+        ConditionalGet conditionalGet = ConditionalGet.of("sessions", this.sessionService.getRevision());
+        if (conditionalGet.isNotModified(request)) {
+            return conditionalGet.notModified();
+        }
+
+        conditionalGet.applyTo(response);
+        try (JsonArrayWriter<SessionDto> writer = new JsonArrayWriter<>(this.objectMapper, SessionDto.class, response)) {
+            this.sessionService.streamAll(streamChunkSize, (sessions, participantIds) -> sessions.forEach(session ->
+                    writer.write(this.sessionMapper.toDto(session,
+                            participantIds.getOrDefault(session.getId(), Collections.emptyList())))));
+            writer.finish();
+        }
+        // Already written: a null entity leaves the response as is
+        return null;
+    }
+
+    /**
+     * Server-Sent Events of committed changes, one {@code session} event per change with a
+     * {@code {"type", "sessionId"}} body, so that clients reload what changed instead of polling the listing.
+     * Imports send one {@code {"type": "IMPORTED", "sessionIds"}} event per chunk of sessions saved.
+     * Browsers open it with a {@code ticket} query parameter from {@code POST /api/auth/events-ticket}.
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return this.sessionEventStream.subscribe();
     }
 
     @PostMapping()
@@ -59,6 +266,22 @@ public class SessionController {
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
+    /**
+     * Creates the sessions of a JSON array or of newline-delimited JSON, read as a stream. Rows that fail are
+     * reported by position in the response while the others are saved.
+     */
+    @PostMapping(path = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> importAll(InputStream body) throws IOException {
+        try (MappingIterator<SessionDto> rows = this.objectMapper.readerFor(SessionDto.class).readValues(body)) {
+            SessionImportReport report = this.sessionImporter.importAll(rows);
+            return ResponseEntity.ok()
+                    .body(new SessionImportResponse(report.getImported(), report.getFailed(), report.getErrors()));
+        } catch (JsonProcessingException e) {
+            // Not even the start of the input could be read
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("{id}")
     public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
         try {
@@ -89,14 +312,29 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            Participation participation = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
+            if (participation == Participation.WAITLISTED) {
+                return ResponseEntity.accepted().build();
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Ids of the users waiting for a seat, in the order they will be promoted.
+     */
+    @GetMapping("{id}/waitlist")
+    public ResponseEntity<?> findWaitlist(@PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok().body(this.sessionService.findWaitlist(Long.valueOf(id)));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("{id}/participate/{userId}")
     public ResponseEntity<?> noLongerParticipate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
@@ -107,4 +345,15 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    /**
+     * Explains the refusal in the body when the exception says which ids were wrong.
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<?> handleBadRequest(BadRequestException e) {
+        if (e.getMessage() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
 }
@@ -0,0 +1,364 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.services.SessionChangedEvent;
+import com.openclassrooms.starterjwt.services.SessionsImportedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes committed session changes to Server-Sent Events subscribers.
+ *
+ * <p>Connections are held by servlet async processing, so an idle subscriber costs its emitter and a small
+ * buffer but no thread. A change is serialized once, then queued in the bounded buffer of every
+ * subscriber, and a few shared sender threads drain the buffers that have something to send. A subscriber
+ * whose buffer is full is not keeping up: it is disconnected rather than slowing the others down, and its
+ * client reconnects and reloads. Heartbeat comments go through the same buffers, which keeps proxies from
+ * closing idle connections and detects clients that went away.</p>
+ *
+ * <p>Writes to a servlet response block while the client's TCP window is full. A write still running after
+ * the write timeout is given up: its subscriber is disconnected, its sender thread is interrupted, and the
+ * pool gets one more thread until that write returns, so that stuck clients never hold every sender.</p>
+ */
+@Component
+@Log4j2
+public class SessionEventStream implements DisposableBean {
+    private static final String EVENT_NAME = "session";
+
+    private static final String IMPORTED = "IMPORTED";
+
+    private final ObjectMapper objectMapper;
+
+    private final int bufferSize;
+
+    private final long timeoutMs;
+
+    private final long writeTimeoutNanos;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final int senderThreads;
+
+    private final ThreadPoolExecutor senders;
+
+    /**
+     * Sender threads still blocked in a write that was given up, guarded by this stream.
+     */
+    private int abandonedSenders;
+
+    private final ScheduledExecutorService timers;
+
+    private final Counter evicted;
+
+    public SessionEventStream(ObjectMapper objectMapper,
+                              @Value("${oc.app.sse.bufferSize:32}") int bufferSize,
+                              @Value("${oc.app.sse.senderThreads:2}") int senderThreads,
+                              @Value("${oc.app.sse.heartbeatMs:15000}") long heartbeatMs,
+                              @Value("${oc.app.sse.timeoutMs:1800000}") long timeoutMs,
+                              @Value("${oc.app.sse.writeTimeoutMs:10000}") long writeTimeoutMs,
+                              MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.senderThreads = senderThreads;
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new StreamThreadFactory("session-events-"));
+        this.timers = Executors.newSingleThreadScheduledExecutor(new StreamThreadFactory("session-timer-"));
+        this.timers.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        // A write is given up between one and two timeouts after it started
+        this.timers.scheduleAtFixedRate(this::expireWrites, writeTimeoutMs, writeTimeoutMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("sessions.events.subscribers", subscribers, Set::size)
+                .description("Connected session change subscribers")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("sessions.events.evicted")
+                .description("Subscribers disconnected because they did not read their events")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe() {
+        return register(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter register(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(SessionChangedEvent event) {
+        publish(new Change(event.getType().name(), event.getSessionId(), null));
+    }
+
+    /**
+     * One event for a whole chunk of imported sessions, rather than one per session.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionsImported(SessionsImportedEvent event) {
+        publish(new Change(IMPORTED, null, event.getSessionIds()));
+    }
+
+    void heartbeat() {
+        broadcast(Frame.HEARTBEAT);
+    }
+
+    void expireWrites() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.writeStartedNanos;
+            if (started != 0 && now - started > writeTimeoutNanos) {
+                subscriber.abandon();
+            }
+        }
+    }
+
+    /**
+     * Resizes the pool so that the sender threads not stuck in an abandoned write stay available.
+     */
+    private void resizeSenders(int delta) {
+        abandonedSenders += delta;
+        int size = senderThreads + abandonedSenders;
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        timers.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(Subscriber::complete);
+    }
+
+    private void publish(Change change) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        broadcast(new Frame(Long.toString(sequence.incrementAndGet()), data));
+    }
+
+    private void broadcast(Frame frame) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    /**
+     * What a client receives: enough to know which sessions to reload, nothing more. An import lists its
+     * sessions in {@code sessionIds}, any other change names its session in {@code sessionId}.
+     */
+    @Getter
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private static final class Change {
+        private final String type;
+
+        private final Long sessionId;
+
+        private final List<Long> sessionIds;
+    }
+
+    /**
+     * A change already serialized, shared by every subscriber; {@link #HEARTBEAT} is sent as a comment.
+     */
+    private static final class Frame {
+        static final Frame HEARTBEAT = new Frame(null, null);
+
+        final String id;
+
+        final String data;
+
+        Frame(String id, String data) {
+            this.id = id;
+            this.data = data;
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(id).name(EVENT_NAME).data(data);
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        final SseEmitter emitter;
+
+        final BlockingQueue<Frame> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        /**
+         * Set while a sender owns this subscriber, so that its frames are written by one thread at a time.
+         */
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        final AtomicBoolean completed = new AtomicBoolean();
+
+        volatile boolean closed;
+
+        /**
+         * When the write in progress started, 0 between writes.
+         */
+        volatile long writeStartedNanos;
+
+        volatile Thread writer;
+
+        /**
+         * Set while the sender of a write that ran past the timeout has not returned; guarded by the stream,
+         * like the pool size.
+         */
+        boolean abandoned;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Frame frame) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(frame)) {
+                evicted.increment();
+                log.debug("Disconnecting a session events subscriber that is {} events behind", bufferSize);
+                // Completed by a sender: a sender may be blocked writing to this client, holding the emitter
+                close();
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            writer = Thread.currentThread();
+            try {
+                Frame frame;
+                while (!closed && (frame = buffer.poll()) != null) {
+                    writeStartedNanos = System.nanoTime();
+                    emitter.send(frame.toEvent());
+                    writeStartedNanos = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, or the emitter was completed meanwhile
+                close();
+            } finally {
+                writeStartedNanos = 0;
+                writer = null;
+                released();
+                scheduled.set(false);
+            }
+            if (closed) {
+                complete();
+            } else if (!buffer.isEmpty()) {
+                // A frame offered after the last poll but before the flag was cleared would otherwise wait
+                schedule();
+            }
+        }
+
+        /**
+         * Gives up the write in progress, unless it returned meanwhile. The interrupt is sent under the lock
+         * that {@link #released()} takes, so that it never reaches a later task of the same thread.
+         */
+        void abandon() {
+            synchronized (SessionEventStream.this) {
+                Thread thread = writer;
+                if (writeStartedNanos == 0 || thread == null || abandoned) {
+                    return;
+                }
+                abandoned = true;
+                close();
+                evicted.increment();
+                log.debug("Disconnecting a session events subscriber whose write did not return in time");
+                resizeSenders(1);
+                thread.interrupt();
+            }
+        }
+
+        void released() {
+            synchronized (SessionEventStream.this) {
+                if (abandoned) {
+                    abandoned = false;
+                    resizeSenders(-1);
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        void close() {
+            closed = true;
+            buffer.clear();
+            subscribers.remove(this);
+        }
+
+        void complete() {
+            if (completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private static final class StreamThreadFactory implements ThreadFactory {
+        private final String prefix;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        StreamThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.dto.SessionSeriesDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.mapper.SessionSeriesMapper;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.services.OccurrenceBooking;
+import com.openclassrooms.starterjwt.services.Participation;
+import com.openclassrooms.starterjwt.services.SessionSeriesService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/series")
+@Log4j2
+public class SessionSeriesController {
+    private final SessionSeriesService sessionSeriesService;
+    private final SessionSeriesMapper sessionSeriesMapper;
+
+    @Value("${oc.app.sessionRangeMaxDays:366}")
+    private int maxRangeDays;
+
+    public SessionSeriesController(SessionSeriesService sessionSeriesService,
+                                   SessionSeriesMapper sessionSeriesMapper) {
+        this.sessionSeriesService = sessionSeriesService;
+        this.sessionSeriesMapper = sessionSeriesMapper;
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+        try {
+            SessionSeries series = this.sessionSeriesService.findById(Long.valueOf(id));
+
+            if (series == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok().body(this.sessionSeriesMapper.toDto(series));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping()
+    public ResponseEntity<?> create(@Valid @RequestBody SessionSeriesDto sessionSeriesDto) {
+        log.info(sessionSeriesDto);
+
+        SessionSeries series = this.sessionSeriesService.create(this.sessionSeriesMapper.toEntity(sessionSeriesDto));
+
+        log.info(series);
+        return ResponseEntity.ok().body(this.sessionSeriesMapper.toDto(series));
+    }
+
+    @PutMapping("{id}")
+    public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionSeriesDto sessionSeriesDto) {
+        try {
+            SessionSeries series = this.sessionSeriesService.update(Long.parseLong(id),
+                    this.sessionSeriesMapper.toEntity(sessionSeriesDto));
+
+            return ResponseEntity.ok().body(this.sessionSeriesMapper.toDto(series));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Ends the series now, deleting the sessions of its booked occurrences yet to come.
+     */
+    @PostMapping("{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable("id") String id) {
+        try {
+            SessionSeries series = this.sessionSeriesService.cancel(Long.parseLong(id));
+
+            return ResponseEntity.ok().body(this.sessionSeriesMapper.toDto(series));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Leaves out the occurrence on the given local date, in the time zone of the series.
+     */
+    @PostMapping("{id}/exceptions")
+    public ResponseEntity<?> addException(@PathVariable("id") String id,
+                                          @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            SessionSeries series = this.sessionSeriesService.addException(Long.parseLong(id), date);
+
+            return ResponseEntity.ok().body(this.sessionSeriesMapper.toDto(series));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Occurrences of every series from {@code from} included to {@code to} excluded, soonest first,
+     * optionally of a single teacher, with the same bounds as the session range. Occurrences nobody booked
+     * yet have no session id.
+     */
+    @GetMapping("/occurrences")
+    public ResponseEntity<?> findOccurrences(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                             @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                             @RequestParam(value = "teacherId", required = false) Long teacherId) {
+        if (!from.before(to) || to.getTime() - from.getTime() > TimeUnit.DAYS.toMillis(maxRangeDays)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok().body(this.sessionSeriesMapper.toOccurrenceDto(
+                this.sessionSeriesService.findOccurrences(from, to, teacherId)));
+    }
+
+    /**
+     * Books the occurrence of the series starting at {@code date}, creating its session on the first
+     * booking in the same transaction. Answers as the session's participate endpoint, with the session in
+     * the Location header.
+     */
+    @PostMapping("{id}/participate/{userId}")
+    public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId,
+                                         @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date date) {
+        try {
+            OccurrenceBooking booking = this.sessionSeriesService.participate(Long.parseLong(id), date,
+                    Long.parseLong(userId));
+
+            ResponseEntity.BodyBuilder response = booking.getParticipation() == Participation.WAITLISTED
+                    ? ResponseEntity.accepted()
+                    : ResponseEntity.ok();
+            return response.location(URI.create("/api/session/" + booking.getSessionId())).build();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Explains the refusal in the body when the exception says which ids were wrong.
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<?> handleBadRequest(BadRequestException e) {
+        if (e.getMessage() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
+}
@@ -1,10 +1,18 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.Revision;
 import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -13,33 +21,72 @@ import java.util.List;
 public class TeacherController {
     private final TeacherMapper teacherMapper;
     private final TeacherService teacherService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${oc.app.streamChunkSize:500}")
+    private int streamChunkSize;
 
 
     public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
+                             TeacherMapper teacherMapper,
+                             ObjectMapper objectMapper) {
         this.teacherMapper = teacherMapper;
         this.teacherService = teacherService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Teacher teacher = this.teacherService.findById(Long.valueOf(id));
+            Long teacherId = Long.valueOf(id);
+            Revision revision = this.teacherService.getRevision(teacherId);
+            if (revision.getCount() == 0) {
+                return ResponseEntity.notFound().build();
+            }
+            ConditionalGet conditionalGet = ConditionalGet.of("teacher-" + teacherId, revision);
+            if (conditionalGet.isNotModified(request)) {
+                return conditionalGet.notModified();
+            }
+
+            Teacher teacher = this.teacherService.findById(teacherId);
 
             if (teacher == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.teacherMapper.toDto(teacher));
+            return conditionalGet.ok().body(this.teacherMapper.toDto(teacher));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
+    public ResponseEntity<?> findAll(WebRequest request) {
+        ConditionalGet conditionalGet = ConditionalGet.of("teachers", this.teacherService.getRevision());
+        if (conditionalGet.isNotModified(request)) {
+            return conditionalGet.notModified();
+        }
         List<Teacher> teachers = this.teacherService.findAll();
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        return conditionalGet.ok().body(this.teacherMapper.toDto(teachers));
+    }
+
+    /**
+     * Same body as the listing, written teacher by teacher as rows come from the database.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<?> streamAll(WebRequest request, HttpServletResponse response) throws IOException {
+        ConditionalGet conditionalGet = ConditionalGet.of("teachers", this.teacherService.getRevision());
+        if (conditionalGet.isNotModified(request)) {
+            return conditionalGet.notModified();
+        }
+
+        conditionalGet.applyTo(response);
+        try (JsonArrayWriter<TeacherDto> writer = new JsonArrayWriter<>(this.objectMapper, TeacherDto.class, response)) {
+            this.teacherService.streamAll(streamChunkSize, teacher -> writer.write(this.teacherMapper.toDto(teacher)));
+            writer.finish();
+        }
+        // Already written: a null entity leaves the response as is
+        return null;
     }
 }
@@ -1,40 +1,102 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.Revision;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionPage;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Objects;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = SessionController.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/api/user")
 public class UserController {
     private final UserMapper userMapper;
     private final UserService userService;
+    private final SessionMapper sessionMapper;
+    private final SessionService sessionService;
+
+    @Value("${oc.app.sessionPageSize:20}")
+    private int defaultPageSize;
+
+    @Value("${oc.app.sessionPageMaxSize:100}")
+    private int maxPageSize;
 
 
     public UserController(UserService userService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             SessionService sessionService,
+                             SessionMapper sessionMapper) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.sessionMapper = sessionMapper;
+        this.sessionService = sessionService;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            User user = this.userService.findById(Long.valueOf(id));
+            Long userId = Long.valueOf(id);
+            Revision revision = this.userService.getRevision(userId);
+            if (revision.getCount() == 0) {
+                return ResponseEntity.notFound().build();
+            }
+            ConditionalGet conditionalGet = ConditionalGet.of("user-" + userId, revision);
+            if (conditionalGet.isNotModified(request)) {
+                return conditionalGet.notModified();
+            }
+
+            User user = this.userService.findById(userId);
 
             if (user == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.userMapper.toDto(user));
+            return conditionalGet.ok().body(this.userMapper.toDto(user));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * One page of the sessions the user participates in, in (date, id) order; the cursor of the next page,
+     * if any, is in the X-Next-Cursor header.
+     */
+    @GetMapping("/{id}/sessions")
+    public ResponseEntity<?> findSessions(@PathVariable("id") String id,
+                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                          @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            Long userId = Long.valueOf(id);
+            int pageSize = size == null ? defaultPageSize : size;
+            if (pageSize < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (this.userService.getRevision(userId).getCount() == 0) {
+                return ResponseEntity.notFound().build();
+            }
+
+            SessionPage page = this.sessionService.findParticipationPage(userId,
+                    cursor == null || cursor.isEmpty() ? null : SessionCursor.decode(cursor),
+                    Math.min(pageSize, maxPageSize));
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNext() != null) {
+                response.header(SessionController.NEXT_CURSOR_HEADER, page.getNext().encode());
+            }
+            return response.body(this.sessionMapper.toDto(page.getSessions(),
+                    this.sessionService.findParticipantIds(page.getSessions())));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
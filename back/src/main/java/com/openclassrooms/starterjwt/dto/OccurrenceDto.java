@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccurrenceDto {
+    private Long series_id;
+
+    /**
+     * Session of the occurrence once someone booked it, null before that.
+     */
+    private Long session_id;
+
+    private Date date;
+
+    private String name;
+
+    private String description;
+
+    private Integer capacity;
+
+    private Long teacher_id;
+
+    private int participantCount;
+}
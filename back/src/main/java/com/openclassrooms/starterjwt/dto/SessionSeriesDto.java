@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.dto;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionSeriesDto {
+    private Long id;
+
+    @NotBlank
+    @Size(max = 50)
+    private String name;
+
+    @NotNull
+    @Size(max = 2500)
+    private String description;
+
+    @Min(1)
+    private Integer capacity;
+
+    @NotNull
+    private Long teacher_id;
+
+    @NotNull
+    private Date startsAt;
+
+    @NotBlank
+    private String timeZone;
+
+    @NotNull
+    private SessionSeries.Frequency frequency;
+
+    @Min(1)
+    private int interval = 1;
+
+    private Set<DayOfWeek> byDay;
+
+    private Date until;
+
+    @Min(1)
+    private Integer count;
+
+    private Set<LocalDate> exceptions;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
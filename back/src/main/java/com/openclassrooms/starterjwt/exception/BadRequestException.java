@@ -5,4 +5,13 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(value= HttpStatus.BAD_REQUEST)
 public class BadRequestException extends RuntimeException {
+    public BadRequestException() {
+    }
+
+    /**
+     * With a message meant for the client, returned in the body by controllers that handle it.
+     */
+    public BadRequestException(String message) {
+        super(message);
+    }
 }
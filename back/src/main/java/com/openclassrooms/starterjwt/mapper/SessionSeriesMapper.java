@@ -0,0 +1,55 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.OccurrenceDto;
+import com.openclassrooms.starterjwt.dto.SessionSeriesDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.services.Occurrence;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+@Mapper(componentModel = "spring")
+public abstract class SessionSeriesMapper implements EntityMapper<SessionSeriesDto, SessionSeries> {
+
+    @Autowired
+    TeacherService teacherService;
+
+    @Mappings({
+            @Mapping(target = "endsAt", ignore = true),
+            @Mapping(target = "teacher", expression = "java(sessionSeriesDto.getTeacher_id() != null ? this.teacherService.findReferenced(sessionSeriesDto.getTeacher_id()) : null)"),
+    })
+    public abstract SessionSeries toEntity(SessionSeriesDto sessionSeriesDto);
+
+    @Mappings({
+            @Mapping(source = "teacher.id", target = "teacher_id"),
+    })
+    public abstract SessionSeriesDto toDto(SessionSeries sessionSeries);
+
+    /**
+     * Maps an occurrence from its session once booked, from its series before that.
+     */
+    public OccurrenceDto toDto(Occurrence occurrence) {
+        SessionSeries series = occurrence.getSeries();
+        Session session = occurrence.getSession();
+        if (session == null) {
+            return new OccurrenceDto(series.getId(), null, occurrence.getDate(), series.getName(),
+                    series.getDescription(), series.getCapacity(),
+                    series.getTeacher() == null ? null : series.getTeacher().getId(), 0);
+        }
+        return new OccurrenceDto(series.getId(), session.getId(), occurrence.getDate(), session.getName(),
+                session.getDescription(), session.getCapacity(),
+                session.getTeacher() == null ? null : session.getTeacher().getId(), session.getParticipantCount());
+    }
+
+    public List<OccurrenceDto> toOccurrenceDto(List<Occurrence> occurrences) {
+        return occurrences.stream().map(this::toDto).collect(Collectors.toList());
+    }
+}
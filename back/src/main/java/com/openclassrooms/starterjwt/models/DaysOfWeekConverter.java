@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.models;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stores days of the week as a comma-separated list of their names, "MONDAY,THURSDAY".
+ */
+@Converter
+public class DaysOfWeekConverter implements AttributeConverter<Set<DayOfWeek>, String> {
+    @Override
+    public String convertToDatabaseColumn(Set<DayOfWeek> days) {
+        if (days == null || days.isEmpty()) {
+            return null;
+        }
+        return EnumSet.copyOf(days).stream().map(DayOfWeek::name).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public Set<DayOfWeek> convertToEntityAttribute(String column) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (column != null && !column.isEmpty()) {
+            Arrays.stream(column.split(",")).map(DayOfWeek::valueOf).forEach(days::add);
+        }
+        return days;
+    }
+}
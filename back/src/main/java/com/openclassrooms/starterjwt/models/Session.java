@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,7 +17,13 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "SESSIONS")
+@Table(name = "SESSIONS", indexes = {
+        @Index(name = "idx_sessions_date_id", columnList = "date, id"),
+        @Index(name = "idx_sessions_teacher_date", columnList = "teacher_id, date"),
+        @Index(name = "idx_sessions_updated_at_id", columnList = "updated_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sessions_series_date", columnNames = {"series_id", "date"})
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @Accessors(chain = true)
@@ -26,8 +33,13 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 public class Session {
+    /**
+     * Allocated from a pooled sequence a block at a time, so inserts do not wait for a generated key and
+     * can be sent as JDBC batches. Without sequences, as on MySQL, the block is kept in a table of that name.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sessions_seq")
+    @SequenceGenerator(name = "sessions_seq", sequenceName = "SESSIONS_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -41,15 +53,41 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    /**
+     * Maximum number of participants, or null when the session is not limited.
+     */
+    @Min(1)
+    private Integer capacity;
+
+    /**
+     * Seats taken, kept by the booking statements so that a seat is reserved by a single conditional update.
+     */
+    @Column(name = "participant_count", nullable = false)
+    private int participantCount;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * Id of the {@link SessionSeries} this session is an occurrence of, set when the occurrence is first
+     * booked and never changed.
+     */
+    @Column(name = "series_id", updatable = false)
+    private Long seriesId;
+
+    /**
+     * JPA cannot declare a primary key on a join table: script.sql makes (session_id, user_id) the primary
+     * key, and a schema generated from this mapping gets a unique key on the same columns instead.
+     */
+    @ManyToMany(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            inverseJoinColumns = @JoinColumn( name = "user_id" ),
+            uniqueConstraints = @UniqueConstraint(name = "uk_participate", columnNames = {"session_id", "user_id"}),
+            indexes = @Index(name = "idx_participate_user_session", columnList = "user_id, session_id") )
     private List<User> users;
 
     @CreatedDate
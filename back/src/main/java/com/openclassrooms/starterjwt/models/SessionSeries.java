@@ -0,0 +1,126 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * A session repeated by a daily or weekly rule, in the manner of an iCalendar RRULE: every
+ * {@code interval} days or weeks from {@code startsAt}, on the {@code byDay} days of the week for a weekly
+ * rule, until a date or for a count of occurrences, minus the dates listed as exceptions. Occurrences keep
+ * the local time of {@code startsAt} in {@code timeZone} across daylight saving changes.
+ *
+ * <p>Occurrences are computed when read; one becomes a {@link Session} row only once someone books it.</p>
+ */
+@Entity
+@Table(name = "SESSION_SERIES", indexes = {
+        @Index(name = "idx_session_series_ends_at", columnList = "ends_at")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"id"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class SessionSeries {
+    public enum Frequency {
+        DAILY,
+        WEEKLY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "session_series_seq")
+    @SequenceGenerator(name = "session_series_seq", sequenceName = "SESSION_SERIES_SEQ", allocationSize = 50)
+    private Long id;
+
+    @NotBlank
+    @Size(max = 50)
+    private String name;
+
+    @NotNull
+    @Size(max = 2500)
+    private String description;
+
+    @Min(1)
+    private Integer capacity;
+
+    @ManyToOne
+    @JoinColumn(name = "teacher_id", referencedColumnName = "id")
+    private Teacher teacher;
+
+    /**
+     * Start of the series, whose local time every occurrence keeps. It is the first occurrence unless a
+     * weekly rule leaves its day out.
+     */
+    @NotNull
+    @Column(name = "starts_at")
+    private Date startsAt;
+
+    @NotNull
+    @Column(name = "time_zone")
+    private String timeZone;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private Frequency frequency;
+
+    @Min(1)
+    @Column(name = "repeat_interval", nullable = false)
+    private int interval;
+
+    /**
+     * Days of a weekly rule, the day of {@code startsAt} when empty.
+     */
+    @Convert(converter = DaysOfWeekConverter.class)
+    @Column(name = "by_day")
+    private Set<DayOfWeek> byDay;
+
+    /**
+     * Last instant an occurrence may start at, included.
+     */
+    @Column(name = "repeat_until")
+    private Date until;
+
+    @Min(1)
+    @Column(name = "repeat_count")
+    private Integer count;
+
+    /**
+     * Local dates on which the series does not take place.
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "SESSION_SERIES_EXCEPTIONS", joinColumns = @JoinColumn(name = "series_id"))
+    @Column(name = "exception_date")
+    @ToString.Exclude
+    private Set<LocalDate> exceptions;
+
+    /**
+     * Bound of the last occurrence from {@code until} and {@code count}, null when the series never ends;
+     * kept so that a window query can leave finished series out.
+     */
+    @Column(name = "ends_at")
+    private Date endsAt;
+
+    @CreatedDate
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
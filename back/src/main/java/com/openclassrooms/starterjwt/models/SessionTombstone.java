@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+import lombok.experimental.Accessors;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Remembers that a session was deleted, so that clients syncing changes can drop their copy. Kept for a
+ * limited time only, see {@link com.openclassrooms.starterjwt.services.SessionTombstones}.
+ */
+@Entity
+@Table(name = "SESSION_TOMBSTONES", indexes = {
+        @Index(name = "idx_session_tombstones_deleted_at", columnList = "deleted_at, session_id")
+})
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"sessionId"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class SessionTombstone {
+    @Id
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EventsTicketResponse {
+  /**
+   * Passed as the {@code ticket} query parameter of {@code GET /api/session/events}, once, before it expires.
+   */
+  private String ticket;
+
+  private long expiresInMs;
+}
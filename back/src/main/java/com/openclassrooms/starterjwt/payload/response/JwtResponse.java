@@ -1,5 +1,7 @@
 package com.openclassrooms.starterjwt.payload.response;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -7,6 +9,7 @@ import lombok.Setter;
 @Setter
 public class JwtResponse {
   private String token;
+  private String refreshToken;
   private String type = "Bearer";
   private Long id;
   private String username;
@@ -23,4 +26,10 @@ public class JwtResponse {
     this.username = username;
     this.admin = admin;
   }
+
+  @JsonCreator
+  public JwtResponse(String accessToken, String refreshToken, Long id, String username, String firstName, String lastName, Boolean admin) {
+    this(accessToken, id, username, firstName, lastName, admin);
+    this.refreshToken = refreshToken;
+  }
 }
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import java.util.List;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SessionChangesResponse {
+  private List<SessionDto> sessions;
+
+  private List<Long> deleted;
+
+  /**
+   * Cursor to pass as {@code since} on the next call.
+   */
+  private String next;
+
+  private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import java.util.List;
+
+import com.openclassrooms.starterjwt.services.SessionImportReport;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SessionImportResponse {
+  private int imported;
+
+  private int failed;
+
+  /**
+   * The first failures, with the position of their row in the request.
+   */
+  private List<SessionImportReport.RowError> errors;
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of rows and latest {@code updated_at} of a table or of a single row, read with one aggregate query.
+ * Together they change whenever a row is created, updated or deleted, so they validate a cached read
+ * without loading it.
+ */
+public interface Revision {
+    long getCount();
+
+    LocalDateTime getLastModified();
+}
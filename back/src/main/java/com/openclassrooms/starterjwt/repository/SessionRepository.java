@@ -1,9 +1,198 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface SessionRepository  extends JpaRepository<Session, Long> {
+
+    @Query("select s from Session s left join fetch s.teacher")
+    List<Session> findAllWithTeacher();
+
+    @Query("select count(s) as count, max(s.updatedAt) as lastModified from Session s")
+    Revision findRevision();
+
+    /**
+     * All sessions with their teacher, read through a database cursor rather than materialized. The
+     * stream must be closed and consumed inside a transaction. Rows are fetched by 500, and read-only
+     * entities keep no snapshot for dirty checking.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select s from Session s left join fetch s.teacher order by s.id")
+    Stream<Session> streamAll();
+
+    /**
+     * (id, name, description) of every session in id order, through a cursor and without creating entities.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select s.id, s.name, s.description from Session s order by s.id")
+    Stream<Object[]> streamSearchFields();
+
+    @Query("select s from Session s left join fetch s.teacher where s.id in (:ids)")
+    List<Session> findAllWithTeacherById(@Param("ids") Collection<Long> ids);
+
+    @Query("select count(s) as count, max(s.updatedAt) as lastModified from Session s where s.id = :id")
+    Revision findRevision(@Param("id") Long id);
+
+    /**
+     * First sessions in (date, id) order. Only the limit of the pageable is used, never an offset.
+     */
+    @Query("select s from Session s left join fetch s.teacher order by s.date, s.id")
+    List<Session> findFirstPage(Pageable pageable);
+
+    /**
+     * Sessions strictly after the given (date, id) position, served by the (date, id) index whatever
+     * the depth of the page.
+     */
+    @Query("select s from Session s left join fetch s.teacher "
+            + "where s.date > :date or (s.date = :date and s.id > :id) order by s.date, s.id")
+    List<Session> findPageAfter(@Param("date") Date date, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Sessions from {@code from} included to {@code to} excluded in (date, id) order, a range scan of the
+     * (date, id) index.
+     */
+    @Query("select s from Session s left join fetch s.teacher "
+            + "where s.date >= :from and s.date < :to order by s.date, s.id")
+    List<Session> findBetween(@Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Same as {@link #findBetween} for one teacher, a range scan of the (teacher_id, date) index.
+     */
+    @Query("select s from Session s left join fetch s.teacher "
+            + "where s.teacher.id = :teacherId and s.date >= :from and s.date < :to order by s.date, s.id")
+    List<Session> findBetween(@Param("teacherId") Long teacherId, @Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * First sessions from {@code from} on, in (date, id) order. Only the limit of the pageable is used.
+     */
+    @Query("select s from Session s left join fetch s.teacher where s.date >= :from order by s.date, s.id")
+    List<Session> findUpcoming(@Param("from") Date from, Pageable pageable);
+
+    @Query("select s from Session s left join fetch s.teacher "
+            + "where s.teacher.id = :teacherId and s.date >= :from order by s.date, s.id")
+    List<Session> findUpcoming(@Param("teacherId") Long teacherId, @Param("from") Date from, Pageable pageable);
+
+    /**
+     * Ids of the first sessions a user participates in, in (date, id) order. Driven by the (user_id,
+     * session_id) index of PARTICIPATE, so the cost depends on the user's bookings only. Only the limit of
+     * the pageable is used.
+     */
+    @Query(value = "select s.id from PARTICIPATE p join SESSIONS s on s.id = p.session_id "
+            + "where p.user_id = :userId order by s.date, s.id", nativeQuery = true)
+    List<Number> findParticipationIds(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Same as {@link #findParticipationIds(Long, Pageable)}, strictly after the given (date, id) position.
+     */
+    @Query(value = "select s.id from PARTICIPATE p join SESSIONS s on s.id = p.session_id "
+            + "where p.user_id = :userId and (s.date > :date or (s.date = :date and s.id > :id)) "
+            + "order by s.date, s.id", nativeQuery = true)
+    List<Number> findParticipationIdsAfter(@Param("userId") Long userId, @Param("date") Date date,
+                                           @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Sessions written strictly after the (updatedAt, id) position and up to {@code until} included, in that
+     * order, a range scan of the (updated_at, id) index. Only the limit of the pageable is used.
+     */
+    @Query("select s from Session s left join fetch s.teacher "
+            + "where (s.updatedAt > :time or (s.updatedAt = :time and s.id > :id)) and s.updatedAt <= :until "
+            + "order by s.updatedAt, s.id")
+    List<Session> findChangedAfter(@Param("time") LocalDateTime time, @Param("id") Long id,
+                                   @Param("until") LocalDateTime until, Pageable pageable);
+
+    @Query("select s from Session s left join fetch s.teacher where s.updatedAt <= :until order by s.updatedAt, s.id")
+    List<Session> findChangedUntil(@Param("until") LocalDateTime until, Pageable pageable);
+
+    /**
+     * Occurrences of the given series already booked once, in [from, to), through the (series_id, date)
+     * unique index.
+     */
+    @Query("select s from Session s where s.seriesId in (:seriesIds) and s.date >= :from and s.date < :to")
+    List<Session> findOccurrences(@Param("seriesIds") Collection<Long> seriesIds, @Param("from") Date from,
+                                  @Param("to") Date to);
+
+    @Query("select s from Session s where s.seriesId = :seriesId and s.date = :date")
+    Optional<Session> findOccurrence(@Param("seriesId") Long seriesId, @Param("date") Date date);
+
+    /**
+     * Occurrences of the series already booked once and starting at {@code from} or later.
+     */
+    @Query("select s from Session s where s.seriesId = :seriesId and s.date >= :from")
+    List<Session> findOccurrencesFrom(@Param("seriesId") Long seriesId, @Param("from") Date from);
+
+    /**
+     * (session_id, user_id) rows of the given sessions, read from the join table without loading users.
+     */
+    @Query(value = "select session_id, user_id from PARTICIPATE where session_id in (:ids)", nativeQuery = true)
+    List<Object[]> findParticipants(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select session_id, user_id from PARTICIPATE", nativeQuery = true)
+    List<Object[]> findAllParticipants();
+
+    /**
+     * Adds the participation in one statement, and only when the session and the user exist and the row is
+     * not already there. Returns the number of rows inserted, so 0 tells the caller nothing changed.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "insert into PARTICIPATE (session_id, user_id) "
+            + "select s.id, u.id from SESSIONS s, USERS u where s.id = :sessionId and u.id = :userId "
+            + "and not exists (select 1 from PARTICIPATE p where p.session_id = :sessionId and p.user_id = :userId)",
+            nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "delete from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Takes a seat when one is left. The update is atomic and locks only this session's row until the
+     * transaction ends; 0 means the session is full or does not exist. Like every change of participants,
+     * it bumps {@code updatedAt} so that cached copies of the session are invalidated.
+     */
+    default int reserveSeat(Long id) {
+        return reserveSeat(id, LocalDateTime.now());
+    }
+
+    @Modifying
+    @Query("update Session s set s.participantCount = s.participantCount + 1, s.updatedAt = :now "
+            + "where s.id = :id and (s.capacity is null or s.participantCount < s.capacity)")
+    int reserveSeat(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    default int releaseSeat(Long id) {
+        return releaseSeat(id, LocalDateTime.now());
+    }
+
+    @Modifying
+    @Query("update Session s set s.participantCount = s.participantCount - 1, s.updatedAt = :now "
+            + "where s.id = :id and s.participantCount > 0")
+    int releaseSeat(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Locks the session's row without changing it, so that bookings of this session are serialized with
+     * the current transaction. Returns 0 when the session does not exist.
+     */
+    @Modifying
+    @Query("update Session s set s.participantCount = s.participantCount where s.id = :id")
+    int lock(@Param("id") Long id);
 }
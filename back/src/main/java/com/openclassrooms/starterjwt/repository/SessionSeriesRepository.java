@@ -0,0 +1,29 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SessionSeriesRepository extends JpaRepository<SessionSeries, Long> {
+
+    @Query("select s from SessionSeries s left join fetch s.teacher left join fetch s.exceptions where s.id = :id")
+    Optional<SessionSeries> findWithExceptionsById(@Param("id") Long id);
+
+    /**
+     * Series that may have occurrences in [from, to), with their teacher and exceptions.
+     */
+    @Query("select distinct s from SessionSeries s left join fetch s.teacher left join fetch s.exceptions "
+            + "where s.startsAt < :to and (s.endsAt is null or s.endsAt >= :from)")
+    List<SessionSeries> findActive(@Param("from") Date from, @Param("to") Date to);
+
+    @Query("select distinct s from SessionSeries s left join fetch s.teacher left join fetch s.exceptions "
+            + "where s.teacher.id = :teacherId and s.startsAt < :to and (s.endsAt is null or s.endsAt >= :from)")
+    List<SessionSeries> findActive(@Param("teacherId") Long teacherId, @Param("from") Date from, @Param("to") Date to);
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.SessionTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SessionTombstoneRepository extends JpaRepository<SessionTombstone, Long> {
+
+    /**
+     * Tombstones strictly after the (deletedAt, sessionId) position and up to {@code until} included, in that
+     * order, a range scan of the (deleted_at, session_id) index. Only the limit of the pageable is used.
+     */
+    @Query("select t from SessionTombstone t "
+            + "where (t.deletedAt > :time or (t.deletedAt = :time and t.sessionId > :id)) and t.deletedAt <= :until "
+            + "order by t.deletedAt, t.sessionId")
+    List<SessionTombstone> findAfter(@Param("time") LocalDateTime time, @Param("id") Long id,
+                                     @Param("until") LocalDateTime until, Pageable pageable);
+
+    /**
+     * Inserts directly: {@code save} would first look the assigned id up.
+     */
+    @Modifying
+    @Query(value = "insert into SESSION_TOMBSTONES (session_id, deleted_at) values (:id, :deletedAt)", nativeQuery = true)
+    int insert(@Param("id") Long id, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query("delete from SessionTombstone t where t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -2,8 +2,34 @@ package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface TeacherRepository  extends JpaRepository<Teacher, Long> {
+
+    @Query("select count(t) as count, max(t.updatedAt) as lastModified from Teacher t")
+    Revision findRevision();
+
+    @Query("select count(t) as count, max(t.updatedAt) as lastModified from Teacher t where t.id = :id")
+    Revision findRevision(@Param("id") Long id);
+
+    /**
+     * All teachers through a database cursor, fetched by 500 rows. Must be closed and consumed inside a
+     * transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select t from Teacher t order by t.id")
+    Stream<Teacher> streamAll();
 }
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    Optional<WaitlistEntry> findFirstBySessionIdOrderByIdAsc(Long sessionId);
+
+    List<WaitlistEntry> findBySessionIdOrderByIdAsc(Long sessionId);
+
+    /**
+     * Queues the user when the session and the user exist and the user neither participates nor waits
+     * already. Returns the number of rows inserted.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into WAITLIST (session_id, user_id, created_at) "
+            + "select s.id, u.id, current_timestamp from SESSIONS s, USERS u where s.id = :sessionId and u.id = :userId "
+            + "and not exists (select 1 from PARTICIPATE p where p.session_id = :sessionId and p.user_id = :userId) "
+            + "and not exists (select 1 from WAITLIST w where w.session_id = :sessionId and w.user_id = :userId)",
+            nativeQuery = true)
+    int enqueue(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId and w.userId = :userId")
+    int dequeue(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.id = :id")
+    int claim(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId")
+    int deleteBySession(@Param("sessionId") Long sessionId);
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,14 +11,18 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import com.openclassrooms.starterjwt.security.jwt.AuthEntryPointJwt;
 import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
+import com.openclassrooms.starterjwt.security.password.BCryptStrengthCalibrator;
+import com.openclassrooms.starterjwt.security.password.BoundedPasswordEncoder;
+import com.openclassrooms.starterjwt.security.password.RehashingBCryptPasswordEncoder;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(
@@ -31,6 +36,36 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   @Autowired
   private AuthEntryPointJwt unauthorizedHandler;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${oc.app.passwordHashing.threads:0}")
+  private int passwordHashingThreads;
+
+  @Value("${oc.app.passwordHashing.queueCapacity:64}")
+  private int passwordHashingQueueCapacity;
+
+  @Value("${oc.app.passwordHashing.maxWaitMs:2000}")
+  private long passwordHashingMaxWaitMs;
+
+  @Value("${oc.app.passwordHashing.retryAfterSeconds:1}")
+  private long passwordHashingRetryAfterSeconds;
+
+  /**
+   * Fixed BCrypt cost; 0 benchmarks the host at startup and picks the highest cost within the budget.
+   */
+  @Value("${oc.app.bcrypt.strength:0}")
+  private int bcryptStrength;
+
+  @Value("${oc.app.bcrypt.targetMs:250}")
+  private long bcryptTargetMs;
+
+  @Value("${oc.app.bcrypt.minStrength:10}")
+  private int bcryptMinStrength;
+
+  @Value("${oc.app.bcrypt.maxStrength:14}")
+  private int bcryptMaxStrength;
+
   @Bean
   public AuthTokenFilter authenticationJwtTokenFilter() {
     return new AuthTokenFilter();
@@ -49,7 +84,13 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
   @Bean
   public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+    int threads = passwordHashingThreads > 0 ? passwordHashingThreads : Runtime.getRuntime().availableProcessors();
+    int strength = bcryptStrength > 0
+        ? bcryptStrength
+        : BCryptStrengthCalibrator.calibrate(bcryptTargetMs, bcryptMinStrength, bcryptMaxStrength);
+
+    return new BoundedPasswordEncoder(new RehashingBCryptPasswordEncoder(strength), threads, passwordHashingQueueCapacity,
+        passwordHashingMaxWaitMs, passwordHashingRetryAfterSeconds, meterRegistry);
   }
 
   @Override
@@ -57,7 +98,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     http.cors().and().csrf().disable()
       .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
       .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
-      .authorizeRequests().antMatchers("/api/auth/**").permitAll()
+      .authorizeRequests().antMatchers("/api/auth/events-ticket").authenticated()
+      .antMatchers("/api/auth/**").permitAll()
+      .antMatchers("/actuator/health").permitAll()
+      .antMatchers("/actuator/**").hasRole("ADMIN")
       .antMatchers("/api/**").authenticated()
       .anyRequest().authenticated();
 
@@ -1,43 +1,111 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+/**
+ * Writes the 401 body from preallocated fragments. Only the message and the path vary; messages come
+ * from a handful of exception types, so their escaped bytes are kept after first use.
+ */
 @Component
 public class AuthEntryPointJwt implements AuthenticationEntryPoint {
+  private static final byte[] PREFIX =
+      "{\"status\":401,\"error\":\"Unauthorized\",\"message\":\"".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] PATH = "\",\"path\":\"".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+  private static final int MAX_CACHED_MESSAGES = 64;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthEntryPointJwt.class);
+  private final Map<String, byte[]> messages = new ConcurrentHashMap<>();
+
+  @Autowired
+  private AuthFailureMonitor authFailureMonitor;
 
   @Override
   public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
       throws IOException, ServletException {
-    logger.error("Unauthorized error: {}", authException.getMessage());
+    authFailureMonitor.unauthorized();
+
+    byte[] message = message(authException.getMessage());
+    byte[] path = escape(request.getServletPath());
 
     response.setContentType(MediaType.APPLICATION_JSON_VALUE);
     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+    response.setContentLength(PREFIX.length + message.length + PATH.length + path.length + SUFFIX.length);
 
-    final Map<String, Object> body = new HashMap<>();
-    body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
-    body.put("error", "Unauthorized");
-    body.put("message", authException.getMessage());
-    body.put("path", request.getServletPath());
+    ServletOutputStream out = response.getOutputStream();
+    out.write(PREFIX);
+    out.write(message);
+    out.write(PATH);
+    out.write(path);
+    out.write(SUFFIX);
+  }
 
-    final ObjectMapper mapper = new ObjectMapper();
-    mapper.writeValue(response.getOutputStream(), body);
+  private byte[] message(String message) {
+    byte[] cached = messages.get(message == null ? "" : message);
+    if (cached != null) {
+      return cached;
+    }
+    byte[] escaped = escape(message);
+    if (messages.size() < MAX_CACHED_MESSAGES) {
+      messages.put(message == null ? "" : message, escaped);
+    }
+    return escaped;
   }
 
+  /**
+   * Escapes a value for a JSON string: quotes, backslashes and control characters.
+   */
+  static byte[] escape(String value) {
+    if (value == null || value.isEmpty()) {
+      return new byte[0];
+    }
+    StringBuilder escaped = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\' || c < 0x20) {
+        if (escaped == null) {
+          escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+        }
+        escaped.append('\\');
+        switch (c) {
+          case '"':
+          case '\\':
+            escaped.append(c);
+            break;
+          case '\n':
+            escaped.append('n');
+            break;
+          case '\r':
+            escaped.append('r');
+            break;
+          case '\t':
+            escaped.append('t');
+            break;
+          default:
+            escaped.append("u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+        }
+      } else if (escaped != null) {
+        escaped.append(c);
+      }
+    }
+    return (escaped == null ? value : escaped.toString()).getBytes(StandardCharsets.UTF_8);
+  }
 }
@@ -0,0 +1,123 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts rejected tokens and unauthorized requests by reason, instead of logging each of them.
+ *
+ * Every event increments a Micrometer counter and a pending count. At most once per
+ * {@code oc.app.authFailureLogIntervalMs}, the event that crosses the interval logs one summary of the
+ * pending counts, so a scan spraying bad tokens produces one line per interval whatever its rate.
+ */
+@Component
+public class AuthFailureMonitor {
+  private static final Logger logger = LoggerFactory.getLogger(AuthFailureMonitor.class);
+
+  private final Reason[] tokenFailures;
+
+  private final Reason unauthorized;
+
+  private final Reason filterErrors;
+
+  private final long logIntervalMs;
+
+  private final AtomicLong nextLogMs;
+
+  private volatile Exception lastFilterError;
+
+  public AuthFailureMonitor(@Value("${oc.app.authFailureLogIntervalMs:60000}") long logIntervalMs,
+                            MeterRegistry meterRegistry) {
+    this.logIntervalMs = logIntervalMs;
+    this.nextLogMs = new AtomicLong(System.currentTimeMillis() + logIntervalMs);
+
+    JwtFailure[] failures = JwtFailure.values();
+    this.tokenFailures = new Reason[failures.length];
+    for (JwtFailure failure : failures) {
+      tokenFailures[failure.ordinal()] = new Reason(failure.name().toLowerCase(), meterRegistry);
+    }
+    this.unauthorized = new Reason("unauthorized", meterRegistry);
+    this.filterErrors = new Reason("filter_error", meterRegistry);
+  }
+
+  public void tokenRejected(JwtFailure failure) {
+    record(tokenFailures[failure.ordinal()]);
+  }
+
+  /**
+   * A request reached the entry point without valid authentication.
+   */
+  public void unauthorized() {
+    record(unauthorized);
+  }
+
+  /**
+   * The token filter failed unexpectedly. The last exception is kept for the next summary.
+   */
+  public void filterError(Exception e) {
+    lastFilterError = e;
+    record(filterErrors);
+  }
+
+  private void record(Reason reason) {
+    reason.counter.increment();
+    reason.pending.increment();
+
+    long now = System.currentTimeMillis();
+    long next = nextLogMs.get();
+    if (now >= next && nextLogMs.compareAndSet(next, now + logIntervalMs)) {
+      logSummary(now - next + logIntervalMs);
+    }
+  }
+
+  private void logSummary(long periodMs) {
+    StringBuilder summary = new StringBuilder();
+    for (Reason reason : tokenFailures) {
+      reason.appendTo(summary);
+    }
+    unauthorized.appendTo(summary);
+    long errors = filterErrors.pending.sum();
+    filterErrors.appendTo(summary);
+    if (summary.length() == 0) {
+      return;
+    }
+
+    Exception error = lastFilterError;
+    if (errors > 0 && error != null) {
+      logger.warn("Authentication failures in the last {} s:{}", periodMs / 1000, summary, error);
+    } else {
+      logger.warn("Authentication failures in the last {} s:{}", periodMs / 1000, summary);
+    }
+  }
+
+  private static final class Reason {
+    private final String name;
+
+    private final Counter counter;
+
+    private final LongAdder pending = new LongAdder();
+
+    private Reason(String name, MeterRegistry meterRegistry) {
+      this.name = name;
+      this.counter = Counter.builder("auth.failures")
+          .description("Rejected tokens and unauthorized requests")
+          .tag("reason", name)
+          .register(meterRegistry);
+    }
+
+    private void appendTo(StringBuilder summary) {
+      long count = pending.sumThenReset();
+      if (count > 0) {
+        summary.append(' ').append(name).append('=').append(count);
+      }
+    }
+  }
+}
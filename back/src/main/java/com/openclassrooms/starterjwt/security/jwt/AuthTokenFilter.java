@@ -7,9 +7,8 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -20,23 +19,42 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
+  /**
+   * The only request accepting an events ticket, in its {@value #TICKET_PARAMETER} query parameter.
+   */
+  static final String EVENTS_PATH = "/api/session/events";
+
+  static final String TICKET_PARAMETER = "ticket";
+
   @Autowired
   private JwtUtils jwtUtils;
 
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
+  @Autowired
+  private AuthFailureMonitor authFailureMonitor;
+
+  /**
+   * When enabled, every request reloads the user from the database instead of trusting the signed claims.
+   */
+  @Value("${oc.app.jwtUserLookup:false}")
+  private boolean userLookup;
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
     try {
-      String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
+      JwtClaims claims = parseJwt(request);
+      if (claims == null) {
+        claims = parseTicket(request);
+      }
+      if (claims != null) {
+        UserDetails userDetails = userLookup ? null : claims.toUserDetails();
+        if (userDetails == null) {
+          userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -47,19 +65,46 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         SecurityContextHolder.getContext().setAuthentication(authentication);
       }
     } catch (Exception e) {
-      logger.error("Cannot set user authentication: {}", e);
+      authFailureMonitor.filterError(e);
     }
 
     filterChain.doFilter(request, response);
   }
 
-  private String parseJwt(HttpServletRequest request) {
+  /**
+   * Claims of the bearer token. Refresh tokens are only accepted by the refresh endpoint and events tickets
+   * only by the event stream.
+   */
+  private JwtClaims parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
     if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
-      return headerAuth.substring(7, headerAuth.length());
+      JwtVerification verification = jwtUtils.verify(headerAuth.substring(7, headerAuth.length()));
+      JwtClaims claims = verification.isValid() ? verification.getClaims() : null;
+      if (claims != null && !claims.isRefreshToken() && !claims.isEventsTicket()) {
+        return claims;
+      }
     }
 
     return null;
   }
+
+  /**
+   * Claims of the events ticket opening the event stream, spent by this request so that a ticket read from
+   * a log cannot be replayed.
+   */
+  private JwtClaims parseTicket(HttpServletRequest request) {
+    String ticket = request.getParameter(TICKET_PARAMETER);
+    if (!StringUtils.hasText(ticket) || !"GET".equals(request.getMethod())
+        || !EVENTS_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))) {
+      return null;
+    }
+
+    JwtVerification verification = jwtUtils.verify(ticket);
+    if (verification.isValid() && verification.getClaims().isEventsTicket()
+        && jwtUtils.revoke(verification.getClaims())) {
+      return verification.getClaims();
+    }
+    return null;
+  }
 }
@@ -0,0 +1,56 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Arrays;
+
+/**
+ * Unpadded base64url decoding straight into a caller-supplied buffer, so that hot verification paths do
+ * not allocate an intermediate String or array per segment.
+ */
+final class Base64Url {
+  private static final byte[] DECODE = new byte[128];
+
+  static {
+    Arrays.fill(DECODE, (byte) -1);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    for (int i = 0; i < alphabet.length(); i++) {
+      DECODE[alphabet.charAt(i)] = (byte) i;
+    }
+  }
+
+  private Base64Url() {
+  }
+
+  static int decodedLength(int encodedLength) {
+    return encodedLength * 3 / 4;
+  }
+
+  /**
+   * Decodes {@code src[from, to)} into {@code dst} and returns the number of bytes written, or -1 if the
+   * input is not valid unpadded base64url.
+   */
+  static int decode(CharSequence src, int from, int to, byte[] dst) {
+    int length = to - from;
+    if (length % 4 == 1) {
+      return -1;
+    }
+
+    int out = 0;
+    int accumulator = 0;
+    int bits = 0;
+    for (int i = from; i < to; i++) {
+      char c = src.charAt(i);
+      int value = c < 128 ? DECODE[c] : -1;
+      if (value < 0) {
+        return -1;
+      }
+      accumulator = (accumulator << 6) | value;
+      bits += 6;
+      if (bits >= 8) {
+        bits -= 8;
+        dst[out++] = (byte) (accumulator >> bits);
+      }
+    }
+
+    return out;
+  }
+}
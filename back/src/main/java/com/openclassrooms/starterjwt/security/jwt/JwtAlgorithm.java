@@ -0,0 +1,184 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Asymmetric JWS algorithms accepted next to HS512, with what differs between them: key generation,
+ * the JWK form of the public key, and the signature encoding.
+ */
+enum JwtAlgorithm {
+  RS256("SHA256withRSA", "RSA") {
+    @Override
+    KeyPair generateKeyPair() throws GeneralSecurityException {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(2048);
+      return generator.generateKeyPair();
+    }
+
+    @Override
+    void writeJwkFields(JsonGenerator generator, PublicKey publicKey) throws IOException {
+      RSAPublicKey rsa = (RSAPublicKey) publicKey;
+      generator.writeStringField("n", encode(unsigned(rsa.getModulus(), 0)));
+      generator.writeStringField("e", encode(unsigned(rsa.getPublicExponent(), 0)));
+    }
+  },
+
+  ES256("SHA256withECDSA", "EC") {
+    @Override
+    KeyPair generateKeyPair() throws GeneralSecurityException {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+      generator.initialize(new ECGenParameterSpec("secp256r1"));
+      return generator.generateKeyPair();
+    }
+
+    @Override
+    void writeJwkFields(JsonGenerator generator, PublicKey publicKey) throws IOException {
+      ECPublicKey ec = (ECPublicKey) publicKey;
+      generator.writeStringField("crv", "P-256");
+      generator.writeStringField("x", encode(unsigned(ec.getW().getAffineX(), EC_FIELD_LENGTH)));
+      generator.writeStringField("y", encode(unsigned(ec.getW().getAffineY(), EC_FIELD_LENGTH)));
+    }
+
+    /**
+     * JWS carries R and S as two fixed-size big-endian integers, where the JCA produces a DER sequence.
+     */
+    @Override
+    byte[] toJws(byte[] signature) {
+      int offset = 3;
+      if ((signature[1] & 0x80) != 0) {
+        offset += signature[1] & 0x7F;
+      }
+      int rLength = signature[offset];
+      int sOffset = offset + 1 + rLength + 1;
+      int sLength = signature[sOffset];
+
+      byte[] jws = new byte[2 * EC_FIELD_LENGTH];
+      copyInteger(signature, offset + 1, rLength, jws, 0);
+      copyInteger(signature, sOffset + 1, sLength, jws, EC_FIELD_LENGTH);
+      return jws;
+    }
+
+    @Override
+    byte[] toJca(byte[] signature, int length) {
+      if (length != 2 * EC_FIELD_LENGTH) {
+        return null;
+      }
+      byte[] r = derInteger(signature, 0);
+      byte[] s = derInteger(signature, EC_FIELD_LENGTH);
+
+      byte[] der = new byte[2 + r.length + s.length];
+      der[0] = 0x30;
+      der[1] = (byte) (r.length + s.length);
+      System.arraycopy(r, 0, der, 2, r.length);
+      System.arraycopy(s, 0, der, 2 + r.length, s.length);
+      return der;
+    }
+  };
+
+  private static final int EC_FIELD_LENGTH = 32;
+
+  private final String jcaName;
+
+  private final String keyType;
+
+  JwtAlgorithm(String jcaName, String keyType) {
+    this.jcaName = jcaName;
+    this.keyType = keyType;
+  }
+
+  static JwtAlgorithm fromName(String name) {
+    for (JwtAlgorithm algorithm : values()) {
+      if (algorithm.name().equals(name)) {
+        return algorithm;
+      }
+    }
+    return null;
+  }
+
+  String getKeyType() {
+    return keyType;
+  }
+
+  Signature newSignature() {
+    try {
+      return Signature.getInstance(jcaName);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot initialize " + name() + " signer", e);
+    }
+  }
+
+  abstract KeyPair generateKeyPair() throws GeneralSecurityException;
+
+  abstract void writeJwkFields(JsonGenerator generator, PublicKey publicKey) throws IOException;
+
+  /**
+   * Converts a JCA signature to its JWS encoding.
+   */
+  byte[] toJws(byte[] signature) {
+    return signature;
+  }
+
+  /**
+   * Converts the first {@code length} bytes of a JWS signature to the JCA encoding, or returns null
+   * when the length is wrong for the algorithm.
+   */
+  byte[] toJca(byte[] signature, int length) {
+    return Arrays.copyOf(signature, length);
+  }
+
+  private static String encode(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /**
+   * Big-endian magnitude without the sign byte, left-padded to {@code length} when it is not 0.
+   */
+  private static byte[] unsigned(BigInteger value, int length) {
+    byte[] bytes = value.toByteArray();
+    int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+    int size = Math.max(bytes.length - start, length);
+    byte[] out = new byte[size];
+    System.arraycopy(bytes, start, out, size - (bytes.length - start), bytes.length - start);
+    return out;
+  }
+
+  private static void copyInteger(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+    while (length > EC_FIELD_LENGTH && src[offset] == 0) {
+      offset++;
+      length--;
+    }
+    System.arraycopy(src, offset, dst, dstOffset + EC_FIELD_LENGTH - length, length);
+  }
+
+  /**
+   * DER INTEGER holding the unsigned big-endian value {@code src[offset, offset + 32)}.
+   */
+  private static byte[] derInteger(byte[] src, int offset) {
+    int start = offset;
+    int end = offset + EC_FIELD_LENGTH;
+    while (start < end - 1 && src[start] == 0) {
+      start++;
+    }
+    boolean pad = (src[start] & 0x80) != 0;
+    int length = end - start + (pad ? 1 : 0);
+
+    byte[] der = new byte[2 + length];
+    der[0] = 0x02;
+    der[1] = (byte) length;
+    System.arraycopy(src, start, der, pad ? 3 : 2, end - start);
+    return der;
+  }
+}
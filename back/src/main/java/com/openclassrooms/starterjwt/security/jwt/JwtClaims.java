@@ -0,0 +1,66 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Immutable view of the verified claims carried by an access or refresh token, or by an events ticket.
+ */
+@Builder
+@AllArgsConstructor
+@Getter
+public class JwtClaims {
+  public static final String TYPE_ACCESS = "access";
+
+  public static final String TYPE_REFRESH = "refresh";
+
+  public static final String TYPE_EVENTS_TICKET = "events";
+
+  private final String tokenId;
+
+  private final String type;
+
+  private final String subject;
+
+  private final Long userId;
+
+  private final String firstName;
+
+  private final String lastName;
+
+  private final boolean admin;
+
+  private final long issuedAtMs;
+
+  private final long expirationMs;
+
+  public boolean isRefreshToken() {
+    return TYPE_REFRESH.equals(type);
+  }
+
+  public boolean isEventsTicket() {
+    return TYPE_EVENTS_TICKET.equals(type);
+  }
+
+  /**
+   * Builds the principal from the claims alone. Returns null for tokens issued before the user claims
+   * were embedded, so the caller can fall back to a lookup.
+   */
+  public UserDetailsImpl toUserDetails() {
+    if (userId == null) {
+      return null;
+    }
+
+    return UserDetailsImpl
+            .builder()
+            .id(userId)
+            .username(subject)
+            .firstName(firstName)
+            .lastName(lastName)
+            .admin(admin)
+            .build();
+  }
+}
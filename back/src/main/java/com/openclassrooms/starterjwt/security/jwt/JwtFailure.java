@@ -0,0 +1,13 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+/**
+ * Reason a bearer token was rejected by {@link JwtUtils#verify(String)}.
+ */
+public enum JwtFailure {
+  EMPTY,
+  MALFORMED,
+  UNSUPPORTED,
+  INVALID_SIGNATURE,
+  EXPIRED,
+  REVOKED
+}
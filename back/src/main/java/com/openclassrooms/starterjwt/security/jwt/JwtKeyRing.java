@@ -0,0 +1,253 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * Asymmetric keys used to sign tokens, published as a JWKS so other services can verify tokens locally.
+ *
+ * Keys come either from a PKCS12 key store, where each alias is a {@code kid} and the most recent entry
+ * signs, or are generated in memory. Generated keys die with the process, which would invalidate every
+ * token on restart and make each node reject the others' tokens, so they are only used when
+ * {@code oc.app.jwtEphemeralKeys=true}, for development and tests; otherwise startup fails without a key
+ * store. Generated keys are rotated every {@code oc.app.jwtKeyRotationMs}:
+ * the next key is generated and published one rotation ahead of signing with it, so verifiers caching
+ * the JWKS already know it, and a retired key is kept until the tokens it signed have expired. With a key
+ * store, rotating reloads the file. Either way the ring is swapped as a whole, so readers never lock.
+ *
+ * With {@code oc.app.jwtAlgorithm=HS512} the ring is empty and tokens keep being signed with the secret.
+ */
+@Component
+public class JwtKeyRing {
+  private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private static final String HS512 = "HS512";
+
+  private final JwtAlgorithm algorithm;
+
+  private final String keyStorePath;
+
+  private final char[] keyStorePassword;
+
+  private final long rotationMs;
+
+  private final long retentionMs;
+
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  public JwtKeyRing(@Value("${oc.app.jwtAlgorithm:HS512}") String algorithm,
+                    @Value("${oc.app.jwtKeyStore:}") String keyStorePath,
+                    @Value("${oc.app.jwtKeyStorePassword:}") String keyStorePassword,
+                    @Value("${oc.app.jwtEphemeralKeys:false}") boolean ephemeralKeys,
+                    @Value("${oc.app.jwtKeyRotationMs:0}") long rotationMs,
+                    @Value("${oc.app.jwtRefreshExpirationMs}") long maxTokenLifetimeMs) {
+    this.algorithm = HS512.equals(algorithm) ? null : JwtAlgorithm.fromName(algorithm);
+    if (this.algorithm == null && !HS512.equals(algorithm)) {
+      throw new IllegalArgumentException("Unsupported JWT algorithm: " + algorithm);
+    }
+    if (this.algorithm != null && !StringUtils.hasLength(keyStorePath) && !ephemeralKeys) {
+      throw new IllegalStateException("No key store for " + algorithm + " tokens: set oc.app.jwtKeyStore, "
+          + "or oc.app.jwtEphemeralKeys=true to sign with keys lost on restart");
+    }
+    this.keyStorePath = keyStorePath;
+    this.keyStorePassword = keyStorePassword.toCharArray();
+    this.rotationMs = rotationMs;
+    this.retentionMs = maxTokenLifetimeMs;
+
+    if (isEnabled()) {
+      rotate();
+    }
+  }
+
+  public boolean isEnabled() {
+    return algorithm != null;
+  }
+
+  /**
+   * Makes the next key the signing one and returns its {@code kid}.
+   */
+  public synchronized String rotate() {
+    if (!isEnabled()) {
+      throw new IllegalStateException("Tokens are signed with HS512, there is no key to rotate");
+    }
+    long now = System.currentTimeMillis();
+    snapshot = StringUtils.hasLength(keyStorePath) ? load(now) : generate(now);
+    logger.info("JWT signing key is now {}", snapshot.active.getKid());
+    return snapshot.active.getKid();
+  }
+
+  public byte[] getJwks() {
+    return snapshot.jwks;
+  }
+
+  public String getJwksETag() {
+    return snapshot.etag;
+  }
+
+  JwtSigningKey signingKey() {
+    Snapshot current = snapshot;
+    if (rotationMs > 0 && !StringUtils.hasLength(keyStorePath)
+        && System.currentTimeMillis() - current.activatedAtMs >= rotationMs) {
+      synchronized (this) {
+        if (snapshot == current) {
+          rotate();
+        }
+      }
+      current = snapshot;
+    }
+    return current.active;
+  }
+
+  JwtSigningKey get(String kid) {
+    return kid == null ? null : snapshot.byKid.get(kid);
+  }
+
+  /**
+   * Finds the key whose encoded header is exactly {@code token[0, end)}, to skip parsing it.
+   */
+  JwtSigningKey matchHeader(String token, int end) {
+    for (JwtSigningKey key : snapshot.keys) {
+      String header = key.getHeader();
+      if (header.length() == end && token.startsWith(header)) {
+        return key;
+      }
+    }
+    return null;
+  }
+
+  private Snapshot generate(long now) {
+    Snapshot current = snapshot;
+    JwtSigningKey active = current.next != null ? current.next : newKey(now);
+
+    List<JwtSigningKey> keys = new ArrayList<>();
+    keys.add(active);
+    keys.add(newKey(now));
+    for (JwtSigningKey key : current.keys) {
+      if (key != current.next) {
+        JwtSigningKey retired = key.retire(now);
+        if (retired.getRetiredAtMs() + retentionMs > now) {
+          keys.add(retired);
+        }
+      }
+    }
+    return new Snapshot(keys, active, keys.get(1), now);
+  }
+
+  private JwtSigningKey newKey(long now) {
+    try {
+      KeyPair pair = algorithm.generateKeyPair();
+      return new JwtSigningKey(kid(pair.getPublic()), algorithm, pair.getPrivate(), pair.getPublic(), now);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot generate " + algorithm + " key", e);
+    }
+  }
+
+  private Snapshot load(long now) {
+    List<JwtSigningKey> keys = new ArrayList<>();
+    JwtSigningKey active = null;
+    try (InputStream in = new FileInputStream(keyStorePath)) {
+      KeyStore store = KeyStore.getInstance("PKCS12");
+      store.load(in, keyStorePassword);
+
+      Enumeration<String> aliases = store.aliases();
+      while (aliases.hasMoreElements()) {
+        String alias = aliases.nextElement();
+        if (!store.isKeyEntry(alias)) {
+          continue;
+        }
+        PublicKey publicKey = store.getCertificate(alias).getPublicKey();
+        if (!algorithm.getKeyType().equals(publicKey.getAlgorithm())) {
+          logger.warn("Ignoring key {}: {} key for {} tokens", alias, publicKey.getAlgorithm(), algorithm);
+          continue;
+        }
+        PrivateKey privateKey = (PrivateKey) store.getKey(alias, keyStorePassword);
+        JwtSigningKey key = new JwtSigningKey(alias, algorithm, privateKey, publicKey,
+            store.getCreationDate(alias).getTime());
+        keys.add(key);
+        if (active == null || key.getCreatedAtMs() > active.getCreatedAtMs()) {
+          active = key;
+        }
+      }
+    } catch (IOException | GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot load JWT keys from " + keyStorePath, e);
+    }
+    if (active == null) {
+      throw new IllegalStateException("No " + algorithm + " key in " + keyStorePath);
+    }
+
+    // Only the most recent entry signs; the others stay in the ring while they are in the store
+    List<JwtSigningKey> ordered = new ArrayList<>(keys.size());
+    ordered.add(active);
+    for (JwtSigningKey key : keys) {
+      if (key != active) {
+        ordered.add(key.retire(now));
+      }
+    }
+    return new Snapshot(ordered, active, null, now);
+  }
+
+  private static String kid(PublicKey publicKey) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(publicKey.getEncoded());
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 9));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Snapshot {
+    private static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), null, null, 0);
+
+    private final List<JwtSigningKey> keys;
+
+    private final Map<String, JwtSigningKey> byKid;
+
+    private final JwtSigningKey active;
+
+    private final JwtSigningKey next;
+
+    private final long activatedAtMs;
+
+    private final byte[] jwks;
+
+    private final String etag;
+
+    private Snapshot(List<JwtSigningKey> keys, JwtSigningKey active, JwtSigningKey next, long activatedAtMs) {
+      this.keys = keys;
+      this.byKid = new HashMap<>(keys.size() * 2);
+      for (JwtSigningKey key : keys) {
+        byKid.put(key.getKid(), key);
+      }
+      this.active = active;
+      this.next = next;
+      this.activatedAtMs = activatedAtMs;
+      this.jwks = JwtSigningKey.toJwks(keys, JSON);
+      this.etag = '"' + Integer.toHexString(Arrays.hashCode(jwks)) + '"';
+    }
+  }
+}
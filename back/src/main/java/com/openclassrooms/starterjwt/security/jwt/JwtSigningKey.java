@@ -0,0 +1,107 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Base64;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * One asymmetric key of the {@link JwtKeyRing}, with the encoded JWS header its tokens start with.
+ */
+final class JwtSigningKey {
+  private final String kid;
+
+  private final JwtAlgorithm algorithm;
+
+  private final PrivateKey privateKey;
+
+  private final PublicKey publicKey;
+
+  private final String header;
+
+  private final long createdAtMs;
+
+  private final long retiredAtMs;
+
+  JwtSigningKey(String kid, JwtAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey, long createdAtMs) {
+    this(kid, algorithm, privateKey, publicKey, createdAtMs, Long.MAX_VALUE);
+  }
+
+  private JwtSigningKey(String kid, JwtAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey,
+                        long createdAtMs, long retiredAtMs) {
+    this.kid = kid;
+    this.algorithm = algorithm;
+    this.privateKey = privateKey;
+    this.publicKey = publicKey;
+    this.createdAtMs = createdAtMs;
+    this.retiredAtMs = retiredAtMs;
+    this.header = Base64.getUrlEncoder().withoutPadding().encodeToString(
+        ("{\"alg\":\"" + algorithm.name() + "\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns a copy that no longer signs, kept only to verify the tokens it already signed.
+   */
+  JwtSigningKey retire(long nowMs) {
+    return retiredAtMs <= nowMs ? this : new JwtSigningKey(kid, algorithm, null, publicKey, createdAtMs, nowMs);
+  }
+
+  String getKid() {
+    return kid;
+  }
+
+  JwtAlgorithm getAlgorithm() {
+    return algorithm;
+  }
+
+  PrivateKey getPrivateKey() {
+    return privateKey;
+  }
+
+  PublicKey getPublicKey() {
+    return publicKey;
+  }
+
+  String getHeader() {
+    return header;
+  }
+
+  long getCreatedAtMs() {
+    return createdAtMs;
+  }
+
+  long getRetiredAtMs() {
+    return retiredAtMs;
+  }
+
+  void writeJwk(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("kty", algorithm.getKeyType());
+    generator.writeStringField("kid", kid);
+    generator.writeStringField("use", "sig");
+    generator.writeStringField("alg", algorithm.name());
+    algorithm.writeJwkFields(generator, publicKey);
+    generator.writeEndObject();
+  }
+
+  static byte[] toJwks(Iterable<JwtSigningKey> keys, JsonFactory json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    try (JsonGenerator generator = json.createGenerator(out)) {
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("keys");
+      for (JwtSigningKey key : keys) {
+        key.writeJwk(generator);
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serialize JWKS", e);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,441 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.jsonwebtoken.impl.TextCodec;
+
+/**
+ * Signing and verification of compact JWS tokens.
+ *
+ * Tokens are signed with the active key of the {@link JwtKeyRing} (RS256 or ES256, with a {@code kid}
+ * header), or with HS512 when the ring is disabled. The HS512 key is derived once, exactly as jjwt derived
+ * it from {@code oc.app.jwtSecret}, so tokens issued before this engine keep verifying. Once the ring is
+ * enabled, HS512 tokens are only accepted until {@code oc.app.jwtHs512AcceptedUntil}, an ISO instant left
+ * empty by default: anyone knowing the shared secret could otherwise keep forging tokens. Setting it one
+ * refresh token lifetime after the switch lets sessions opened before it finish.
+ *
+ * Each thread reuses its own {@link Mac}, {@link Signature} instances and scratch buffers, and claims are
+ * read with a streaming parser instead of being materialized into a map.
+ */
+@Component
+public class JwtTokenEngine {
+  private static final String ALGORITHM = "HS512";
+
+  private static final String HEADER = Base64.getUrlEncoder().withoutPadding()
+      .encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.US_ASCII));
+
+  private static final int SIGNATURE_LENGTH = 64;
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private final SecretKey key;
+
+  private final ThreadLocal<Mac> mac;
+
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  private final ThreadLocal<Signature[]> signatures =
+      ThreadLocal.withInitial(() -> new Signature[JwtAlgorithm.values().length]);
+
+  private final JwtKeyRing keyRing;
+
+  /**
+   * Instant from which HS512 tokens are rejected; never while HS512 is the signing algorithm.
+   */
+  private final long hs512RejectedFromMs;
+
+  /**
+   * Engine signing with HS512 only.
+   */
+  public JwtTokenEngine(String jwtSecret) {
+    this(jwtSecret, null, "");
+  }
+
+  /**
+   * Engine rejecting HS512 tokens as soon as the key ring is enabled.
+   */
+  public JwtTokenEngine(String jwtSecret, JwtKeyRing keyRing) {
+    this(jwtSecret, keyRing, "");
+  }
+
+  @Autowired
+  public JwtTokenEngine(@Value("${oc.app.jwtSecret}") String jwtSecret, JwtKeyRing keyRing,
+                        @Value("${oc.app.jwtHs512AcceptedUntil:}") String hs512AcceptedUntil) {
+    this.key = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), "HmacSHA512");
+    this.mac = ThreadLocal.withInitial(this::newMac);
+    this.keyRing = keyRing;
+    if (keyRing == null || !keyRing.isEnabled()) {
+      this.hs512RejectedFromMs = Long.MAX_VALUE;
+    } else if (StringUtils.hasLength(hs512AcceptedUntil)) {
+      this.hs512RejectedFromMs = Instant.parse(hs512AcceptedUntil).toEpochMilli();
+    } else {
+      this.hs512RejectedFromMs = Long.MIN_VALUE;
+    }
+  }
+
+  public String sign(JwtClaims claims) {
+    JwtSigningKey signingKey = keyRing != null && keyRing.isEnabled() ? keyRing.signingKey() : null;
+    String payload = encode(writePayload(claims));
+    Scratch buffers = scratch.get();
+
+    if (signingKey != null) {
+      String signingInput = signingKey.getHeader() + '.' + payload;
+      return signingInput + '.' + encode(signWithKey(signingKey, signingInput, buffers));
+    }
+
+    String signingInput = HEADER + '.' + payload;
+    byte[] signature = new byte[SIGNATURE_LENGTH];
+    computeMac(signingInput, signingInput.length(), buffers, signature);
+
+    return signingInput + '.' + encode(signature);
+  }
+
+  public JwtVerification verify(String token) {
+    int firstDot = token.indexOf('.');
+    int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+    if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+      return JwtVerification.invalid(JwtFailure.MALFORMED);
+    }
+    if (secondDot == token.length() - 1) {
+      return JwtVerification.invalid(JwtFailure.UNSUPPORTED);
+    }
+
+    Scratch buffers = scratch.get();
+
+    if (!token.startsWith(HEADER) || firstDot != HEADER.length()) {
+      JwtSigningKey signingKey = keyRing != null ? keyRing.matchHeader(token, firstDot) : null;
+      if (signingKey == null) {
+        JwtFailure failure = checkHeader(token, firstDot, buffers);
+        if (failure != null) {
+          return JwtVerification.invalid(failure);
+        }
+        if (buffers.algorithm != null) {
+          // Asymmetric token: its key is looked up by kid, and must have been issued for that algorithm
+          signingKey = keyRing != null ? keyRing.get(buffers.kid) : null;
+          if (signingKey == null || signingKey.getAlgorithm() != buffers.algorithm) {
+            return JwtVerification.invalid(JwtFailure.INVALID_SIGNATURE);
+          }
+        }
+      }
+      if (signingKey != null) {
+        JwtFailure failure = verifyWithKey(signingKey, token, secondDot, buffers);
+        if (failure != null) {
+          return JwtVerification.invalid(failure);
+        }
+        return readClaims(token, firstDot, secondDot, buffers);
+      }
+    }
+
+    if (System.currentTimeMillis() >= hs512RejectedFromMs) {
+      return JwtVerification.invalid(JwtFailure.UNSUPPORTED);
+    }
+
+    int signatureLength = Base64Url.decode(token, secondDot + 1, token.length(), buffers.ensure(token.length() - secondDot));
+    if (signatureLength != SIGNATURE_LENGTH) {
+      return JwtVerification.invalid(signatureLength < 0 ? JwtFailure.MALFORMED : JwtFailure.INVALID_SIGNATURE);
+    }
+    System.arraycopy(buffers.bytes, 0, buffers.expected, 0, SIGNATURE_LENGTH);
+
+    if (!computeMac(token, secondDot, buffers, buffers.actual)) {
+      return JwtVerification.invalid(JwtFailure.MALFORMED);
+    }
+    if (!constantTimeEquals(buffers.expected, buffers.actual)) {
+      return JwtVerification.invalid(JwtFailure.INVALID_SIGNATURE);
+    }
+
+    return readClaims(token, firstDot, secondDot, buffers);
+  }
+
+  private JwtVerification readClaims(String token, int firstDot, int secondDot, Scratch buffers) {
+    byte[] payload = buffers.ensure(Base64Url.decodedLength(secondDot - firstDot));
+    int payloadLength = Base64Url.decode(token, firstDot + 1, secondDot, payload);
+    if (payloadLength < 0) {
+      return JwtVerification.invalid(JwtFailure.MALFORMED);
+    }
+
+    JwtClaims claims = readPayload(payload, payloadLength);
+    if (claims == null) {
+      return JwtVerification.invalid(JwtFailure.MALFORMED);
+    }
+    if (System.currentTimeMillis() > claims.getExpirationMs()) {
+      return JwtVerification.invalid(JwtFailure.EXPIRED);
+    }
+
+    return JwtVerification.valid(claims);
+  }
+
+  private Mac newMac() {
+    try {
+      Mac instance = Mac.getInstance("HmacSHA512");
+      instance.init(key);
+      return instance;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot initialize HS512 signer", e);
+    }
+  }
+
+  /**
+   * Copies {@code input[0, end)} into the scratch buffer; returns null on non-ASCII input.
+   */
+  private static byte[] toAscii(String input, int end, Scratch buffers) {
+    byte[] bytes = buffers.ensure(end);
+    for (int i = 0; i < end; i++) {
+      char c = input.charAt(i);
+      if (c > 127) {
+        return null;
+      }
+      bytes[i] = (byte) c;
+    }
+    return bytes;
+  }
+
+  private Signature signature(JwtAlgorithm algorithm) {
+    Signature[] instances = signatures.get();
+    Signature instance = instances[algorithm.ordinal()];
+    if (instance == null) {
+      instance = algorithm.newSignature();
+      instances[algorithm.ordinal()] = instance;
+    }
+    return instance;
+  }
+
+  private byte[] signWithKey(JwtSigningKey signingKey, String signingInput, Scratch buffers) {
+    byte[] bytes = toAscii(signingInput, signingInput.length(), buffers);
+    try {
+      Signature instance = signature(signingKey.getAlgorithm());
+      instance.initSign(signingKey.getPrivateKey());
+      instance.update(bytes, 0, signingInput.length());
+      return signingKey.getAlgorithm().toJws(instance.sign());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot sign JWT with key " + signingKey.getKid(), e);
+    }
+  }
+
+  private JwtFailure verifyWithKey(JwtSigningKey signingKey, String token, int secondDot, Scratch buffers) {
+    byte[] encoded = buffers.ensureSignature(token.length() - secondDot);
+    int signatureLength = Base64Url.decode(token, secondDot + 1, token.length(), encoded);
+    if (signatureLength < 0) {
+      return JwtFailure.MALFORMED;
+    }
+    byte[] signature = signingKey.getAlgorithm().toJca(encoded, signatureLength);
+    if (signature == null) {
+      return JwtFailure.INVALID_SIGNATURE;
+    }
+
+    byte[] bytes = toAscii(token, secondDot, buffers);
+    if (bytes == null) {
+      return JwtFailure.MALFORMED;
+    }
+    try {
+      Signature instance = signature(signingKey.getAlgorithm());
+      instance.initVerify(signingKey.getPublicKey());
+      instance.update(bytes, 0, secondDot);
+      return instance.verify(signature) ? null : JwtFailure.INVALID_SIGNATURE;
+    } catch (GeneralSecurityException e) {
+      return JwtFailure.INVALID_SIGNATURE;
+    }
+  }
+
+  /**
+   * Computes the HMAC of {@code input[0, end)} into {@code out}; returns false on non-ASCII input.
+   */
+  private boolean computeMac(String input, int end, Scratch buffers, byte[] out) {
+    byte[] bytes = toAscii(input, end, buffers);
+    if (bytes == null) {
+      return false;
+    }
+
+    Mac instance = mac.get();
+    instance.update(bytes, 0, end);
+    try {
+      instance.doFinal(out, 0);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    return true;
+  }
+
+  /**
+   * Parses the header, leaving its asymmetric algorithm and {@code kid} in the buffers; the algorithm is
+   * null for HS512.
+   */
+  private JwtFailure checkHeader(String token, int end, Scratch buffers) {
+    byte[] header = buffers.ensure(Base64Url.decodedLength(end));
+    int length = Base64Url.decode(token, 0, end, header);
+    if (length < 0) {
+      return JwtFailure.MALFORMED;
+    }
+
+    String alg = null;
+    String kid = null;
+    try (JsonParser parser = JSON.createParser(header, 0, length)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return JwtFailure.MALFORMED;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("alg".equals(field)) {
+          alg = parser.getValueAsString();
+        } else if ("kid".equals(field)) {
+          kid = parser.getValueAsString();
+        } else if ("zip".equals(field) || "crit".equals(field)) {
+          return JwtFailure.UNSUPPORTED;
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      return JwtFailure.MALFORMED;
+    }
+
+    buffers.kid = kid;
+    buffers.algorithm = JwtAlgorithm.fromName(alg);
+    return ALGORITHM.equals(alg) || buffers.algorithm != null ? null : JwtFailure.UNSUPPORTED;
+  }
+
+  private JwtClaims readPayload(byte[] payload, int length) {
+    JwtClaims.JwtClaimsBuilder claims = JwtClaims.builder().expirationMs(Long.MAX_VALUE);
+
+    try (JsonParser parser = JSON.createParser(payload, 0, length)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (value == JsonToken.VALUE_NULL) {
+          continue;
+        }
+        switch (field) {
+          case "jti":
+            claims.tokenId(parser.getValueAsString());
+            break;
+          case "typ":
+            claims.type(parser.getValueAsString());
+            break;
+          case "sub":
+            claims.subject(parser.getValueAsString());
+            break;
+          case JwtUtils.CLAIM_USER_ID:
+            claims.userId(parser.getValueAsLong());
+            break;
+          case JwtUtils.CLAIM_FIRST_NAME:
+            claims.firstName(parser.getValueAsString());
+            break;
+          case JwtUtils.CLAIM_LAST_NAME:
+            claims.lastName(parser.getValueAsString());
+            break;
+          case JwtUtils.CLAIM_ADMIN:
+            claims.admin(parser.getValueAsBoolean());
+            break;
+          case "iat":
+            claims.issuedAtMs(parser.getValueAsLong() * 1000L);
+            break;
+          case "exp":
+            claims.expirationMs(parser.getValueAsLong() * 1000L);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      return null;
+    }
+
+    return claims.build();
+  }
+
+  private byte[] writePayload(JwtClaims claims) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    try (JsonGenerator generator = JSON.createGenerator(out)) {
+      generator.writeStartObject();
+      if (claims.getTokenId() != null) {
+        generator.writeStringField("jti", claims.getTokenId());
+      }
+      if (claims.getType() != null) {
+        generator.writeStringField("typ", claims.getType());
+      }
+      generator.writeStringField("sub", claims.getSubject());
+      if (claims.getUserId() != null) {
+        generator.writeNumberField(JwtUtils.CLAIM_USER_ID, claims.getUserId());
+      }
+      if (claims.getFirstName() != null) {
+        generator.writeStringField(JwtUtils.CLAIM_FIRST_NAME, claims.getFirstName());
+      }
+      if (claims.getLastName() != null) {
+        generator.writeStringField(JwtUtils.CLAIM_LAST_NAME, claims.getLastName());
+      }
+      generator.writeBooleanField(JwtUtils.CLAIM_ADMIN, claims.isAdmin());
+      generator.writeNumberField("iat", claims.getIssuedAtMs() / 1000L);
+      generator.writeNumberField("exp", claims.getExpirationMs() / 1000L);
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serialize JWT claims", e);
+    }
+    return out.toByteArray();
+  }
+
+  private static String encode(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private static boolean constantTimeEquals(byte[] a, byte[] b) {
+    int diff = 0;
+    for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+      diff |= a[i] ^ b[i];
+    }
+    return diff == 0;
+  }
+
+  /**
+   * Per-thread buffers reused across verifications.
+   */
+  private static final class Scratch {
+    private byte[] bytes = new byte[1024];
+
+    private final byte[] expected = new byte[SIGNATURE_LENGTH];
+
+    private final byte[] actual = new byte[SIGNATURE_LENGTH];
+
+    private byte[] signature = new byte[512];
+
+    private JwtAlgorithm algorithm;
+
+    private String kid;
+
+    private byte[] ensure(int length) {
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      return bytes;
+    }
+
+    private byte[] ensureSignature(int length) {
+      if (signature.length < length) {
+        signature = new byte[length];
+      }
+      return signature;
+    }
+  }
+}
@@ -1,59 +1,129 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
-import java.util.Date;
+import java.util.UUID;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
-import io.jsonwebtoken.*;
-
 @Component
 public class JwtUtils {
-  private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
-
-  @Value("${oc.app.jwtSecret}")
-  private String jwtSecret;
+  static final String CLAIM_USER_ID = "id";
+  static final String CLAIM_FIRST_NAME = "firstName";
+  static final String CLAIM_LAST_NAME = "lastName";
+  static final String CLAIM_ADMIN = "admin";
 
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  @Value("${oc.app.jwtRefreshExpirationMs}")
+  private long jwtRefreshExpirationMs;
+
+  @Value("${oc.app.jwtEventsTicketMs:30000}")
+  private long jwtEventsTicketMs;
+
+  @Autowired
+  private JwtTokenEngine jwtTokenEngine;
+
+  @Autowired
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Autowired
+  private TokenRevocationList tokenRevocationList;
+
+  @Autowired
+  private AuthFailureMonitor authFailureMonitor;
+
   public String generateJwtToken(Authentication authentication) {
+    return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+  }
+
+  public String generateJwtToken(UserDetailsImpl userPrincipal) {
+    return generate(userPrincipal, JwtClaims.TYPE_ACCESS, jwtExpirationMs);
+  }
 
-    UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+  /**
+   * Issues a long-lived token only accepted by the refresh endpoint, never as a bearer token.
+   */
+  public String generateRefreshToken(UserDetailsImpl userPrincipal) {
+    return generate(userPrincipal, JwtClaims.TYPE_REFRESH, jwtRefreshExpirationMs);
+  }
+
+  /**
+   * Issues a short-lived token that opens the session event stream once. Browsers' EventSource cannot set
+   * an Authorization header, so it is passed in the query string, where it may end up in access logs.
+   */
+  public String generateEventsTicket(UserDetailsImpl userPrincipal) {
+    return generate(userPrincipal, JwtClaims.TYPE_EVENTS_TICKET, jwtEventsTicketMs);
+  }
 
-    return Jwts.builder()
-        .setSubject((userPrincipal.getUsername()))
-        .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
-        .compact();
+  public long getEventsTicketMs() {
+    return jwtEventsTicketMs;
+  }
+
+  /**
+   * Verifies the token once and returns either its claims or the reason it was rejected. Successful
+   * verifications are served from the {@link VerifiedTokenCache} until the token expires.
+   */
+  public JwtVerification verify(String token) {
+    if (!StringUtils.hasLength(token)) {
+      authFailureMonitor.tokenRejected(JwtFailure.EMPTY);
+      return JwtVerification.invalid(JwtFailure.EMPTY);
+    }
+
+    JwtVerification verification = verifiedTokenCache.getOrVerify(token, this::parse);
+    // Checked after the cache so that a revocation also applies to tokens verified before it
+    if (verification.isValid() && tokenRevocationList.isRevoked(verification.getClaims())) {
+      authFailureMonitor.tokenRejected(JwtFailure.REVOKED);
+      return JwtVerification.invalid(JwtFailure.REVOKED);
+    }
+    return verification;
+  }
+
+  /**
+   * Rejects this token from now on, until it expires.
+   *
+   * @return true when this call revoked it, false when another one did first
+   */
+  public boolean revoke(JwtClaims claims) {
+    return tokenRevocationList.revokeToken(claims.getTokenId(), claims.getExpirationMs());
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    JwtVerification verification = verify(token);
+    return verification.isValid() ? verification.getClaims().getSubject() : null;
   }
 
   public boolean validateJwtToken(String authToken) {
-    try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
-    } catch (SignatureException e) {
-      logger.error("Invalid JWT signature: {}", e.getMessage());
-    } catch (MalformedJwtException e) {
-      logger.error("Invalid JWT token: {}", e.getMessage());
-    } catch (ExpiredJwtException e) {
-      logger.error("JWT token is expired: {}", e.getMessage());
-    } catch (UnsupportedJwtException e) {
-      logger.error("JWT token is unsupported: {}", e.getMessage());
-    } catch (IllegalArgumentException e) {
-      logger.error("JWT claims string is empty: {}", e.getMessage());
-    }
+    return verify(authToken).isValid();
+  }
+
+  private String generate(UserDetailsImpl userPrincipal, String type, long lifetimeMs) {
+    long now = System.currentTimeMillis();
 
-    return false;
+    return jwtTokenEngine.sign(JwtClaims
+            .builder()
+            .tokenId(UUID.randomUUID().toString())
+            .type(type)
+            .subject(userPrincipal.getUsername())
+            .userId(userPrincipal.getId())
+            .firstName(userPrincipal.getFirstName())
+            .lastName(userPrincipal.getLastName())
+            .admin(Boolean.TRUE.equals(userPrincipal.getAdmin()))
+            .issuedAtMs(now)
+            .expirationMs(now + lifetimeMs)
+            .build());
+  }
+
+  private JwtVerification parse(String token) {
+    JwtVerification verification = jwtTokenEngine.verify(token);
+    if (!verification.isValid()) {
+      authFailureMonitor.tokenRejected(verification.getFailure());
+    }
+    return verification;
   }
 }
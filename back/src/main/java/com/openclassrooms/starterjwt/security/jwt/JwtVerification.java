@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+/**
+ * Outcome of a single token verification: either the verified claims or the reason of the rejection.
+ */
+public final class JwtVerification {
+  private final JwtClaims claims;
+
+  private final JwtFailure failure;
+
+  private JwtVerification(JwtClaims claims, JwtFailure failure) {
+    this.claims = claims;
+    this.failure = failure;
+  }
+
+  public static JwtVerification valid(JwtClaims claims) {
+    return new JwtVerification(claims, null);
+  }
+
+  public static JwtVerification invalid(JwtFailure failure) {
+    return new JwtVerification(null, failure);
+  }
+
+  public boolean isValid() {
+    return claims != null;
+  }
+
+  public JwtClaims getClaims() {
+    return claims;
+  }
+
+  public JwtFailure getFailure() {
+    return failure;
+  }
+}
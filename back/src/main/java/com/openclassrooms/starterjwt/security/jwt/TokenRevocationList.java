@@ -0,0 +1,169 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory revocation of tokens, consulted on every authenticated request without any SQL.
+ *
+ * Two kinds of entries are kept: single tokens, by token id, and users, whose tokens issued up to the
+ * revocation instant are all rejected. A Bloom filter answers the common "not revoked" case with a few
+ * bit reads; only its rare positives fall through to the exact maps. Entries are dropped once every
+ * token they could match has expired, and the filter is then rebuilt from the remaining entries.
+ *
+ * The list is local to this node, and is lost on restart, like the tokens' own short lifetime.
+ */
+@Component
+public class TokenRevocationList {
+  private static final int BLOOM_BITS = 1 << 20;
+
+  private static final int BLOOM_HASHES = 4;
+
+  private static final long USER_SEED = 0x5DEECE66DL;
+
+  private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+  private final Map<Long, Revocation> revokedUsers = new ConcurrentHashMap<>();
+
+  private final long maxTokenLifetimeMs;
+
+  private final long purgeIntervalMs;
+
+  private volatile AtomicLongArray bloom = new AtomicLongArray(BLOOM_BITS / 64);
+
+  private long lastPurgeMs = System.currentTimeMillis();
+
+  public TokenRevocationList(@Value("${oc.app.jwtRefreshExpirationMs}") long maxTokenLifetimeMs,
+                             @Value("${oc.app.jwtRevocationPurgeIntervalMs:60000}") long purgeIntervalMs) {
+    this.maxTokenLifetimeMs = maxTokenLifetimeMs;
+    this.purgeIntervalMs = purgeIntervalMs;
+  }
+
+  public boolean isRevoked(JwtClaims claims) {
+    AtomicLongArray filter = bloom;
+
+    String tokenId = claims.getTokenId();
+    if (tokenId != null && mightContain(filter, hash(tokenId))) {
+      Long expiresAtMs = revokedTokens.get(tokenId);
+      if (expiresAtMs != null) {
+        return true;
+      }
+    }
+
+    Long userId = claims.getUserId();
+    if (userId != null && mightContain(filter, hash(userId))) {
+      Revocation revocation = revokedUsers.get(userId);
+      return revocation != null && claims.getIssuedAtMs() <= revocation.cutoffMs;
+    }
+
+    return false;
+  }
+
+  /**
+   * Rejects the token with this id until it expires on its own.
+   *
+   * @return true when this call revoked the token, false when it was already revoked, has no id or has
+   *     expired; of concurrent calls for one token, exactly one wins, which is how a refresh token is
+   *     spent only once
+   */
+  public synchronized boolean revokeToken(String tokenId, long expiresAtMs) {
+    purgeIfDue();
+    if (tokenId == null || expiresAtMs <= System.currentTimeMillis()) {
+      return false;
+    }
+    if (revokedTokens.putIfAbsent(tokenId, expiresAtMs) != null) {
+      return false;
+    }
+    add(bloom, hash(tokenId));
+    return true;
+  }
+
+  /**
+   * Rejects every token of the user issued up to now.
+   */
+  public synchronized void revokeUser(long userId) {
+    purgeIfDue();
+    long now = System.currentTimeMillis();
+    revokedUsers.put(userId, new Revocation(now, now + maxTokenLifetimeMs));
+    add(bloom, hash(userId));
+  }
+
+  int size() {
+    return revokedTokens.size() + revokedUsers.size();
+  }
+
+  private void purgeIfDue() {
+    long now = System.currentTimeMillis();
+    if (now - lastPurgeMs < purgeIntervalMs) {
+      return;
+    }
+    lastPurgeMs = now;
+
+    revokedTokens.values().removeIf(expiresAtMs -> expiresAtMs <= now);
+    revokedUsers.values().removeIf(revocation -> revocation.expiresAtMs <= now);
+
+    AtomicLongArray rebuilt = new AtomicLongArray(BLOOM_BITS / 64);
+    revokedTokens.keySet().forEach(tokenId -> add(rebuilt, hash(tokenId)));
+    revokedUsers.keySet().forEach(userId -> add(rebuilt, hash(userId)));
+    bloom = rebuilt;
+  }
+
+  private static void add(AtomicLongArray filter, long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+      long mask = 1L << bit;
+      int word = bit >>> 6;
+      long current;
+      do {
+        current = filter.get(word);
+      } while ((current & mask) == 0 && !filter.compareAndSet(word, current, current | mask));
+    }
+  }
+
+  private static boolean mightContain(AtomicLongArray filter, long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+      if ((filter.get(bit >>> 6) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long hash(long key) {
+    return mix(key ^ USER_SEED);
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static final class Revocation {
+    private final long cutoffMs;
+
+    private final long expiresAtMs;
+
+    private Revocation(long cutoffMs, long expiresAtMs) {
+      this.cutoffMs = cutoffMs;
+      this.expiresAtMs = expiresAtMs;
+    }
+  }
+}
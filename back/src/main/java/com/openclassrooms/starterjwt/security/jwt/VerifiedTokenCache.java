@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of successful token verifications, keyed by the SHA-256 digest of the token so that
+ * bearer tokens themselves are never retained. An entry lives until the token expires or the cache
+ * period elapses, whichever comes first. Rejections are never cached.
+ */
+@Component
+public class VerifiedTokenCache {
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  private final Map<TokenKey, Entry> entries = new ConcurrentHashMap<>();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final int maxSize;
+
+  private final long ttlMs;
+
+  public VerifiedTokenCache(@Value("${oc.app.jwtCacheMaxSize:10000}") int maxSize,
+                            @Value("${oc.app.jwtCacheTtlMs:300000}") long ttlMs) {
+    this.maxSize = maxSize;
+    this.ttlMs = ttlMs;
+  }
+
+  /**
+   * Returns the cached verification of the token, or runs the verifier and caches its result when valid.
+   */
+  public JwtVerification getOrVerify(String token, Function<String, JwtVerification> verifier) {
+    if (maxSize <= 0) {
+      return verifier.apply(token);
+    }
+
+    TokenKey key = new TokenKey(DIGEST.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    long now = System.currentTimeMillis();
+
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      if (entry.expiresAtMs > now) {
+        return entry.verification;
+      }
+      entries.remove(key, entry);
+    }
+
+    JwtVerification verification = verifier.apply(token);
+    if (verification.isValid()) {
+      long expiresAtMs = Math.min(verification.getClaims().getExpirationMs(), now + ttlMs);
+      if (expiresAtMs > now) {
+        if (entries.size() >= maxSize) {
+          evict(now);
+        }
+        entries.put(key, new Entry(verification, expiresAtMs));
+      }
+    }
+
+    return verification;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Drops expired entries and, if the cache is still full, an arbitrary tenth of it. Only one thread
+   * evicts at a time; the others proceed and may briefly overshoot the bound.
+   */
+  private void evict(long now) {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      entries.values().removeIf(entry -> entry.expiresAtMs <= now);
+
+      int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+      Iterator<TokenKey> keys = entries.keySet().iterator();
+      while (excess-- > 0 && keys.hasNext()) {
+        keys.next();
+        keys.remove();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static final class Entry {
+    private final JwtVerification verification;
+
+    private final long expiresAtMs;
+
+    private Entry(JwtVerification verification, long expiresAtMs) {
+      this.verification = verification;
+      this.expiresAtMs = expiresAtMs;
+    }
+  }
+
+  private static final class TokenKey {
+    private final byte[] digest;
+
+    private final int hash;
+
+    private TokenKey(byte[] digest) {
+      this.digest = digest;
+      this.hash = Arrays.hashCode(digest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof TokenKey && Arrays.equals(digest, ((TokenKey) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.security.password;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Picks the highest BCrypt cost whose hashing time on the current host fits a latency budget. Each extra
+ * cost unit doubles the work, so probing stops as soon as the next unit would overshoot the budget.
+ */
+public final class BCryptStrengthCalibrator {
+  private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+  private static final int SAMPLES = 3;
+
+  private BCryptStrengthCalibrator() {
+  }
+
+  public static int calibrate(long targetMs, int minStrength, int maxStrength) {
+    String salt = BCrypt.gensalt(4);
+    BCrypt.hashpw("calibration", salt);
+
+    int strength = minStrength;
+    long elapsedMs = measure(strength);
+    while (strength < maxStrength && elapsedMs * 2 <= targetMs) {
+      strength++;
+      elapsedMs = measure(strength);
+    }
+    if (elapsedMs > targetMs && strength > minStrength) {
+      strength--;
+    }
+
+    logger.info("BCrypt strength calibrated to {} ({} ms per hash, budget {} ms)", strength, elapsedMs, targetMs);
+    return strength;
+  }
+
+  private static long measure(int strength) {
+    String salt = BCrypt.gensalt(strength);
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < SAMPLES; i++) {
+      long start = System.nanoTime();
+      BCrypt.hashpw("calibration", salt);
+      best = Math.min(best, (System.nanoTime() - start) / 1_000_000L);
+    }
+    return best;
+  }
+}
@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.security.password;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs the hashing and verification of a delegate encoder on a dedicated, size-limited pool, so a burst
+ * of logins cannot occupy every request thread with BCrypt work. When the pool and its queue are full,
+ * the call is refused before anything is submitted; when the result takes longer than {@code maxWaitMs},
+ * the caller gives up. Both fail fast with a {@link ServiceUnavailableException} instead of piling up.
+ *
+ * <p>A task given up while still queued is dropped without hashing. BCrypt does not check for
+ * interruption, so one already running finishes its hash on the pool: at most {@code threads} hashes
+ * outlive their callers, and the queue bound is what caps the work accepted.</p>
+ *
+ * <p>The meters below are published at {@code /actuator/metrics}, for administrators only.</p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+  private final PasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final long maxWaitMs;
+
+  private final long retryAfterSeconds;
+
+  private final Timer encodeTimer;
+
+  private final Timer matchesTimer;
+
+  private final Counter rejected;
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMs,
+                                long retryAfterSeconds, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.maxWaitMs = maxWaitMs;
+    this.retryAfterSeconds = retryAfterSeconds;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+    Gauge.builder("auth.password.hashing.queue", executor, e -> e.getQueue().size())
+        .description("Password hashing tasks waiting for a thread")
+        .register(meterRegistry);
+    Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+        .description("Password hashing tasks running")
+        .register(meterRegistry);
+    this.encodeTimer = Timer.builder("auth.password.hashing")
+        .description("Password hashing latency, queue wait included")
+        .tag("operation", "encode")
+        .register(meterRegistry);
+    this.matchesTimer = Timer.builder("auth.password.hashing")
+        .description("Password hashing latency, queue wait included")
+        .tag("operation", "matches")
+        .register(meterRegistry);
+    this.rejected = Counter.builder("auth.password.hashing.rejected")
+        .description("Password hashing requests rejected because the pool was saturated")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return run(() -> delegate.encode(rawPassword), encodeTimer);
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  private <T> T run(Callable<T> task, Timer timer) {
+    Timer.Sample sample = Timer.start();
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new ServiceUnavailableException(retryAfterSeconds);
+    }
+
+    try {
+      return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // Frees the queue slot of a task not started yet; a hash in progress runs to its end
+      future.cancel(true);
+      rejected.increment();
+      throw new ServiceUnavailableException(retryAfterSeconds);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException(retryAfterSeconds);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      sample.stop(timer);
+    }
+  }
+
+  private static final class HashingThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -1,10 +1,12 @@
 package com.openclassrooms.starterjwt.security.services;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -13,12 +15,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @Getter
 public class UserDetailsImpl implements UserDetails {
   private static final long serialVersionUID = 1L;
 
+  public static final String ROLE_ADMIN = "ROLE_ADMIN";
+
+  private static final List<GrantedAuthority> ADMIN_AUTHORITIES =
+      Collections.singletonList(new SimpleGrantedAuthority(ROLE_ADMIN));
+
   private Long id;
 
   private String username;
@@ -33,7 +40,7 @@ public class UserDetailsImpl implements UserDetails {
   private String password;  
   
   public Collection<? extends GrantedAuthority> getAuthorities() {        
-      return new HashSet<GrantedAuthority>();
+      return Boolean.TRUE.equals(admin) ? ADMIN_AUTHORITIES : Collections.emptyList();
   }
 
   @Override
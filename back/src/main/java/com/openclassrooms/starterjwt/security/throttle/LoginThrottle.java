@@ -0,0 +1,101 @@
+package com.openclassrooms.starterjwt.security.throttle;
+
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Limits login attempts per email and per client address before any credential is checked, so a
+ * rejected attempt costs a couple of atomic operations instead of a database read and a BCrypt round.
+ *
+ * The address is the request's remote address. Behind the reverse proxy, that is the client's only with
+ * {@code server.forward-headers-strategy=native}, which has Tomcat take it from X-Forwarded-For when the
+ * request comes from a trusted proxy ({@code server.tomcat.remoteip.internal-proxies}); otherwise every
+ * client would share the proxy's budget.
+ */
+@Component
+public class LoginThrottle {
+  private final TokenBucketLimiter byEmail;
+
+  private final TokenBucketLimiter byAddress;
+
+  private final Counter throttledByEmail;
+
+  private final Counter throttledByAddress;
+
+  public LoginThrottle(@Value("${oc.app.loginThrottle.email.capacity}") int emailCapacity,
+                       @Value("${oc.app.loginThrottle.email.refillIntervalMs}") long emailRefillIntervalMs,
+                       @Value("${oc.app.loginThrottle.ip.capacity}") int addressCapacity,
+                       @Value("${oc.app.loginThrottle.ip.refillIntervalMs}") long addressRefillIntervalMs,
+                       @Value("${oc.app.loginThrottle.sweepIntervalMs:60000}") long sweepIntervalMs,
+                       MeterRegistry meterRegistry) {
+    this.byEmail = new TokenBucketLimiter(emailCapacity, emailRefillIntervalMs, sweepIntervalMs);
+    this.byAddress = new TokenBucketLimiter(addressCapacity, addressRefillIntervalMs, sweepIntervalMs);
+    this.throttledByEmail = Counter.builder("auth.login.throttled")
+        .description("Login attempts rejected before authentication")
+        .tag("key", "email")
+        .register(meterRegistry);
+    this.throttledByAddress = Counter.builder("auth.login.throttled")
+        .description("Login attempts rejected before authentication")
+        .tag("key", "ip")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Takes one attempt from the budget of the address and one from the budget of the email, or none when
+   * either is exhausted: an attempt refused for its email does not use up the budget shared by everyone
+   * behind the same address.
+   *
+   * @throws TooManyRequestsException when either budget is exhausted
+   */
+  public void acquire(String email, String address) {
+    long now = System.currentTimeMillis();
+    String key = normalize(email);
+
+    long waitMs = byAddress.waitMs(address, now);
+    if (waitMs > 0) {
+      throw throttled(throttledByAddress, waitMs);
+    }
+    waitMs = byEmail.waitMs(key, now);
+    if (waitMs > 0) {
+      throw throttled(throttledByEmail, waitMs);
+    }
+
+    // Checked above, but a concurrent attempt may have taken the last token since
+    waitMs = byAddress.tryAcquire(address, now);
+    if (waitMs > 0) {
+      throw throttled(throttledByAddress, waitMs);
+    }
+    waitMs = byEmail.tryAcquire(key, now);
+    if (waitMs > 0) {
+      byAddress.release(address);
+      throw throttled(throttledByEmail, waitMs);
+    }
+  }
+
+  /**
+   * Gives the full budget back to the email after a successful login.
+   */
+  public void succeeded(String email) {
+    byEmail.reset(normalize(email));
+  }
+
+  private static String normalize(String email) {
+    return email.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static TooManyRequestsException throttled(Counter counter, long waitMs) {
+    counter.increment();
+    return new TooManyRequestsException(toSeconds(waitMs));
+  }
+
+  private static long toSeconds(long waitMs) {
+    return (waitMs + 999) / 1000;
+  }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.starterjwt.security.throttle;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by an arbitrary string, holding up to {@code capacity} tokens and regaining one
+ * every {@code refillIntervalMs}.
+ *
+ * Each bucket is a single {@link AtomicLong} storing the instant at which it will be full again, so taking
+ * a token is one compare-and-set and never blocks. A bucket that is full again carries no information and
+ * is dropped by the next sweep, which keeps the map proportional to the keys seen recently.
+ */
+class TokenBucketLimiter {
+  private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+  private final long refillIntervalMs;
+
+  private final long burstMs;
+
+  private final long sweepIntervalMs;
+
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+
+  private volatile long nextSweepMs;
+
+  TokenBucketLimiter(int capacity, long refillIntervalMs, long sweepIntervalMs) {
+    this.refillIntervalMs = refillIntervalMs;
+    this.burstMs = capacity * refillIntervalMs;
+    this.sweepIntervalMs = sweepIntervalMs;
+  }
+
+  /**
+   * Takes a token from the bucket of the key.
+   *
+   * @return 0 when a token was taken, otherwise the milliseconds until one is available
+   */
+  long tryAcquire(String key, long nowMs) {
+    sweepIfDue(nowMs);
+
+    AtomicLong fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(nowMs));
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, nowMs) + refillIntervalMs;
+      long waitMs = next - nowMs - burstMs;
+      if (waitMs > 0) {
+        return waitMs;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Milliseconds until the bucket of the key has a token, 0 when it has one now. Takes nothing.
+   */
+  long waitMs(String key, long nowMs) {
+    AtomicLong fullAt = buckets.get(key);
+    if (fullAt == null) {
+      return 0;
+    }
+    return Math.max(0, Math.max(fullAt.get(), nowMs) + refillIntervalMs - nowMs - burstMs);
+  }
+
+  /**
+   * Gives back a token taken by {@link #tryAcquire}. A bucket swept since is already full.
+   */
+  void release(String key) {
+    AtomicLong fullAt = buckets.get(key);
+    if (fullAt != null) {
+      fullAt.addAndGet(-refillIntervalMs);
+    }
+  }
+
+  /**
+   * Refills the bucket of the key.
+   */
+  void reset(String key) {
+    buckets.remove(key);
+  }
+
+  int size() {
+    return buckets.size();
+  }
+
+  private void sweepIfDue(long nowMs) {
+    if (nowMs < nextSweepMs || !sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      nextSweepMs = nowMs + sweepIntervalMs;
+      buckets.values().removeIf(fullAt -> fullAt.get() <= nowMs);
+    } finally {
+      sweeping.set(false);
+    }
+  }
+}
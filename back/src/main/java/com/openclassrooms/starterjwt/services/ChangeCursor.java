@@ -0,0 +1,56 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+
+/**
+ * Position in the (time, id) order of session changes, the time being when a session was last written or
+ * was deleted. The time keeps its full precision, so that rows written within the same millisecond are
+ * neither skipped nor returned twice. Encoded as an opaque base64url token, like {@link SessionCursor}.
+ */
+public final class ChangeCursor implements Comparable<ChangeCursor> {
+    private final LocalDateTime time;
+    private final Long id;
+
+    public ChangeCursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * @throws BadRequestException when the token was not produced by {@link #encode()}
+     */
+    public static ChangeCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int separator = value.lastIndexOf('~');
+            return new ChangeCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((time + "~" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public int compareTo(ChangeCursor other) {
+        int byTime = time.compareTo(other.time);
+        return byTime != 0 ? byTime : id.compareTo(other.id);
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+
+import java.util.Date;
+
+/**
+ * An occurrence of a series, with its session once booked, null before that.
+ */
+public final class Occurrence {
+    private final SessionSeries series;
+    private final Date date;
+    private final Session session;
+
+    public Occurrence(SessionSeries series, Date date, Session session) {
+        this.series = series;
+        this.date = date;
+        this.session = session;
+    }
+
+    public SessionSeries getSeries() {
+        return series;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+}
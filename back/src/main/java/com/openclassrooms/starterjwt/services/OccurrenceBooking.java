@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.services;
+
+/**
+ * Outcome of booking an occurrence of a series: its session, created by this booking or an earlier one, and
+ * whether the user got a seat.
+ */
+public final class OccurrenceBooking {
+    private final Long sessionId;
+    private final Participation participation;
+
+    public OccurrenceBooking(Long sessionId, Participation participation) {
+        this.sessionId = sessionId;
+        this.participation = participation;
+    }
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public Participation getParticipation() {
+        return participation;
+    }
+}
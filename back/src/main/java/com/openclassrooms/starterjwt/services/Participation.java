@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.services;
+
+/**
+ * Outcome of a booking request: the user either got a seat or was queued behind a full session.
+ */
+public enum Participation {
+    PARTICIPATING,
+    WAITLISTED
+}
@@ -0,0 +1,136 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Expands the rule of a {@link SessionSeries} into occurrence start times.
+ *
+ * <p>Candidates are numbered from 0 at the first occurrence. The k-th one is computed directly, every
+ * {@code interval} days for a daily rule, or for a weekly rule by counting the rule's days week after week
+ * from the Monday of the first occurrence, so a window far from the start costs no more than one next to
+ * it and a count applies without walking from the start. As in iCalendar, the count includes the
+ * candidates later listed as exceptions.</p>
+ */
+public final class Recurrence {
+    private final ZoneId zone;
+
+    private final LocalDate startDate;
+
+    private final LocalTime time;
+
+    private final SessionSeries.Frequency frequency;
+
+    private final int interval;
+
+    /**
+     * Weekly rule days in week order.
+     */
+    private final DayOfWeek[] days;
+
+    /**
+     * Days of the first week that fall before the first occurrence, which do not count.
+     */
+    private final int skipped;
+
+    private final LocalDate firstMonday;
+
+    private final Integer count;
+
+    private final Instant until;
+
+    private final Set<LocalDate> exceptions;
+
+    private Recurrence(SessionSeries series) {
+        this.zone = ZoneId.of(series.getTimeZone());
+        ZonedDateTime start = series.getStartsAt().toInstant().atZone(zone);
+        this.startDate = start.toLocalDate();
+        this.time = start.toLocalTime();
+        this.frequency = series.getFrequency();
+        this.interval = series.getInterval();
+        Set<DayOfWeek> byDay = series.getByDay() == null || series.getByDay().isEmpty()
+                ? EnumSet.of(startDate.getDayOfWeek())
+                : EnumSet.copyOf(series.getByDay());
+        this.days = byDay.toArray(new DayOfWeek[0]);
+        this.skipped = (int) byDay.stream().filter(day -> day.compareTo(startDate.getDayOfWeek()) < 0).count();
+        this.firstMonday = startDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        this.count = series.getCount();
+        this.until = series.getUntil() == null ? null : series.getUntil().toInstant();
+        this.exceptions = series.getExceptions() == null ? Collections.emptySet() : series.getExceptions();
+    }
+
+    public static Recurrence of(SessionSeries series) {
+        return new Recurrence(series);
+    }
+
+    /**
+     * Start times of the occurrences starting in [from, to), in order.
+     */
+    public List<Instant> between(Instant from, Instant to) {
+        List<Instant> occurrences = new ArrayList<>();
+        // A day of margin on the local date, whatever the offset of the zone
+        LocalDate fromDate = from.atZone(zone).toLocalDate().minusDays(1);
+        for (long k = firstCandidateFrom(fromDate); count == null || k < count; k++) {
+            LocalDate date = dateOf(k);
+            Instant start = ZonedDateTime.of(date, time, zone).toInstant();
+            if (!start.isBefore(to) || (until != null && start.isAfter(until))) {
+                break;
+            }
+            if (!start.isBefore(from) && !exceptions.contains(date)) {
+                occurrences.add(start);
+            }
+        }
+        return occurrences;
+    }
+
+    public boolean occursAt(Instant instant) {
+        return between(instant, instant.plusMillis(1)).contains(instant);
+    }
+
+    /**
+     * Latest start the count and the until date allow, exceptions aside, or null for an endless series.
+     */
+    public Instant end() {
+        Instant byCount = count == null ? null : ZonedDateTime.of(dateOf(count - 1), time, zone).toInstant();
+        if (byCount == null || (until != null && until.isBefore(byCount))) {
+            return until;
+        }
+        return byCount;
+    }
+
+    private LocalDate dateOf(long k) {
+        if (frequency == SessionSeries.Frequency.DAILY) {
+            return startDate.plusDays(k * interval);
+        }
+        long position = k + skipped;
+        long week = position / days.length;
+        return firstMonday.plusWeeks(week * interval).plusDays(days[(int) (position % days.length)].ordinal());
+    }
+
+    /**
+     * Number of a candidate on or shortly before the date, 0 when the date is before the start.
+     */
+    private long firstCandidateFrom(LocalDate date) {
+        if (!date.isAfter(startDate)) {
+            return 0;
+        }
+        if (frequency == SessionSeries.Frequency.DAILY) {
+            return ChronoUnit.DAYS.between(startDate, date) / interval;
+        }
+        long period = ChronoUnit.WEEKS.between(firstMonday, date) / interval;
+        return Math.max(0, period * days.length - skipped);
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published by {@link SessionService} when a session is written. Listeners that keep derived state should
+ * use {@code @TransactionalEventListener}, so that they only see changes that were committed.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class SessionChangedEvent {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Seats changed: a user joined or left, possibly promoting waiting users. Carries no fields.
+         */
+        PARTICIPANTS
+    }
+
+    private final Type type;
+
+    private final Long sessionId;
+
+    /**
+     * Searchable fields as written, null for {@link Type#DELETED} and {@link Type#PARTICIPANTS}.
+     */
+    private final String name;
+
+    private final String description;
+}
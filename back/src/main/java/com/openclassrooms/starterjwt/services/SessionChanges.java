@@ -0,0 +1,42 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.util.List;
+
+import com.openclassrooms.starterjwt.models.Session;
+
+/**
+ * Sessions written and ids of sessions deleted after a {@link ChangeCursor}, in (time, id) order, with the
+ * cursor to ask the next changes from.
+ */
+public final class SessionChanges {
+    private final List<Session> sessions;
+    private final List<Long> deletedIds;
+    private final ChangeCursor next;
+    private final boolean more;
+
+    public SessionChanges(List<Session> sessions, List<Long> deletedIds, ChangeCursor next, boolean more) {
+        this.sessions = sessions;
+        this.deletedIds = deletedIds;
+        this.next = next;
+        this.more = more;
+    }
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public ChangeCursor getNext() {
+        return next;
+    }
+
+    /**
+     * True when the page was full: more changes may follow {@link #getNext()} right away.
+     */
+    public boolean hasMore() {
+        return more;
+    }
+}
@@ -0,0 +1,53 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+
+/**
+ * Position after the last session of a page, in the (date, id) order. Encoded as an opaque base64url
+ * token so clients pass it back unchanged.
+ */
+public final class SessionCursor {
+    private final Date date;
+    private final Long id;
+
+    public SessionCursor(Date date, Long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static SessionCursor after(Session session) {
+        return new SessionCursor(session.getDate(), session.getId());
+    }
+
+    /**
+     * @throws BadRequestException when the token was not produced by {@link #encode()}
+     */
+    public static SessionCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int separator = value.indexOf(':');
+            return new SessionCursor(new Date(Long.parseLong(value.substring(0, separator))),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((date.getTime() + ":" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
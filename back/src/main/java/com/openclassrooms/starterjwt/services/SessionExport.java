@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Reads sessions, teachers and attendance for reporting, straight from the tables.
+ *
+ * <p>Rows are read through a forward-only cursor, {@code fetchSize} at a time (MySQL needs
+ * {@code useCursorFetch=true} on the URL for that), and handed to the writer one by one as plain values.
+ * Nothing is mapped to entities or collected, so an export takes the same memory whatever the size of the
+ * tables.</p>
+ */
+@Component
+public class SessionExport {
+
+    public enum Dataset {
+        SESSIONS("select id, name, date, description, capacity, participant_count, teacher_id, created_at, updated_at"
+                + " from SESSIONS order by id",
+                "id", "name", "date", "description", "capacity", "participant_count", "teacher_id", "created_at",
+                "updated_at"),
+        TEACHERS("select id, first_name, last_name, created_at, updated_at from TEACHERS order by id",
+                "id", "first_name", "last_name", "created_at", "updated_at"),
+        ATTENDANCE("select session_id, user_id from PARTICIPATE order by session_id, user_id",
+                "session_id", "user_id");
+
+        private final String sql;
+
+        private final List<String> columns;
+
+        Dataset(String sql, String... columns) {
+            this.sql = sql;
+            this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public static Optional<Dataset> of(String name) {
+            return Arrays.stream(values())
+                    .filter(dataset -> dataset.name().equals(name.toUpperCase(Locale.ROOT)))
+                    .findFirst();
+        }
+    }
+
+    /**
+     * Receives the rows of an export. The values array is reused from one row to the next; its values are
+     * null, numbers, strings or {@link java.time.LocalDateTime}s.
+     */
+    public interface RowWriter {
+        void write(Object[] values) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionExport(DataSource dataSource, @Value("${oc.app.export.fetchSize:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Writes every row of the dataset in primary key order. A failure of the writer ends the export with an
+     * {@link UncheckedIOException}.
+     */
+    public void export(Dataset dataset, RowWriter writer) {
+        Object[] values = new Object[dataset.columns.size()];
+        this.jdbcTemplate.query(dataset.sql, (RowCallbackHandler) resultSet -> {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = value(resultSet, i + 1);
+            }
+            try {
+                writer.write(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Object value(ResultSet resultSet, int column) throws SQLException {
+        Object value = resultSet.getObject(column);
+        return value instanceof Timestamp ? ((Timestamp) value).toLocalDateTime() : value;
+    }
+}
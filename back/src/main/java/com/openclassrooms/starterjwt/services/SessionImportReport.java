@@ -0,0 +1,69 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many rows were saved and why the others were not. Only the first
+ * {@code maxErrors} failures are described, so that a file of garbage does not produce a report as large.
+ */
+public final class SessionImportReport {
+    private final int maxErrors;
+    private final List<RowError> errors = new ArrayList<>();
+    private int imported;
+    private int failed;
+
+    SessionImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    void imported(int count) {
+        imported += count;
+    }
+
+    void fail(int row, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Described failures sorted by row, at most {@code maxErrors} of {@link #getFailed()}.
+     */
+    public List<RowError> getErrors() {
+        List<RowError> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingInt(RowError::getRow));
+        return sorted;
+    }
+
+    /**
+     * Why a row was not saved, rows counting from 0 in the order they were sent.
+     */
+    public static final class RowError {
+        private final int row;
+        private final String message;
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
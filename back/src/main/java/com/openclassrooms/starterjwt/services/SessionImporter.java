@@ -0,0 +1,262 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates sessions in bulk, a chunk of rows per transaction.
+ *
+ * <p>A row that cannot be read, is invalid or references an unknown teacher or user is reported with its
+ * position and the import goes on. Teachers and users are resolved with one query each per chunk, and the
+ * chunk's sessions are flushed together, which Hibernate sends as JDBC batches since ids come from pooled
+ * sequences. Should the database still reject a chunk, its rows are saved again one per transaction to find
+ * the ones at fault. A chunk running past the write timeout is rolled back and retried the same way, since
+ * the change feed relies on no session write lasting longer.</p>
+ *
+ * <p>Imported sessions are not announced one by one: each committed chunk publishes a single
+ * {@link SessionsImportedEvent}, and the search index is rebuilt once at the end, cheaper than as many
+ * single updates.</p>
+ */
+@Component
+@Log4j2
+public class SessionImporter {
+    private final TeacherRepository teacherRepository;
+
+    private final UserRepository userRepository;
+
+    private final EntityManager entityManager;
+
+    private final SessionSearchIndex sessionSearchIndex;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int chunkSize;
+
+    private final int maxReportedErrors;
+
+    public SessionImporter(TeacherRepository teacherRepository, UserRepository userRepository,
+                           EntityManager entityManager, SessionSearchIndex sessionSearchIndex, Validator validator,
+                           PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                           @Value(SessionService.WRITE_TIMEOUT) int writeTimeoutSeconds,
+                           @Value("${oc.app.sessionImport.chunkSize:500}") int chunkSize,
+                           @Value("${oc.app.sessionImport.maxReportedErrors:1000}") int maxReportedErrors) {
+        this.teacherRepository = teacherRepository;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.sessionSearchIndex = sessionSearchIndex;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(writeTimeoutSeconds);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports the rows in order. {@code rows.next()} may throw for a row that cannot be read, which is
+     * reported and skipped; should {@code rows.hasNext()} throw, the rest of the input is unreadable and
+     * the import stops there, keeping what was already saved.
+     */
+    public SessionImportReport importAll(Iterator<SessionDto> rows) {
+        SessionImportReport report = new SessionImportReport(maxReportedErrors);
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        try {
+            boolean unreadable = false;
+            for (int index = 0; ; index++) {
+                try {
+                    if (!rows.hasNext()) {
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    // Reported once: the row that just failed may be where the input breaks off
+                    if (!unreadable) {
+                        report.fail(index, "Input could not be read from this row on");
+                    }
+                    break;
+                }
+                SessionDto sessionDto;
+                try {
+                    sessionDto = rows.next();
+                    unreadable = false;
+                } catch (RuntimeException e) {
+                    report.fail(index, "Row could not be read");
+                    unreadable = true;
+                    continue;
+                }
+                String error = validate(sessionDto);
+                if (error != null) {
+                    report.fail(index, error);
+                    continue;
+                }
+                chunk.add(new Row(index, sessionDto));
+                if (chunk.size() == chunkSize) {
+                    saveChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                saveChunk(chunk, report);
+            }
+        } finally {
+            if (report.getImported() > 0) {
+                this.sessionSearchIndex.rebuild();
+            }
+        }
+        return report;
+    }
+
+    private String validate(SessionDto sessionDto) {
+        if (sessionDto == null) {
+            return "Row is empty";
+        }
+        Set<ConstraintViolation<SessionDto>> violations = this.validator.validate(sessionDto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (sessionDto.getUsers() != null && sessionDto.getUsers().contains(null)) {
+            return "users: must not contain null";
+        }
+        return null;
+    }
+
+    private void saveChunk(List<Row> chunk, SessionImportReport report) {
+        List<SessionImportReport.RowError> rejected;
+        try {
+            rejected = this.transactionTemplate.execute(status -> save(chunk));
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            log.warn("Chunk of {} sessions from row {} rejected, saving its rows one by one", chunk.size(),
+                    chunk.get(0).index, e);
+            for (Row row : chunk) {
+                saveAlone(row, report);
+            }
+            return;
+        }
+        record(chunk.size(), rejected, report);
+    }
+
+    private void saveAlone(Row row, SessionImportReport report) {
+        List<SessionImportReport.RowError> rejected;
+        try {
+            rejected = this.transactionTemplate.execute(status -> save(Collections.singletonList(row)));
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            report.fail(row.index, "Session could not be saved");
+            return;
+        }
+        record(1, rejected, report);
+    }
+
+    private static void record(int rows, List<SessionImportReport.RowError> rejected, SessionImportReport report) {
+        report.imported(rows - rejected.size());
+        rejected.forEach(error -> report.fail(error.getRow(), error.getMessage()));
+    }
+
+    /**
+     * Saves the rows whose teacher and users exist and returns why the others were left out. The saved
+     * sessions are announced once the transaction commits.
+     */
+    private List<SessionImportReport.RowError> save(List<Row> rows) {
+        Map<Long, Teacher> teachers = this.teacherRepository.findAllById(rows.stream()
+                        .map(row -> row.sessionDto.getTeacher_id())
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Teacher::getId, Function.identity()));
+        Set<Long> userIds = rows.stream()
+                .map(row -> row.sessionDto.getUsers())
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toSet());
+        Map<Long, User> users = userIds.isEmpty()
+                ? Collections.emptyMap()
+                : this.userRepository.findAllById(userIds).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<SessionImportReport.RowError> rejected = new ArrayList<>();
+        List<Session> saved = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            SessionDto sessionDto = row.sessionDto;
+            Teacher teacher = teachers.get(sessionDto.getTeacher_id());
+            if (teacher == null) {
+                rejected.add(new SessionImportReport.RowError(row.index,
+                        "teacher_id: no teacher " + sessionDto.getTeacher_id()));
+                continue;
+            }
+            List<Long> participantIds = sessionDto.getUsers() == null
+                    ? Collections.emptyList()
+                    : sessionDto.getUsers().stream().distinct().collect(Collectors.toList());
+            List<Long> unknown = participantIds.stream()
+                    .filter(id -> !users.containsKey(id))
+                    .collect(Collectors.toList());
+            if (!unknown.isEmpty()) {
+                rejected.add(new SessionImportReport.RowError(row.index, "users: no user " + unknown));
+                continue;
+            }
+            if (sessionDto.getCapacity() != null && participantIds.size() > sessionDto.getCapacity()) {
+                rejected.add(new SessionImportReport.RowError(row.index, "users: more than the capacity"));
+                continue;
+            }
+            Session session = Session.builder()
+                    .name(sessionDto.getName())
+                    .date(sessionDto.getDate())
+                    .description(sessionDto.getDescription())
+                    .capacity(sessionDto.getCapacity())
+                    .teacher(teacher)
+                    .users(participantIds.stream().map(users::get).collect(Collectors.toList()))
+                    .participantCount(participantIds.size())
+                    .build();
+            this.entityManager.persist(session);
+            saved.add(session);
+        }
+        // Sends the chunk's inserts now, in batches, and keeps the persistence context from growing
+        this.entityManager.flush();
+        this.entityManager.clear();
+        if (!saved.isEmpty()) {
+            this.eventPublisher.publishEvent(new SessionsImportedEvent(saved.stream()
+                    .map(Session::getId)
+                    .collect(Collectors.toList())));
+        }
+        return rejected;
+    }
+
+    private static final class Row {
+        final int index;
+
+        final SessionDto sessionDto;
+
+        Row(int index, SessionDto sessionDto) {
+            this.index = index;
+            this.sessionDto = sessionDto;
+        }
+    }
+}
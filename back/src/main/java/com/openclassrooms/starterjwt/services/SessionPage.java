@@ -0,0 +1,26 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.util.List;
+
+import com.openclassrooms.starterjwt.models.Session;
+
+/**
+ * One page of sessions, with the cursor of the next page or null when this one is the last.
+ */
+public final class SessionPage {
+    private final List<Session> sessions;
+    private final SessionCursor next;
+
+    public SessionPage(List<Session> sessions, SessionCursor next) {
+        this.sessions = sessions;
+        this.next = next;
+    }
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    public SessionCursor getNext() {
+        return next;
+    }
+}
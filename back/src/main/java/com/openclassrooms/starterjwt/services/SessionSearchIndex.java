@@ -0,0 +1,488 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over session names and descriptions.
+ *
+ * <p>Terms are lower-cased and stripped of accents, so "Hélène" is found by "helene". Each term maps to the
+ * sorted ids of the sessions containing it, with a weight counting occurrences, a name occurrence weighing
+ * {@value #NAME_WEIGHT} times a description one. Terms are kept in a sorted map so that a query word also
+ * matches every term it prefixes. Every query word must match; results are ranked by summed weight times
+ * inverse document frequency, prefix matches counting half.</p>
+ *
+ * <p>Postings are immutable arrays replaced on write, so searches never lock. Writes are serialized, are
+ * applied after their transaction commits and the whole index is rebuilt from the database at startup.</p>
+ */
+@Component
+public class SessionSearchIndex {
+    static final int NAME_WEIGHT = 3;
+
+    /**
+     * Shorter query words only match whole terms, as a prefix of one or two letters matches too much.
+     */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    /**
+     * Above this many expansions of a word, candidates are intersected with the union of their postings
+     * rather than looked up in each of them.
+     */
+    private static final int MAX_WALKED_EXPANSIONS = 32;
+
+    private static final double PREFIX_FACTOR = 0.5;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final SessionRepository sessionRepository;
+
+    private volatile State state = new State(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+
+    public SessionSearchIndex(SessionRepository sessionRepository) {
+        this.sessionRepository = sessionRepository;
+    }
+
+    /**
+     * Replaces the index with one built from every session in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        Map<Long, String[]> documents = new HashMap<>();
+        try (Stream<Object[]> rows = this.sessionRepository.streamSearchFields()) {
+            // Rows come in id order, so every postings list is built already sorted
+            rows.forEach(row -> {
+                long id = ((Number) row[0]).longValue();
+                Map<String, Integer> weights = weigh((String) row[1], (String) row[2]);
+                String[] terms = new String[weights.size()];
+                int i = 0;
+                for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+                    PostingsBuilder builder = builders.computeIfAbsent(weight.getKey(), key -> new PostingsBuilder());
+                    builder.add(id, weight.getValue());
+                    terms[i++] = weight.getKey();
+                }
+                documents.put(id, terms);
+            });
+        }
+
+        ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+        builders.forEach((term, builder) -> terms.put(term, builder.build()));
+        this.state = new State(terms, new ConcurrentHashMap<>(documents));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(SessionChangedEvent event) {
+        if (event.getType() == SessionChangedEvent.Type.DELETED) {
+            remove(event.getSessionId());
+        } else if (event.getType() != SessionChangedEvent.Type.PARTICIPANTS) {
+            index(event.getSessionId(), event.getName(), event.getDescription());
+        }
+    }
+
+    public synchronized void index(Long id, String name, String description) {
+        State current = this.state;
+        removeFrom(current, id);
+
+        Map<String, Integer> weights = weigh(name, description);
+        String[] terms = new String[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            int value = weight.getValue();
+            current.terms.compute(weight.getKey(),
+                    (term, postings) -> postings == null ? Postings.of(id, value) : postings.with(id, value));
+            // Keep the map's own key rather than a second copy of the string
+            terms[i++] = current.terms.ceilingKey(weight.getKey());
+        }
+        current.documents.put(id, terms);
+    }
+
+    public synchronized void remove(Long id) {
+        removeFrom(this.state, id);
+    }
+
+    public int size() {
+        return this.state.documents.size();
+    }
+
+    /**
+     * Ids of the best matching sessions, best first, at most {@code limit} of them.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+
+        State current = this.state;
+        double documentCount = Math.max(1, current.documents.size());
+        List<List<Match>> matches = new ArrayList<>(words.size());
+        for (String word : words) {
+            List<Match> expansions = expand(current, word, documentCount);
+            if (expansions.isEmpty()) {
+                return Collections.emptyList();
+            }
+            matches.add(expansions);
+        }
+        // Start from the most selective word so that the other ones only filter few candidates
+        matches.sort(Comparator.comparingLong(SessionSearchIndex::frequency));
+
+        Candidates candidates = Candidates.union(matches.get(0));
+        for (int i = 1; i < matches.size() && candidates.size > 0; i++) {
+            candidates = candidates.retain(matches.get(i));
+        }
+        return candidates.top(limit);
+    }
+
+    private static List<Match> expand(State state, String word, double documentCount) {
+        List<Match> expansions = new ArrayList<>();
+        if (word.length() < MIN_PREFIX_LENGTH) {
+            Postings postings = state.terms.get(word);
+            if (postings != null) {
+                expansions.add(new Match(postings, 1, documentCount));
+            }
+            return expansions;
+        }
+        for (Map.Entry<String, Postings> entry
+                : state.terms.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            double factor = entry.getKey().length() == word.length() ? 1 : PREFIX_FACTOR;
+            expansions.add(new Match(entry.getValue(), factor, documentCount));
+        }
+        return expansions;
+    }
+
+    private static long frequency(List<Match> expansions) {
+        long frequency = 0;
+        for (Match match : expansions) {
+            frequency += match.postings.ids.length;
+        }
+        return frequency;
+    }
+
+    private static void removeFrom(State state, Long id) {
+        String[] terms = state.documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            state.terms.computeIfPresent(term, (key, postings) -> postings.without(id));
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Integer> weigh(String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(name)) {
+            weights.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(description)) {
+            weights.merge(token, 1, Integer::sum);
+        }
+        return weights;
+    }
+
+    private static final class State {
+        final ConcurrentSkipListMap<String, Postings> terms;
+
+        final ConcurrentHashMap<Long, String[]> documents;
+
+        State(ConcurrentSkipListMap<String, Postings> terms, ConcurrentHashMap<Long, String[]> documents) {
+            this.terms = terms;
+            this.documents = documents;
+        }
+    }
+
+    /**
+     * Sessions containing a term, sorted by id, with the term's weight in each. Never modified once built.
+     */
+    private static final class Postings {
+        final long[] ids;
+
+        final int[] weights;
+
+        Postings(long[] ids, int[] weights) {
+            this.ids = ids;
+            this.weights = weights;
+        }
+
+        static Postings of(long id, int weight) {
+            return new Postings(new long[]{id}, new int[]{weight});
+        }
+
+        Postings with(long id, int weight) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index >= 0) {
+                int[] replaced = weights.clone();
+                replaced[index] = weight;
+                return new Postings(ids, replaced);
+            }
+            int at = -index - 1;
+            long[] newIds = new long[ids.length + 1];
+            int[] newWeights = new int[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, at);
+            System.arraycopy(weights, 0, newWeights, 0, at);
+            newIds[at] = id;
+            newWeights[at] = weight;
+            System.arraycopy(ids, at, newIds, at + 1, ids.length - at);
+            System.arraycopy(weights, at, newWeights, at + 1, ids.length - at);
+            return new Postings(newIds, newWeights);
+        }
+
+        /**
+         * Returns null when no session is left, which removes the term from the map.
+         */
+        Postings without(long id) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index < 0) {
+                return this;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            long[] newIds = new long[ids.length - 1];
+            int[] newWeights = new int[ids.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(weights, 0, newWeights, 0, index);
+            System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+            System.arraycopy(weights, index + 1, newWeights, index, ids.length - index - 1);
+            return new Postings(newIds, newWeights);
+        }
+    }
+
+    private static final class PostingsBuilder {
+        long[] ids = new long[4];
+
+        int[] weights = new int[4];
+
+        int size;
+
+        void add(long id, int weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size++] = weight;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(ids, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    /**
+     * A term matched by a query word, with the score of one unit of its weight.
+     */
+    private static final class Match {
+        final Postings postings;
+
+        final double unit;
+
+        Match(Postings postings, double factor, double documentCount) {
+            this.postings = postings;
+            this.unit = factor * Math.log(1 + documentCount / postings.ids.length);
+        }
+    }
+
+    /**
+     * Matching sessions so far, sorted by id, with their score.
+     */
+    private static final class Candidates {
+        static final Candidates EMPTY = new Candidates(new long[0], new double[0], 0);
+
+        final long[] ids;
+
+        final double[] scores;
+
+        final int size;
+
+        Candidates(long[] ids, double[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        static Candidates of(Match match) {
+            long[] termIds = match.postings.ids;
+            int[] termWeights = match.postings.weights;
+            double[] termScores = new double[termIds.length];
+            for (int i = 0; i < termIds.length; i++) {
+                termScores[i] = termWeights[i] * match.unit;
+            }
+            return new Candidates(termIds, termScores, termIds.length);
+        }
+
+        /**
+         * Sessions matching any of the terms. Terms are merged two by two, so that a prefix expanding to many
+         * terms copies each id a logarithmic number of times rather than once per term.
+         */
+        static Candidates union(List<Match> expansions) {
+            List<Candidates> round = new ArrayList<>(expansions.size());
+            for (Match match : expansions) {
+                round.add(of(match));
+            }
+            while (round.size() > 1) {
+                List<Candidates> next = new ArrayList<>((round.size() + 1) / 2);
+                for (int i = 0; i < round.size(); i += 2) {
+                    next.add(i + 1 < round.size() ? round.get(i).merge(round.get(i + 1)) : round.get(i));
+                }
+                round = next;
+            }
+            return round.isEmpty() ? EMPTY : round.get(0);
+        }
+
+        /**
+         * Sessions of both, summing the scores of sessions present in both.
+         */
+        Candidates merge(Candidates other) {
+            long[] mergedIds = new long[size + other.size];
+            double[] mergedScores = new double[mergedIds.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && ids[i] < other.ids[j])) {
+                    mergedIds[k] = ids[i];
+                    mergedScores[k++] = scores[i++];
+                } else if (i == size || other.ids[j] < ids[i]) {
+                    mergedIds[k] = other.ids[j];
+                    mergedScores[k++] = other.scores[j++];
+                } else {
+                    mergedIds[k] = ids[i];
+                    mergedScores[k++] = scores[i++] + other.scores[j++];
+                }
+            }
+            return new Candidates(mergedIds, mergedScores, k);
+        }
+
+        /**
+         * Keeps the sessions matching at least one of the terms, adding their score. Candidates come in id
+         * order, so each postings list is walked forward from where the previous candidate was found. A word
+         * expanding to many terms is first merged into one list, so that each candidate is looked up once.
+         */
+        Candidates retain(List<Match> expansions) {
+            if (expansions.size() > MAX_WALKED_EXPANSIONS) {
+                return retain(union(expansions));
+            }
+            long[] keptIds = new long[size];
+            double[] keptScores = new double[size];
+            int[] cursors = new int[expansions.size()];
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                double score = 0;
+                for (int m = 0; m < cursors.length; m++) {
+                    Postings postings = expansions.get(m).postings;
+                    int index = seek(postings.ids, cursors[m], ids[i]);
+                    cursors[m] = index;
+                    if (index < postings.ids.length && postings.ids[index] == ids[i]) {
+                        score += postings.weights[index] * expansions.get(m).unit;
+                    }
+                }
+                if (score > 0) {
+                    keptIds[kept] = ids[i];
+                    keptScores[kept++] = scores[i] + score;
+                }
+            }
+            return new Candidates(keptIds, keptScores, kept);
+        }
+
+        /**
+         * Keeps the sessions present in both, summing their scores.
+         */
+        Candidates retain(Candidates other) {
+            long[] keptIds = new long[Math.min(size, other.size)];
+            double[] keptScores = new double[keptIds.length];
+            int kept = 0;
+            int cursor = 0;
+            for (int i = 0; i < size && cursor < other.size; i++) {
+                cursor = seek(other.ids, cursor, other.size, ids[i]);
+                if (cursor < other.size && other.ids[cursor] == ids[i]) {
+                    keptIds[kept] = ids[i];
+                    keptScores[kept++] = scores[i] + other.scores[cursor];
+                }
+            }
+            return new Candidates(keptIds, keptScores, kept);
+        }
+
+        /**
+         * First index at or after {@code from} whose id is not below {@code id}, found by doubling the step
+         * then binary searching, which costs little both for close and for far away ids.
+         */
+        private static int seek(long[] postings, int from, long id) {
+            return seek(postings, from, postings.length, id);
+        }
+
+        private static int seek(long[] postings, int from, int length, long id) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < length && postings[high] < id) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, length);
+            int index = Arrays.binarySearch(postings, low, high, id);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Best scores first, lower ids first among equal scores.
+         */
+        List<Long> top(int limit) {
+            Comparator<Integer> worstFirst = (a, b) -> scores[a] != scores[b]
+                    ? Double.compare(scores[a], scores[b])
+                    : Long.compare(ids[b], ids[a]);
+            PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, size) + 1, worstFirst);
+            for (int i = 0; i < size; i++) {
+                if (best.size() < limit) {
+                    best.add(i);
+                } else if (worstFirst.compare(i, best.peek()) > 0) {
+                    best.poll();
+                    best.add(i);
+                }
+            }
+            Long[] result = new Long[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = ids[best.poll()];
+            }
+            return Arrays.asList(result);
+        }
+    }
+}
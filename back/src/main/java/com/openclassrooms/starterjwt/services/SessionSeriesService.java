@@ -0,0 +1,212 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionSeriesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+public class SessionSeriesService {
+    private final SessionSeriesRepository sessionSeriesRepository;
+
+    private final SessionRepository sessionRepository;
+
+    private final SessionService sessionService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SessionSeriesService(SessionSeriesRepository sessionSeriesRepository, SessionRepository sessionRepository,
+                                SessionService sessionService, PlatformTransactionManager transactionManager,
+                                @Value(SessionService.WRITE_TIMEOUT) int writeTimeoutSeconds) {
+        this.sessionSeriesRepository = sessionSeriesRepository;
+        this.sessionRepository = sessionRepository;
+        this.sessionService = sessionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(writeTimeoutSeconds);
+    }
+
+    public SessionSeries create(SessionSeries series) {
+        validate(series);
+
+        series.setId(null);
+        // Occurrences are looked up by exact start, and MySQL keeps whole seconds
+        series.setStartsAt(Date.from(series.getStartsAt().toInstant().truncatedTo(ChronoUnit.SECONDS)));
+        updateEnd(series);
+        return this.sessionSeriesRepository.save(series);
+    }
+
+    /**
+     * Replaces the rule and fields of the series. Occurrences already booked keep their session, still
+     * listed should the new rule no longer yield them.
+     */
+    public SessionSeries update(Long id, SessionSeries series) {
+        SessionSeries existing = this.sessionSeriesRepository.findById(id).orElseThrow(NotFoundException::new);
+        validate(series);
+
+        series.setId(id);
+        series.setCreatedAt(existing.getCreatedAt());
+        series.setStartsAt(Date.from(series.getStartsAt().toInstant().truncatedTo(ChronoUnit.SECONDS)));
+        updateEnd(series);
+        return this.sessionSeriesRepository.save(series);
+    }
+
+    /**
+     * Ends the series now: no occurrence starts after this, and the sessions of the occurrences booked but
+     * not started yet are deleted along with their participants and waitlists. Past sessions are kept.
+     */
+    @Transactional(timeoutString = SessionService.WRITE_TIMEOUT)
+    public SessionSeries cancel(Long id) {
+        SessionSeries series = this.sessionSeriesRepository.findWithExceptionsById(id)
+                .orElseThrow(NotFoundException::new);
+        Date now = new Date();
+        if (series.getUntil() == null || series.getUntil().after(now)) {
+            series.setUntil(now);
+            updateEnd(series);
+        }
+        for (Session session : this.sessionRepository.findOccurrencesFrom(id, now)) {
+            this.sessionService.delete(session.getId());
+        }
+        return series;
+    }
+
+    /**
+     * Leaves the occurrence of that local date out of the series. An occurrence already booked keeps its
+     * session, still listed until it is deleted.
+     */
+    @Transactional
+    public SessionSeries addException(Long id, LocalDate date) {
+        SessionSeries series = this.sessionSeriesRepository.findWithExceptionsById(id)
+                .orElseThrow(NotFoundException::new);
+        if (series.getExceptions() == null) {
+            series.setExceptions(new HashSet<>());
+        }
+        // The end stays: as with iCalendar, a count includes the dates left out
+        series.getExceptions().add(date);
+        return series;
+    }
+
+    private static void validate(SessionSeries series) {
+        if (series.getFrequency() == SessionSeries.Frequency.DAILY
+                && series.getByDay() != null && !series.getByDay().isEmpty()) {
+            throw new BadRequestException();
+        }
+        try {
+            ZoneId.of(series.getTimeZone());
+        } catch (DateTimeException e) {
+            throw new BadRequestException();
+        }
+        if (series.getUntil() != null && series.getUntil().before(series.getStartsAt())) {
+            throw new BadRequestException();
+        }
+    }
+
+    private static void updateEnd(SessionSeries series) {
+        Instant end = Recurrence.of(series).end();
+        series.setEndsAt(end == null ? null : Date.from(end));
+    }
+
+    public SessionSeries findById(Long id) {
+        return this.sessionSeriesRepository.findWithExceptionsById(id).orElse(null);
+    }
+
+    /**
+     * Occurrences of every series in [from, to), optionally of one teacher, in start order. They are
+     * computed from the rules; only the booked ones are read from the sessions, in one query. A booked
+     * occurrence the rule no longer yields, because its date became an exception, is still listed.
+     */
+    @Transactional(readOnly = true)
+    public List<Occurrence> findOccurrences(Date from, Date to, Long teacherId) {
+        List<SessionSeries> series = teacherId == null
+                ? this.sessionSeriesRepository.findActive(from, to)
+                : this.sessionSeriesRepository.findActive(teacherId, from, to);
+        if (series.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Map<Long, Session>> booked = new HashMap<>();
+        List<Long> seriesIds = series.stream().map(SessionSeries::getId).collect(Collectors.toList());
+        for (Session session : this.sessionRepository.findOccurrences(seriesIds, from, to)) {
+            booked.computeIfAbsent(session.getSeriesId(), key -> new HashMap<>())
+                    .put(session.getDate().getTime(), session);
+        }
+
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (SessionSeries one : series) {
+            Map<Long, Session> sessions = booked.getOrDefault(one.getId(), new HashMap<>());
+            for (Instant start : Recurrence.of(one).between(from.toInstant(), to.toInstant())) {
+                Session session = sessions.remove(start.toEpochMilli());
+                occurrences.add(new Occurrence(one, Date.from(start), session));
+            }
+            sessions.values().forEach(session -> occurrences.add(new Occurrence(one, session.getDate(), session)));
+        }
+        occurrences.sort(Comparator.comparing(Occurrence::getDate)
+                .thenComparing(occurrence -> occurrence.getSeries().getId()));
+        return occurrences;
+    }
+
+    /**
+     * Books the occurrence of the series starting at {@code date} for the user, creating its session on the
+     * first booking. Both happen in one transaction, so a refused booking leaves no session behind. Two
+     * first bookings of the same occurrence race on the (series_id, date) unique key: the loser's
+     * transaction rolls back and it books the winner's session in a new one.
+     */
+    public OccurrenceBooking participate(Long seriesId, Date date, Long userId) {
+        try {
+            return this.transactionTemplate.execute(status -> book(seriesId, date, userId));
+        } catch (DataIntegrityViolationException e) {
+            return this.transactionTemplate.execute(status -> book(seriesId, date, userId));
+        }
+    }
+
+    private OccurrenceBooking book(Long seriesId, Date date, Long userId) {
+        Long sessionId = findOrCreate(seriesId, date);
+        return new OccurrenceBooking(sessionId, this.sessionService.participate(sessionId, userId));
+    }
+
+    private Long findOrCreate(Long seriesId, Date date) {
+        Session existing = this.sessionRepository.findOccurrence(seriesId, date).orElse(null);
+        if (existing != null) {
+            return existing.getId();
+        }
+        SessionSeries series = this.sessionSeriesRepository.findWithExceptionsById(seriesId)
+                .orElseThrow(NotFoundException::new);
+        if (!Recurrence.of(series).occursAt(date.toInstant())) {
+            throw new NotFoundException();
+        }
+
+        Session session = this.sessionService.create(Session.builder()
+                .name(series.getName())
+                .description(series.getDescription())
+                .capacity(series.getCapacity())
+                .teacher(series.getTeacher())
+                .date(date)
+                .seriesId(seriesId)
+                .users(new ArrayList<>())
+                .build());
+        // Inserts now, so that a concurrent first booking fails here rather than at commit
+        this.sessionRepository.flush();
+        return session.getId();
+    }
+}
@@ -1,78 +1,422 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.GoneException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.SessionTombstone;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.Revision;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SessionService {
+    /**
+     * Above this many sessions, participants are read from the whole join table rather than through an
+     * IN list, which databases handle poorly when it grows.
+     */
+    private static final int PARTICIPANTS_IN_LIMIT = 1000;
+
+    /**
+     * Longest a transaction writing sessions may run, in seconds, past which it is rolled back. Written and
+     * deleted sessions are stamped by the JVM before their transaction commits, so the change feed, which
+     * holds back oc.app.sessionChanges.safetyWindowMs of changes, must hold back longer than this.
+     */
+    static final String WRITE_TIMEOUT = "${oc.app.sessionChanges.writeTimeoutSeconds:10}";
+
     private final SessionRepository sessionRepository;
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final EntityManager entityManager;
+
+    private final SessionSearchIndex sessionSearchIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final SessionTombstones sessionTombstones;
+
+    public SessionService(SessionRepository sessionRepository, UserRepository userRepository,
+                          WaitlistRepository waitlistRepository, EntityManager entityManager,
+                          SessionSearchIndex sessionSearchIndex, ApplicationEventPublisher eventPublisher,
+                          SessionTombstones sessionTombstones) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.entityManager = entityManager;
+        this.sessionSearchIndex = sessionSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.sessionTombstones = sessionTombstones;
     }
 
+    /**
+     * Saves a new session. More participants than the capacity is refused, as on update.
+     *
+     * @throws BadRequestException when the participants exceed the capacity
+     */
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        int participants = session.getUsers() == null ? 0 : session.getUsers().size();
+        if (session.getCapacity() != null && participants > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+
+        session.setParticipantCount(participants);
+        Session saved = this.sessionRepository.save(session);
+        publish(SessionChangedEvent.Type.CREATED, saved);
+        return saved;
     }
 
+    @Transactional(timeoutString = WRITE_TIMEOUT)
     public void delete(Long id) {
+        this.waitlistRepository.deleteBySession(id);
         this.sessionRepository.deleteById(id);
+        this.sessionTombstones.record(id);
+        this.eventPublisher.publishEvent(new SessionChangedEvent(SessionChangedEvent.Type.DELETED, id, null, null));
+    }
+
+    /**
+     * Sessions whose name or description match every word of the query, best matches first.
+     */
+    public List<Session> search(String query, int limit) {
+        List<Long> ids = this.sessionSearchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Session> sessions = this.sessionRepository.findAllWithTeacherById(ids).stream()
+                .collect(Collectors.toMap(Session::getId, session -> session));
+        // A session deleted since it was indexed is simply skipped
+        return ids.stream().map(sessions::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+        return this.sessionRepository.findAllWithTeacher();
+    }
+
+    /**
+     * Ids of the participants of each session, keyed by session id, in a single query whatever the number
+     * of sessions. Sessions without participants are absent from the map.
+     */
+    public Map<Long, List<Long>> findParticipantIds(List<Session> sessions) {
+        if (sessions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = sessions.stream().map(Session::getId).collect(Collectors.toList());
+        List<Object[]> rows = ids.size() > PARTICIPANTS_IN_LIMIT
+                ? this.sessionRepository.findAllParticipants()
+                : this.sessionRepository.findParticipants(ids);
+
+        Map<Long, List<Long>> participants = new HashMap<>();
+        for (Object[] row : rows) {
+            Long sessionId = ((Number) row[0]).longValue();
+            participants.computeIfAbsent(sessionId, key -> new ArrayList<>()).add(((Number) row[1]).longValue());
+        }
+        return participants;
+    }
+
+    /**
+     * Walks every session through a database cursor and hands them to the consumer by chunks of at most
+     * {@code chunkSize}, with the participant ids of the chunk read in one query. Each chunk is evicted from
+     * the persistence context once consumed, so memory does not grow with the number of sessions; the
+     * consumer must not keep the entities.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(int chunkSize, BiConsumer<List<Session>, Map<Long, List<Long>>> consumer) {
+        // Larger chunks would switch the participant lookup to a whole-table read per chunk
+        chunkSize = Math.min(chunkSize, PARTICIPANTS_IN_LIMIT);
+        List<Session> chunk = new ArrayList<>(chunkSize);
+        try (Stream<Session> sessions = this.sessionRepository.streamAll()) {
+            Iterator<Session> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    consumer.accept(chunk, findParticipantIds(chunk));
+                    chunk.clear();
+                    this.entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code size} sessions after the cursor, or from the start when it is null. One extra
+     * row is read to know whether another page follows, so no count query is needed.
+     */
+    public SessionPage findPage(SessionCursor after, int size) {
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Session> sessions = after == null
+                ? this.sessionRepository.findFirstPage(limit)
+                : this.sessionRepository.findPageAfter(after.getDate(), after.getId(), limit);
+
+        if (sessions.size() <= size) {
+            return new SessionPage(sessions, null);
+        }
+        List<Session> page = sessions.subList(0, size);
+        return new SessionPage(page, SessionCursor.after(page.get(size - 1)));
+    }
+
+    /**
+     * Returns up to {@code size} changes after the cursor and up to {@code until}: sessions written, and ids of
+     * sessions deleted, merged in (time, id) order. Without a cursor, returns the sessions themselves, the
+     * starting point of a sync. Both reads share one transaction, hence one snapshot.
+     *
+     * @throws GoneException when deletions after the cursor may have been compacted away
+     */
+    @Transactional(readOnly = true)
+    public SessionChanges findChanges(ChangeCursor since, LocalDateTime until, int size) {
+        if (since != null && this.sessionTombstones.isExpired(since)) {
+            throw new GoneException();
+        }
+        if (since != null && !since.getTime().isBefore(until)) {
+            return new SessionChanges(Collections.emptyList(), Collections.emptyList(), since, false);
+        }
+
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Session> written = since == null
+                ? this.sessionRepository.findChangedUntil(until, limit)
+                : this.sessionRepository.findChangedAfter(since.getTime(), since.getId(), until, limit);
+        List<SessionTombstone> deleted = since == null
+                ? Collections.emptyList()
+                : this.sessionTombstones.findAfter(since, until, size + 1);
+
+        List<Session> sessions = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        ChangeCursor last = null;
+        int i = 0;
+        int j = 0;
+        while (sessions.size() + deletedIds.size() < size && (i < written.size() || j < deleted.size())) {
+            ChangeCursor nextWritten = i < written.size()
+                    ? new ChangeCursor(written.get(i).getUpdatedAt(), written.get(i).getId())
+                    : null;
+            ChangeCursor nextDeleted = j < deleted.size()
+                    ? new ChangeCursor(deleted.get(j).getDeletedAt(), deleted.get(j).getSessionId())
+                    : null;
+            if (nextDeleted == null || (nextWritten != null && nextWritten.compareTo(nextDeleted) < 0)) {
+                sessions.add(written.get(i++));
+                last = nextWritten;
+            } else {
+                deletedIds.add(deleted.get(j++).getSessionId());
+                last = nextDeleted;
+            }
+        }
+
+        boolean more = i < written.size() || j < deleted.size();
+        // When everything up to until was returned, the next call starts from there
+        return new SessionChanges(sessions, deletedIds, more ? last : new ChangeCursor(until, Long.MAX_VALUE), more);
+    }
+
+    /**
+     * Returns up to {@code size} of the sessions the user participates in, after the cursor or from the start
+     * when it is null, in (date, id) order. The page's ids come from the join table, then the sessions are
+     * loaded with their teacher in one query.
+     */
+    public SessionPage findParticipationPage(Long userId, SessionCursor after, int size) {
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Number> rows = after == null
+                ? this.sessionRepository.findParticipationIds(userId, limit)
+                : this.sessionRepository.findParticipationIdsAfter(userId, after.getDate(), after.getId(), limit);
+
+        List<Long> ids = rows.stream().limit(size).map(Number::longValue).collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return new SessionPage(Collections.emptyList(), null);
+        }
+        Map<Long, Session> byId = this.sessionRepository.findAllWithTeacherById(ids).stream()
+                .collect(Collectors.toMap(Session::getId, session -> session));
+        List<Session> page = ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+
+        return new SessionPage(page, rows.size() > size && !page.isEmpty()
+                ? SessionCursor.after(page.get(page.size() - 1))
+                : null);
+    }
+
+    /**
+     * Sessions from {@code from} included to {@code to} excluded, in (date, id) order, of every teacher
+     * when {@code teacherId} is null.
+     */
+    public List<Session> findBetween(Date from, Date to, Long teacherId) {
+        return teacherId == null
+                ? this.sessionRepository.findBetween(from, to)
+                : this.sessionRepository.findBetween(teacherId, from, to);
+    }
+
+    /**
+     * The next {@code size} sessions from now on, of every teacher when {@code teacherId} is null.
+     */
+    public List<Session> findUpcoming(Long teacherId, int size) {
+        PageRequest limit = PageRequest.of(0, size);
+        Date now = new Date();
+        return teacherId == null
+                ? this.sessionRepository.findUpcoming(now, limit)
+                : this.sessionRepository.findUpcoming(teacherId, now, limit);
+    }
+
+    public Revision getRevision() {
+        return this.sessionRepository.findRevision();
+    }
+
+    public Revision getRevision(Long id) {
+        return this.sessionRepository.findRevision(id);
     }
 
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Replaces the session, participants included. Raising the capacity promotes waiting users.
+     *
+     * <p>The session's row is locked first, the way bookings lock it, so a booking either commits before
+     * the new participants and counter are written or waits for them; the counter always matches the
+     * participants. More participants than the capacity, which includes a capacity lowered below the
+     * participants kept, is refused.</p>
+     *
+     * @throws BadRequestException when the participants exceed the capacity
+     * @throws NotFoundException when there is no such session
+     */
+    @Transactional(timeoutString = WRITE_TIMEOUT)
     public Session update(Long id, Session session) {
+        int participants = session.getUsers() == null ? 0 : session.getUsers().size();
+        if (session.getCapacity() != null && participants > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+        if (this.sessionRepository.lock(id) == 0) {
+            throw new NotFoundException();
+        }
+
         session.setId(id);
-        return this.sessionRepository.save(session);
+        session.setParticipantCount(participants);
+        Session saved = this.sessionRepository.save(session);
+        promote(id);
+        publish(SessionChangedEvent.Type.UPDATED, saved);
+        return saved;
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
-            throw new NotFoundException();
+    public List<Long> findWaitlist(Long id) {
+        return this.waitlistRepository.findBySessionIdOrderByIdAsc(id).stream()
+                .map(WaitlistEntry::getUserId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Books a seat for the user, or queues them when the session is full.
+     *
+     * <p>A free seat is taken by one conditional update of the session's counter, so concurrent requests
+     * only contend on that row and never exceed the capacity. When the session looks full its row is locked
+     * and the seat retried before queueing, so a seat released meanwhile cannot be missed. The
+     * (session_id, user_id) keys settle duplicate requests; existence is only looked up to explain a
+     * refusal.</p>
+     */
+    @Transactional(timeoutString = WRITE_TIMEOUT)
+    public Participation participate(Long id, Long userId) {
+        if (this.sessionRepository.reserveSeat(id) == 0) {
+            if (this.sessionRepository.lock(id) == 0) {
+                throw new NotFoundException();
+            }
+            if (this.sessionRepository.reserveSeat(id) == 0) {
+                enqueue(id, userId);
+                return Participation.WAITLISTED;
+            }
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        int inserted;
+        try {
+            inserted = this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
             throw new BadRequestException();
         }
-
-        session.getUsers().add(user);
-
-        this.sessionRepository.save(session);
+        if (inserted == 0) {
+            // The exception rolls the reserved seat back with the transaction
+            throw refusal(id, userId);
+        }
+        publishParticipants(id);
+        return Participation.PARTICIPATING;
     }
 
+    /**
+     * Removes the user from the session's participants, handing the seat to the oldest waiting user, or
+     * from its waitlist when the user was queued.
+     */
+    @Transactional(timeoutString = WRITE_TIMEOUT)
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+        if (this.sessionRepository.removeParticipant(id, userId) == 1) {
+            this.sessionRepository.releaseSeat(id);
+            promote(id);
+            publishParticipants(id);
+            return;
         }
+        if (this.waitlistRepository.dequeue(id, userId) == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException();
+        }
+    }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+    private void enqueue(Long id, Long userId) {
+        int queued;
+        try {
+            queued = this.waitlistRepository.enqueue(id, userId);
+        } catch (DataIntegrityViolationException e) {
             throw new BadRequestException();
         }
+        if (queued == 0) {
+            throw refusal(id, userId);
+        }
+    }
+
+    /**
+     * Moves waiting users into the session, oldest first, while seats are left. Claiming deletes the entry,
+     * so an entry taken by a concurrent promotion is skipped rather than promoted twice.
+     */
+    private void promote(Long id) {
+        while (true) {
+            WaitlistEntry head = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id).orElse(null);
+            if (head == null || this.sessionRepository.reserveSeat(id) == 0) {
+                return;
+            }
+            if (this.waitlistRepository.claim(head.getId()) == 0
+                    || this.sessionRepository.addParticipant(id, head.getUserId()) == 0) {
+                // Claimed elsewhere, or the user already participates: give the seat to the next one
+                this.sessionRepository.releaseSeat(id);
+            }
+        }
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+    private void publish(SessionChangedEvent.Type type, Session session) {
+        this.eventPublisher.publishEvent(
+                new SessionChangedEvent(type, session.getId(), session.getName(), session.getDescription()));
+    }
+
+    private void publishParticipants(Long id) {
+        this.eventPublisher.publishEvent(new SessionChangedEvent(SessionChangedEvent.Type.PARTICIPANTS, id, null, null));
+    }
 
-        this.sessionRepository.save(session);
+    private RuntimeException refusal(Long id, Long userId) {
+        if (!this.sessionRepository.existsById(id) || !this.userRepository.existsById(userId)) {
+            return new NotFoundException();
+        }
+        return new BadRequestException();
     }
 }
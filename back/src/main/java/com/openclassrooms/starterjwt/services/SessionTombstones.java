@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.SessionTombstone;
+import com.openclassrooms.starterjwt.repository.SessionTombstoneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids of deleted sessions with the time of their deletion, kept for {@code retentionDays}. Older
+ * tombstones are compacted away when a session is deleted and the last compaction is older than
+ * {@code compactionIntervalMs}, so the table never grows past the deletions of the retention period. A
+ * client whose cursor is older than that may have missed deletions and has to sync from scratch.
+ */
+@Component
+public class SessionTombstones {
+    private final SessionTombstoneRepository sessionTombstoneRepository;
+
+    private final long retentionMs;
+
+    private final long compactionIntervalMs;
+
+    private final AtomicLong lastCompactionMs = new AtomicLong();
+
+    public SessionTombstones(SessionTombstoneRepository sessionTombstoneRepository,
+                             @Value("${oc.app.sessionChanges.tombstoneRetentionDays:30}") long retentionDays,
+                             @Value("${oc.app.sessionChanges.compactionIntervalMs:3600000}") long compactionIntervalMs) {
+        this.sessionTombstoneRepository = sessionTombstoneRepository;
+        this.retentionMs = TimeUnit.DAYS.toMillis(retentionDays);
+        this.compactionIntervalMs = compactionIntervalMs;
+    }
+
+    /**
+     * Records the deletion in the caller's transaction, so the tombstone exists if and only if the
+     * deletion commits.
+     */
+    public void record(Long sessionId) {
+        this.sessionTombstoneRepository.insert(sessionId, LocalDateTime.now());
+        compactIfDue();
+    }
+
+    public List<SessionTombstone> findAfter(ChangeCursor after, LocalDateTime until, int limit) {
+        return this.sessionTombstoneRepository.findAfter(after.getTime(), after.getId(), until, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Whether deletions after the cursor may have been compacted away.
+     */
+    public boolean isExpired(ChangeCursor cursor) {
+        return cursor.getTime().isBefore(retainedSince());
+    }
+
+    void compactIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastCompactionMs.get();
+        if (now - last < compactionIntervalMs || !lastCompactionMs.compareAndSet(last, now)) {
+            return;
+        }
+        this.sessionTombstoneRepository.deleteOlderThan(retainedSince());
+    }
+
+    private LocalDateTime retainedSince() {
+        return LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(retentionMs));
+    }
+}
@@ -0,0 +1,19 @@
+package com.openclassrooms.starterjwt.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Published by {@link SessionImporter} for each chunk of sessions it saved, in place of a
+ * {@link SessionChangedEvent} per session. Like those, it is only delivered to
+ * {@code @TransactionalEventListener}s once the chunk committed.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class SessionsImportedEvent {
+    private final List<Long> sessionIds;
+}
@@ -1,24 +1,68 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.Revision;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final EntityManager entityManager;
+
+    public TeacherService(TeacherRepository teacherRepository, EntityManager entityManager) {
         this.teacherRepository = teacherRepository;
+        this.entityManager = entityManager;
     }
 
     public List<Teacher> findAll() {
         return this.teacherRepository.findAll();
     }
 
+    /**
+     * Hands every teacher to the consumer as it is read from a database cursor, evicting them from the
+     * persistence context every {@code chunkSize} rows so that memory does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(int chunkSize, Consumer<Teacher> consumer) {
+        try (Stream<Teacher> teachers = this.teacherRepository.streamAll()) {
+            Iterator<Teacher> iterator = teachers.iterator();
+            for (int read = 1; iterator.hasNext(); read++) {
+                consumer.accept(iterator.next());
+                if (read % chunkSize == 0) {
+                    this.entityManager.clear();
+                }
+            }
+        }
+    }
+
     public Teacher findById(Long id) {
         return this.teacherRepository.findById(id).orElse(null);
     }
+
+    /**
+     * Loads the teacher a client refers to; an unknown id is a client error, reported as
+     * {@link BadRequestException}.
+     */
+    public Teacher findReferenced(Long id) {
+        return this.teacherRepository.findById(id)
+                .orElseThrow(() -> new BadRequestException("Error: No teacher with id " + id + "!"));
+    }
+
+    public Revision getRevision() {
+        return this.teacherRepository.findRevision();
+    }
+
+    public Revision getRevision(Long id) {
+        return this.teacherRepository.findRevision(id);
+    }
 }
@@ -1,22 +1,62 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.Revision;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final TokenRevocationList tokenRevocationList;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, TokenRevocationList tokenRevocationList) {
         this.userRepository = userRepository;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     public void delete(Long id) {
         this.userRepository.deleteById(id);
+        // Tokens of a deleted user must stop working before they expire
+        this.tokenRevocationList.revokeUser(id);
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    public Revision getRevision(Long id) {
+        return this.userRepository.findRevision(id);
+    }
+
+    /**
+     * Loads the users with the given ids in a single query, in the order of the ids and without duplicates.
+     * An unknown or null id is a client error, reported as {@link BadRequestException} naming the unknown
+     * ids.
+     */
+    public List<User> findAllById(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (ids.contains(null)) {
+            throw new BadRequestException("Error: User ids must not be null!");
+        }
+
+        List<Long> distinctIds = ids.stream().distinct().collect(Collectors.toList());
+        Map<Long, User> users = this.userRepository.findAllById(distinctIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (users.size() != distinctIds.size()) {
+            List<Long> unknown = distinctIds.stream().filter(id -> !users.containsKey(id)).collect(Collectors.toList());
+            throw new BadRequestException("Error: No user with id " + unknown + "!");
+        }
+        return distinctIds.stream().map(users::get).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.openclassrooms.starterjwt.security.jwt.JwtClaims;
+import com.openclassrooms.starterjwt.security.jwt.JwtTokenEngine;
+import com.openclassrooms.starterjwt.security.jwt.JwtVerification;
+import com.openclassrooms.starterjwt.security.jwt.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of verifying an access token with the former jjwt parser and with
+ * {@link JwtTokenEngine}. Run with the GC profiler to read allocations per verify ({@code gc.alloc.rate.norm}):
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-cp %classpath com.openclassrooms.starterjwt.benchmark.JwtVerifyBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "openclassrooms";
+
+    private JwtTokenEngine engine;
+
+    private VerifiedTokenCache cache;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        engine = new JwtTokenEngine(SECRET);
+        cache = new VerifiedTokenCache(10000, 300000);
+        long now = System.currentTimeMillis();
+        token = engine.sign(JwtClaims.builder()
+                .subject("yoga@studio.com")
+                .userId(1L)
+                .firstName("Admin")
+                .lastName("Admin")
+                .admin(true)
+                .issuedAtMs(now)
+                .expirationMs(now + TimeUnit.HOURS.toMillis(1))
+                .build());
+    }
+
+    @Benchmark
+    public Claims jjwtParser() {
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public JwtVerification tokenEngine() {
+        return engine.verify(token);
+    }
+
+    @Benchmark
+    public JwtVerification cachedTokenEngine() {
+        return cache.getOrVerify(token, engine::verify);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.services.SessionSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures {@link SessionSearchIndex#search} over 100k synthetic sessions, for a selective word, a common
+ * word, a short prefix and a two-word query:
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-cp %classpath com.openclassrooms.starterjwt.benchmark.SessionSearchBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSearchBenchmark {
+
+    private static final int SESSIONS = 100000;
+
+    private static final String[] STYLES = {"Yoga", "Pilates", "Vinyasa", "Hatha", "Yin", "Ashtanga", "Kundalini",
+            "Meditation", "Stretching", "Breathwork"};
+
+    private static final String[] WORDS = {"morning", "evening", "gentle", "dynamic", "flow", "core", "balance",
+            "strength", "relax", "beginner", "advanced", "studio", "outdoor", "breathing", "posture", "mobility"};
+
+    private SessionSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(SESSIONS);
+        for (long id = 1; id <= SESSIONS; id++) {
+            StringBuilder description = new StringBuilder();
+            for (int i = 0; i < 12; i++) {
+                description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            description.append("teacher").append(random.nextInt(500));
+            rows.add(new Object[]{id, STYLES[random.nextInt(STYLES.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                    description.toString()});
+        }
+
+        // Loaded the way the application does at startup, in a single pass over id-ordered rows
+        SessionRepository sessionRepository = mock(SessionRepository.class);
+        when(sessionRepository.streamSearchFields()).thenReturn(rows.stream());
+        index = new SessionSearchIndex(sessionRepository);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<Long> selectiveWord() {
+        return index.search("teacher123", 20);
+    }
+
+    @Benchmark
+    public List<Long> commonWord() {
+        return index.search("yoga", 20);
+    }
+
+    @Benchmark
+    public List<Long> prefix() {
+        return index.search("te", 20);
+    }
+
+    @Benchmark
+    public List<Long> twoWords() {
+        return index.search("pilates morning", 20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SessionSearchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
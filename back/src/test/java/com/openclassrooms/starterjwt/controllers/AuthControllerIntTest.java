@@ -4,15 +4,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
@@ -23,9 +27,13 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.persistence.EntityManager;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -45,6 +53,9 @@ public class AuthControllerIntTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -152,6 +163,60 @@ public class AuthControllerIntTest {
         assertFalse(response.getAdmin());
     }
 
+    @Test
+    void testAuthenticateUser_SingleSelect() throws Exception {
+        // Arrange
+        User testUser = new User();
+        testUser.setEmail("yoga@studio.com");
+        testUser.setFirstName("Yoga");
+        testUser.setLastName("Studio");
+        testUser.setPassword(passwordEncoder.encode("test!1234"));
+        testUser.setAdmin(true);
+        userRepository.saveAndFlush(testUser);
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        assertEquals(1, statistics.getPrepareStatementCount());
+        JwtResponse response = objectMapper.readValue(result.getResponse().getContentAsString(), JwtResponse.class);
+        assertTrue(response.getAdmin());
+    }
+
+    @Test
+    void testAuthenticateUser_RehashesPasswordWithOtherStrength() throws Exception {
+        // Arrange - Store a hash made with another cost than the configured one
+        User testUser = new User();
+        testUser.setEmail("yoga@studio.com");
+        testUser.setFirstName("Yoga");
+        testUser.setLastName("Studio");
+        testUser.setPassword(new BCryptPasswordEncoder(5).encode("test!1234"));
+        testUser.setAdmin(false);
+        userRepository.save(testUser);
+        assertTrue(passwordEncoder.upgradeEncoding(testUser.getPassword()));
+
+        // Act
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk());
+
+        // Assert
+        entityManager.clear();
+        User rehashed = userRepository.findByEmail("yoga@studio.com").orElseThrow(IllegalStateException::new);
+        assertNotEquals(testUser.getPassword(), rehashed.getPassword());
+        assertFalse(passwordEncoder.upgradeEncoding(rehashed.getPassword()));
+        assertTrue(passwordEncoder.matches("test!1234", rehashed.getPassword()));
+    }
+
     @Test
     void testAuthenticateUser_InvalidCredentials() throws Exception {
         // Arrange - Create a user with different password
@@ -178,4 +243,140 @@ public class AuthControllerIntTest {
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isUnauthorized());
     }
+
+    private JwtResponse login() throws Exception {
+        User testUser = new User();
+        testUser.setEmail("yoga@studio.com");
+        testUser.setFirstName("Yoga");
+        testUser.setLastName("Studio");
+        testUser.setPassword(passwordEncoder.encode("test!1234"));
+        testUser.setAdmin(false);
+        userRepository.save(testUser);
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), JwtResponse.class);
+    }
+
+    private MvcResult refresh(String refreshToken, int expectedStatus) throws Exception {
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken(refreshToken);
+
+        return mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().is(expectedStatus))
+                .andReturn();
+    }
+
+    @Test
+    void testRefreshToken_RotatesRefreshToken() throws Exception {
+        // Arrange
+        JwtResponse loginResponse = login();
+        assertNotNull(loginResponse.getRefreshToken());
+
+        // Act
+        MvcResult result = refresh(loginResponse.getRefreshToken(), 200);
+
+        // Assert
+        JwtResponse refreshed = objectMapper.readValue(result.getResponse().getContentAsString(), JwtResponse.class);
+        assertNotNull(refreshed.getToken());
+        assertNotEquals(loginResponse.getRefreshToken(), refreshed.getRefreshToken());
+        assertEquals("yoga@studio.com", refreshed.getUsername());
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + refreshed.getToken()))
+                .andExpect(status().isOk());
+
+        // A refresh token can only be used once
+        refresh(loginResponse.getRefreshToken(), 401);
+    }
+
+    @Test
+    void testRefreshToken_AccessTokenRejected() throws Exception {
+        // Arrange
+        JwtResponse loginResponse = login();
+
+        // Act & Assert
+        refresh(loginResponse.getToken(), 401);
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + loginResponse.getRefreshToken()))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testLogout_RevokesTokens() throws Exception {
+        // Arrange
+        JwtResponse loginResponse = login();
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken(loginResponse.getRefreshToken());
+
+        // Act
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer " + loginResponse.getToken())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isOk());
+
+        // Assert
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + loginResponse.getToken()))
+                .andExpect(status().isUnauthorized());
+        refresh(loginResponse.getRefreshToken(), 401);
+    }
+
+    @Test
+    void testEventsTicket_OpensEventStreamOnce() throws Exception {
+        // Arrange
+        JwtResponse loginResponse = login();
+        MvcResult result = mockMvc.perform(post("/api/auth/events-ticket")
+                        .header("Authorization", "Bearer " + loginResponse.getToken()))
+                .andExpect(status().isOk())
+                .andReturn();
+        String ticket = objectMapper.readTree(result.getResponse().getContentAsString()).get("ticket").asText();
+
+        // Act - like an EventSource, which cannot send the Authorization header
+        MvcResult stream = mockMvc.perform(get("/api/session/events").param("ticket", ticket))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        stream.getRequest().getAsyncContext().complete();
+
+        // Assert - spent, and never a bearer token
+        mockMvc.perform(get("/api/session/events").param("ticket", ticket))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + ticket))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testEventsTicket_RequiresBearerToken() throws Exception {
+        mockMvc.perform(post("/api/auth/events-ticket"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/session").param("ticket", "not-a-ticket"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testPasswordHashingMetrics_ExposedToAdmins() throws Exception {
+        // Arrange
+        passwordEncoder.encode("password123");
+
+        // Act & Assert
+        mockMvc.perform(get("/actuator/metrics/auth.password.hashing.rejected"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/auth.password.hashing").param("tag", "operation:encode"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser
+    void testPasswordHashingMetrics_HiddenFromUsers() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isForbidden());
+    }
 }
@@ -1,13 +1,22 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtClaims;
+import com.openclassrooms.starterjwt.security.jwt.JwtFailure;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.JwtVerification;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.security.throttle.LoginThrottle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,12 +24,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -41,6 +59,12 @@ public class AuthControllerUnitTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private LoginThrottle loginThrottle;
+
     @Mock
     private Authentication authentication;
 
@@ -48,6 +72,7 @@ public class AuthControllerUnitTest {
     private AuthController authController;
 
     private LoginRequest loginRequest;
+    private MockHttpServletRequest request;
     private SignupRequest signupRequest;
     private User user;
     private UserDetailsImpl userDetails;
@@ -58,6 +83,8 @@ public class AuthControllerUnitTest {
         loginRequest = new LoginRequest();
         loginRequest.setEmail("test@test.com");
         loginRequest.setPassword("password123");
+        request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
 
         // Setup signup request
         signupRequest = new SignupRequest();
@@ -92,10 +119,9 @@ public class AuthControllerUnitTest {
                 .thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(userDetails);
         when(jwtUtils.generateJwtToken(authentication)).thenReturn("testJwtToken");
-        when(userRepository.findByEmail("test@test.com")).thenReturn(Optional.of(user));
 
         // Act
-        ResponseEntity<?> response = authController.authenticateUser(loginRequest);
+        ResponseEntity<?> response = authController.authenticateUser(loginRequest, request);
 
         // Assert
         assertNotNull(response);
@@ -110,20 +136,22 @@ public class AuthControllerUnitTest {
         assertFalse(jwtResponse.getAdmin());
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtUtils, times(1)).generateJwtToken(authentication);
-        verify(userRepository, times(1)).findByEmail("test@test.com");
+        verify(userRepository, never()).findByEmail(anyString());
+        verify(loginThrottle, times(1)).acquire("test@test.com", "10.0.0.1");
+        verify(loginThrottle, times(1)).succeeded("test@test.com");
     }
 
     @Test
-    void testAuthenticateUser_UserNotFound() {
+    void testAuthenticateUser_AdminFromPrincipal() {
         // Arrange
+        UserDetailsImpl adminDetails = userDetails.toBuilder().admin(true).build();
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
-        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(authentication.getPrincipal()).thenReturn(adminDetails);
         when(jwtUtils.generateJwtToken(authentication)).thenReturn("testJwtToken");
-        when(userRepository.findByEmail("test@test.com")).thenReturn(Optional.empty());
 
         // Act
-        ResponseEntity<?> response = authController.authenticateUser(loginRequest);
+        ResponseEntity<?> response = authController.authenticateUser(loginRequest, request);
 
         // Assert
         assertNotNull(response);
@@ -135,10 +163,99 @@ public class AuthControllerUnitTest {
         assertEquals("test@test.com", jwtResponse.getUsername());
         assertEquals("John", jwtResponse.getFirstName());
         assertEquals("Doe", jwtResponse.getLastName());
-        assertFalse(jwtResponse.getAdmin());
+        assertTrue(jwtResponse.getAdmin());
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtUtils, times(1)).generateJwtToken(authentication);
-        verify(userRepository, times(1)).findByEmail("test@test.com");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testRefreshToken_Success() {
+        // Arrange
+        JwtClaims refreshClaims = JwtClaims.builder()
+                .tokenId("old")
+                .type(JwtClaims.TYPE_REFRESH)
+                .subject("test@test.com")
+                .userId(1L)
+                .build();
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken("refreshToken");
+        when(jwtUtils.verify("refreshToken")).thenReturn(JwtVerification.valid(refreshClaims));
+        when(jwtUtils.revoke(refreshClaims)).thenReturn(true);
+        when(userDetailsService.loadUserById(1L)).thenReturn(userDetails);
+        when(jwtUtils.generateJwtToken(userDetails)).thenReturn("newJwtToken");
+        when(jwtUtils.generateRefreshToken(userDetails)).thenReturn("newRefreshToken");
+
+        // Act
+        ResponseEntity<?> response = authController.refreshToken(refreshRequest);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        JwtResponse jwtResponse = (JwtResponse) response.getBody();
+        assertEquals("newJwtToken", jwtResponse.getToken());
+        assertEquals("newRefreshToken", jwtResponse.getRefreshToken());
+        assertEquals(1L, jwtResponse.getId());
+        verify(jwtUtils, times(1)).revoke(refreshClaims);
+    }
+
+    @Test
+    void testRefreshToken_Invalid() {
+        // Arrange
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken("refreshToken");
+        when(jwtUtils.verify("refreshToken")).thenReturn(JwtVerification.invalid(JwtFailure.REVOKED));
+
+        // Act
+        ResponseEntity<?> response = authController.refreshToken(refreshRequest);
+
+        // Assert
+        assertEquals(401, response.getStatusCodeValue());
+        verifyNoInteractions(userDetailsService);
+        verify(jwtUtils, never()).revoke(any());
+    }
+
+    @Test
+    void testRefreshToken_ConcurrentReuse_OnlyOneIssued() throws Exception {
+        // Arrange - the same refresh token presented by several requests at once, revoked for real
+        JwtClaims refreshClaims = JwtClaims.builder()
+                .tokenId("old")
+                .type(JwtClaims.TYPE_REFRESH)
+                .subject("test@test.com")
+                .userId(1L)
+                .expirationMs(System.currentTimeMillis() + 60000)
+                .build();
+        TokenRevocationList revocationList = new TokenRevocationList(60000, 60000);
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken("refreshToken");
+        when(jwtUtils.verify("refreshToken")).thenReturn(JwtVerification.valid(refreshClaims));
+        when(jwtUtils.revoke(refreshClaims)).thenAnswer(invocation ->
+                revocationList.revokeToken(refreshClaims.getTokenId(), refreshClaims.getExpirationMs()));
+        when(userDetailsService.loadUserById(1L)).thenReturn(userDetails);
+        when(jwtUtils.generateJwtToken(userDetails)).thenReturn("newJwtToken");
+        when(jwtUtils.generateRefreshToken(userDetails)).thenReturn("newRefreshToken");
+        int requests = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+
+        // Act
+        List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            responses.add(executor.submit(() -> {
+                start.await();
+                return authController.refreshToken(refreshRequest);
+            }));
+        }
+        start.countDown();
+        List<Integer> statuses = new ArrayList<>();
+        for (Future<ResponseEntity<?>> response : responses) {
+            statuses.add(response.get(5, TimeUnit.SECONDS).getStatusCodeValue());
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, Collections.frequency(statuses, 200));
+        assertEquals(requests - 1, Collections.frequency(statuses, 401));
+        verify(jwtUtils, times(1)).generateRefreshToken(userDetails);
     }
 
     @Test
@@ -179,4 +296,51 @@ public class AuthControllerUnitTest {
         verify(passwordEncoder, never()).encode(anyString());
         verify(userRepository, never()).save(any(User.class));
     }
+
+    @Test
+    void testAuthenticateUser_PasswordHashingSaturated() {
+        // Arrange
+        ServiceUnavailableException saturated = new ServiceUnavailableException(1);
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new InternalAuthenticationServiceException("saturated", saturated));
+
+        // Act & Assert
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> authController.authenticateUser(loginRequest, request));
+        assertSame(saturated, exception);
+        verify(jwtUtils, never()).generateJwtToken(any(Authentication.class));
+    }
+
+    @Test
+    void testAuthenticateUser_Throttled() {
+        // Arrange
+        doThrow(new TooManyRequestsException(30)).when(loginThrottle).acquire("test@test.com", "10.0.0.1");
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> authController.authenticateUser(loginRequest, request));
+        verifyNoInteractions(authenticationManager);
+        verify(loginThrottle, never()).succeeded(anyString());
+    }
+
+    @Test
+    void testHandleTooManyRequests() {
+        // Act
+        ResponseEntity<?> response = authController.handleTooManyRequests(new TooManyRequestsException(30));
+
+        // Assert
+        assertEquals(429, response.getStatusCodeValue());
+        assertEquals("30", response.getHeaders().getFirst("Retry-After"));
+        assertInstanceOf(MessageResponse.class, response.getBody());
+    }
+
+    @Test
+    void testHandleServiceUnavailable() {
+        // Act
+        ResponseEntity<?> response = authController.handleServiceUnavailable(new ServiceUnavailableException(2));
+
+        // Assert
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("2", response.getHeaders().getFirst("Retry-After"));
+        assertInstanceOf(MessageResponse.class, response.getBody());
+    }
 }
@@ -0,0 +1,216 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@TestPropertySource(locations = "classpath:application.properties")
+public class ExportControllerIntTest {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Teacher teacher;
+
+    private User user;
+
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        teacher = new Teacher();
+        teacher.setFirstName("Hélène");
+        teacher.setLastName("Thiercelin");
+        teacher = teacherRepository.save(teacher);
+
+        user = new User();
+        user.setEmail("export@test.com");
+        user.setFirstName("Export");
+        user.setLastName("Reader");
+        user.setPassword("hash");
+        user.setAdmin(false);
+        user = userRepository.save(user);
+
+        session = new Session();
+        session.setName("Vinyasa");
+        session.setDate(new Date());
+        session.setDescription("Breathe, then \"flow\"\nslowly");
+        session.setTeacher(teacher);
+        session.setUsers(new ArrayList<>(Collections.singletonList(user)));
+        session.setParticipantCount(1);
+        session = sessionRepository.save(session);
+
+        // The export reads the tables, not the persistence context
+        entityManager.flush();
+    }
+
+    private static List<String> lines(byte[] body) {
+        return Arrays.asList(new String(body, StandardCharsets.UTF_8).split("\r\n", -1));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = new byte[8192];
+        for (int read; (read = in.read(bytes)) > 0; ) {
+            out.write(bytes, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testExportSessions_Csv() throws Exception {
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/export/sessions"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"sessions.csv\""))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn();
+
+        // Assert - quotes doubled, the field with a comma, quotes and a line break quoted as a whole
+        List<String> lines = lines(result.getResponse().getContentAsByteArray());
+        assertEquals("id,name,date,description,capacity,participant_count,teacher_id,created_at,updated_at", lines.get(0));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith(session.getId()
+                + ",Vinyasa,") && line.contains(",\"Breathe, then \"\"flow\"\"\nslowly\",,1," + teacher.getId() + ",")));
+        assertEquals("", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testExportAttendance_NdjsonGzipped() throws Exception {
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/export/attendance")
+                        .param("format", "ndjson")
+                        .header("Accept-Encoding", "deflate, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn();
+
+        // Assert - one object per line
+        byte[] body = result.getResponse().getContentAsByteArray();
+        List<JsonNode> rows = new ArrayList<>();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String text = new String(readAll(in), StandardCharsets.UTF_8);
+            assertTrue(text.endsWith("\n"));
+            for (String line : text.split("\n")) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        assertTrue(rows.stream().anyMatch(row -> row.get("session_id").asLong() == session.getId()
+                && row.get("user_id").asLong() == user.getId()));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testExportTeachers_NdjsonDates() throws Exception {
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/export/teachers").param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        JsonNode exported = null;
+        for (String line : body.split("\n")) {
+            JsonNode row = objectMapper.readTree(line);
+            if (row.get("id").asLong() == teacher.getId()) {
+                exported = row;
+            }
+        }
+        assertNotNull(exported);
+        assertEquals("Hélène", exported.get("first_name").asText());
+        assertTrue(exported.get("created_at").asText().matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}.*"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testExport_UnknownDatasetOrFormat() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/export/users"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/export/sessions").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testExport_AdminOnly() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/export/sessions"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        // Act & Assert
+        assertTrue(ExportController.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ExportController.acceptsGzip("*"));
+        assertFalse(ExportController.acceptsGzip(null));
+        assertFalse(ExportController.acceptsGzip("identity"));
+        assertFalse(ExportController.acceptsGzip("gzip;q=0"));
+        assertFalse(ExportController.acceptsGzip("gzip;q=0, *"));
+    }
+}
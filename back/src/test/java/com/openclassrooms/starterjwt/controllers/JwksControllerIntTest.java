@@ -0,0 +1,89 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@TestPropertySource(locations = "classpath:application.properties")
+public class JwksControllerIntTest {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+    }
+
+    @Test
+    void testJwks_PublicAndCacheable() throws Exception {
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/auth/jwks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=86400, public"))
+                .andReturn();
+
+        // Assert
+        JsonNode keys = objectMapper.readTree(result.getResponse().getContentAsByteArray()).get("keys");
+        assertTrue(keys.size() >= 2);
+        String etag = result.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/auth/jwks").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testRotate_Unauthenticated() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/keys/rotate"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser
+    void testRotate_NotAdmin() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/keys/rotate"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testRotate_Admin() throws Exception {
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/auth/keys/rotate"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        assertTrue(result.getResponse().getContentAsString().contains("Signing key rotated"));
+    }
+}
@@ -8,7 +8,11 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.ChangeCursor;
+import com.openclassrooms.starterjwt.services.SessionSearchIndex;
 import com.openclassrooms.starterjwt.services.SessionService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,13 +29,22 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -61,6 +74,12 @@ public class SessionControllerIntTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SessionSearchIndex sessionSearchIndex;
+
     private Session testSession;
     private Teacher testTeacher;
     private User testUser;
@@ -121,6 +140,30 @@ public class SessionControllerIntTest {
         assertThat(responseContent).contains(testSession.getDescription());
     }
 
+    @Test
+    @WithMockUser
+    void testFindById_ConditionalGet() throws Exception {
+        // Arrange
+        String eTag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert - the client copy is current
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        // Act & Assert - a new participant changes the validator of the session and of the list
+        String listETag = mockMvc.perform(get("/api/session"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+        mockMvc.perform(get("/api/session").header("If-None-Match", listETag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @WithMockUser
     void testFindById_NotFound() throws Exception {
@@ -150,6 +193,309 @@ public class SessionControllerIntTest {
         assertThat(responseContent).contains(testSession.getName());
     }
 
+    @Test
+    @WithMockUser
+    void testFindAll_KeysetPages() throws Exception {
+        // Arrange - several sessions sharing a date, to exercise the id tie-break
+        Date sameDate = new Date(testSession.getDate().getTime() + 60000);
+        for (int i = 0; i < 4; i++) {
+            Session session = new Session();
+            session.setName("Page Session " + i);
+            session.setDate(i < 3 ? sameDate : new Date(sameDate.getTime() + 60000));
+            session.setDescription("Paged");
+            session.setTeacher(testTeacher);
+            session.setUsers(new ArrayList<>());
+            sessionRepository.save(session);
+        }
+        long total = sessionRepository.count();
+
+        // Act - walk every page of 2
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MvcResult result = mockMvc.perform(get("/api/session")
+                            .param("size", "2")
+                            .param("cursor", cursor == null ? "" : cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            SessionDto[] page = objectMapper.readValue(result.getResponse().getContentAsString(), SessionDto[].class);
+            assertTrue(page.length <= 2);
+            for (SessionDto dto : page) {
+                ids.add(dto.getId());
+            }
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+            pages++;
+        } while (cursor != null);
+
+        // Assert
+        assertEquals(total, ids.size());
+        assertEquals(ids.size(), ids.stream().distinct().count());
+        assertEquals((total + 1) / 2, pages);
+    }
+
+    private long countStatements(String url, int sessions) throws Exception {
+        for (int i = 0; i < sessions; i++) {
+            User user = new User();
+            user.setEmail("participant" + i + "-" + sessions + "@test.com");
+            user.setFirstName("Participant");
+            user.setLastName("Number" + i);
+            user.setPassword("hash");
+            user.setAdmin(false);
+            userRepository.save(user);
+
+            Teacher teacher = new Teacher();
+            teacher.setFirstName("Teacher");
+            teacher.setLastName("Number" + i);
+            teacherRepository.save(teacher);
+
+            Session session = new Session();
+            session.setName("Counted Session " + i);
+            session.setDate(new Date());
+            session.setDescription("Counted");
+            session.setTeacher(teacher);
+            session.setUsers(new ArrayList<>(Arrays.asList(user, testUser)));
+            sessionRepository.save(session);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    @WithMockUser
+    void testFindAll_ConstantStatementCount() throws Exception {
+        // Act
+        long few = countStatements("/api/session", 2);
+        long many = countStatements("/api/session", 10);
+
+        // Assert - one aggregate for the validators, one query for sessions and teachers, one for participant ids
+        assertEquals(3, few);
+        assertEquals(3, many);
+    }
+
+    @Test
+    @WithMockUser
+    void testFindAll_PageConstantStatementCount() throws Exception {
+        // Act
+        long statements = countStatements("/api/session?size=50", 10);
+
+        // Assert
+        assertEquals(2, statements);
+    }
+
+    @Test
+    @WithMockUser
+    void testFindAll_ParticipantIds() throws Exception {
+        // Arrange
+        testSession.getUsers().add(testUser);
+        sessionRepository.save(testSession);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + testSession.getId() + ")].users[0]").value(testUser.getId().intValue()));
+        mockMvc.perform(get("/api/session/" + testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId().intValue()))
+                .andExpect(jsonPath("$.teacher_id").value(testTeacher.getId().intValue()));
+    }
+
+    @Test
+    @WithMockUser
+    void testStreamAll_SameBodyAsListing() throws Exception {
+        // Arrange - more sessions than one chunk, with participants
+        countStatements("/api/session", 5);
+
+        // Act
+        String listed = mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String streamed = mockMvc.perform(get("/api/session").param("stream", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert - the same sessions, in id order
+        List<SessionDto> expected = new ArrayList<>(Arrays.asList(objectMapper.readValue(listed, SessionDto[].class)));
+        expected.sort(Comparator.comparing(SessionDto::getId));
+        assertEquals(expected, Arrays.asList(objectMapper.readValue(streamed, SessionDto[].class)));
+        assertEquals(6, expected.size());
+        assertTrue(expected.stream().filter(dto -> dto.getId() > testSession.getId()).allMatch(dto -> dto.getUsers().size() == 2));
+    }
+
+    @Test
+    @WithMockUser
+    void testFindAll_InvalidCursor() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/session").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindBetween_TeacherFilterAndBounds() throws Exception {
+        // Arrange - one session per day for a week, every other one with another teacher
+        Teacher other = new Teacher();
+        other.setFirstName("Other");
+        other.setLastName("Teacher");
+        other = teacherRepository.save(other);
+        Date start = new Date(testSession.getDate().getTime() + TimeUnit.DAYS.toMillis(1000));
+        for (int day = 0; day < 7; day++) {
+            Session session = new Session();
+            session.setName("Day " + day);
+            session.setDate(new Date(start.getTime() + TimeUnit.DAYS.toMillis(day)));
+            session.setDescription("Calendar");
+            session.setTeacher(day % 2 == 0 ? testTeacher : other);
+            sessionRepository.save(session);
+        }
+        sessionRepository.flush();
+        String from = Instant.ofEpochMilli(start.getTime() + TimeUnit.DAYS.toMillis(1)).toString();
+        String to = Instant.ofEpochMilli(start.getTime() + TimeUnit.DAYS.toMillis(5)).toString();
+
+        // Act & Assert - from included, to excluded
+        mockMvc.perform(get("/api/session/range").param("from", from).param("to", to))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("Day 1", "Day 2", "Day 3", "Day 4")));
+        mockMvc.perform(get("/api/session/range").param("from", from).param("to", to)
+                        .param("teacherId", String.valueOf(other.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("Day 1", "Day 3")));
+        mockMvc.perform(get("/api/session/range").param("from", to).param("to", from))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/session/range").param("from", "yesterday").param("to", to))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindUpcoming() throws Exception {
+        // Arrange - testSession was created just before, so it is already past
+        for (int day = 2; day >= 1; day--) {
+            Session session = new Session();
+            session.setName("In " + day + " days");
+            session.setDate(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(day)));
+            session.setDescription("Upcoming");
+            session.setTeacher(testTeacher);
+            sessionRepository.save(session);
+        }
+
+        // Act & Assert
+        mockMvc.perform(get("/api/session/upcoming").param("teacherId", String.valueOf(testTeacher.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("In 1 days", "In 2 days")));
+        mockMvc.perform(get("/api/session/upcoming").param("size", "1"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void testFindBetween_UsesDateIndexes() {
+        // Act - H2 names the index it picked in the plan
+        String byDate = (String) entityManager.createNativeQuery(
+                "explain select * from SESSIONS where date >= '2024-01-01' and date < '2024-02-01'").getSingleResult();
+        String byTeacher = (String) entityManager.createNativeQuery(
+                "explain select * from SESSIONS where teacher_id = 1 and date >= '2024-01-01' and date < '2024-02-01'")
+                .getSingleResult();
+
+        // Assert
+        assertThat(byDate.toUpperCase()).contains("IDX_SESSIONS_DATE_ID");
+        assertThat(byTeacher.toUpperCase()).contains("IDX_SESSIONS_TEACHER_DATE");
+    }
+
+    @Test
+    @WithMockUser
+    void testFindChanges_SyncsWritesAndDeletions() throws Exception {
+        // Arrange - a first sync returns every session, then the client keeps the cursor
+        Session other = new Session();
+        other.setName("To Be Deleted");
+        other.setDate(new Date());
+        other.setDescription("Cancelled soon");
+        other.setTeacher(testTeacher);
+        other = sessionRepository.saveAndFlush(other);
+        String cursor = objectMapper.readTree(mockMvc.perform(get("/api/session/changes").param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.deleted.length()").value(0))
+                .andReturn().getResponse().getContentAsString()).get("next").asText();
+        mockMvc.perform(get("/api/session/changes").param("since", cursor))
+                .andExpect(jsonPath("$.sessions.length()").value(0))
+                .andExpect(jsonPath("$.deleted.length()").value(0));
+
+        // Act - one session changes, another one is deleted
+        testSession.setName("Renamed Session");
+        sessionRepository.saveAndFlush(testSession);
+        mockMvc.perform(delete("/api/session/{id}", other.getId())).andExpect(status().isOk());
+
+        // Assert
+        mockMvc.perform(get("/api/session/changes").param("since", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sessions.length()").value(1))
+                .andExpect(jsonPath("$.sessions[0].name").value("Renamed Session"))
+                .andExpect(jsonPath("$.deleted").value(contains(other.getId().intValue())))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    @WithMockUser
+    void testFindChanges_ExpiredOrInvalidCursor() throws Exception {
+        // Arrange
+        String expired = new ChangeCursor(LocalDateTime.now().minusDays(31), 1L).encode();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/session/changes").param("since", expired))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/api/session/changes").param("since", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testFindChanges_UsesUpdatedAtIndex() {
+        // Act - H2 names the index it picked in the plan
+        String plan = (String) entityManager.createNativeQuery(
+                "explain select * from SESSIONS where updated_at > '2024-01-01' order by updated_at, id").getSingleResult();
+
+        // Assert
+        assertThat(plan.toUpperCase()).contains("IDX_SESSIONS_UPDATED_AT_ID");
+    }
+
+    @Test
+    @WithMockUser
+    void testSearch() throws Exception {
+        // Arrange - test transactions never commit, so the index is rebuilt from what they wrote
+        Session other = new Session();
+        other.setName("Vinyasa Flow");
+        other.setDate(new Date());
+        other.setDescription("Dynamic yoga with Hélène");
+        other.setTeacher(testTeacher);
+        other = sessionRepository.save(other);
+        sessionRepository.flush();
+        sessionSearchIndex.rebuild();
+
+        try {
+            // Act & Assert - name matches first, accents ignored, prefixes allowed
+            mockMvc.perform(get("/api/session/search").param("q", "YOG"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].id").value(testSession.getId()))
+                    .andExpect(jsonPath("$[1].id").value(other.getId()));
+            mockMvc.perform(get("/api/session/search").param("q", "helene flow"))
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].name").value("Vinyasa Flow"));
+            mockMvc.perform(get("/api/session/search").param("q", "pilates"))
+                    .andExpect(jsonPath("$.length()").value(0));
+        } finally {
+            sessionSearchIndex.remove(testSession.getId());
+            sessionSearchIndex.remove(other.getId());
+        }
+    }
+
     @Test
     @WithMockUser
     void testCreate() throws Exception {
@@ -170,6 +516,178 @@ public class SessionControllerIntTest {
         assertTrue(sessions.stream().anyMatch(s -> s.getName().equals(sessionDto.getName())));
     }
 
+    @Test
+    @WithMockUser
+    void testCreate_ResolvesUsersInOneQuery() throws Exception {
+        // Arrange
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            User user = new User();
+            user.setEmail("attendee" + i + "@test.com");
+            user.setFirstName("Attendee");
+            user.setLastName("Number" + i);
+            user.setPassword("hash");
+            user.setAdmin(false);
+            userIds.add(userRepository.save(user).getId());
+        }
+        sessionDto.setUsers(userIds);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        mockMvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(20));
+        entityManager.flush();
+
+        // Assert - one select for the teacher, one for all the users, the session insert and the join rows in one
+        // batch, plus a statement for the next block of ids when the current one ran out
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertThat(statistics.getPrepareStatementCount()).isBetween(4L, 5L);
+    }
+
+    @Test
+    @WithMockUser
+    void testCreate_UnknownUser() throws Exception {
+        // Arrange
+        sessionDto.setUsers(Arrays.asList(testUser.getId(), 999999L));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: No user with id [999999]!"));
+    }
+
+    @Test
+    @WithMockUser
+    void testCreate_UnknownTeacher() throws Exception {
+        // Arrange
+        sessionDto.setTeacher_id(999999L);
+        long sessions = sessionRepository.count();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: No teacher with id 999999!"));
+        assertEquals(sessions, sessionRepository.count());
+    }
+
+    @Test
+    @WithMockUser
+    void testCreate_MoreParticipantsThanCapacity() throws Exception {
+        // Arrange
+        User other = new User();
+        other.setEmail("other@test.com");
+        other.setFirstName("Other");
+        other.setLastName("User");
+        other.setPassword("hash");
+        other.setAdmin(false);
+        other = userRepository.save(other);
+        sessionDto.setCapacity(1);
+        sessionDto.setUsers(Arrays.asList(testUser.getId(), other.getId()));
+        long sessions = sessionRepository.count();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isBadRequest());
+        assertEquals(sessions, sessionRepository.count());
+    }
+
+    @Test
+    @WithMockUser
+    void testImport_Ndjson_ReportsFailedRows() throws Exception {
+        // Arrange - chunks of two rows in tests, so the valid rows are saved in different transactions
+        SessionDto invalid = new SessionDto(null, "", new Date(), testTeacher.getId(), "No name", null, null, null, null, null);
+        SessionDto unknownTeacher = new SessionDto(null, "Nobody teaches", new Date(), 999999L, "Lost", null, null, null, null, null);
+        SessionDto other = new SessionDto(null, "Imported Hatha", new Date(), testTeacher.getId(), "Slow", null, null, null, null, null);
+        sessionDto.setName("Imported Vinyasa");
+        sessionDto.setUsers(Arrays.asList(testUser.getId()));
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(sessionDto),
+                objectMapper.writeValueAsString(invalid),
+                objectMapper.writeValueAsString(unknownTeacher),
+                "{\"name\": \"Bad date\", \"date\": \"yesterday\"}",
+                objectMapper.writeValueAsString(other));
+
+        try {
+            // Act & Assert
+            mockMvc.perform(post("/api/session/import")
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(2))
+                    .andExpect(jsonPath("$.failed").value(3))
+                    .andExpect(jsonPath("$.errors[*].row", contains(1, 2, 3)))
+                    .andExpect(jsonPath("$.errors[0].message").value("name: must not be blank"))
+                    .andExpect(jsonPath("$.errors[1].message").value("teacher_id: no teacher 999999"));
+
+            List<Session> imported = sessionRepository.findAll();
+            Session vinyasa = imported.stream().filter(s -> s.getName().equals("Imported Vinyasa")).findFirst().get();
+            assertEquals(1, vinyasa.getParticipantCount());
+            assertEquals(testUser.getId(), vinyasa.getUsers().get(0).getId());
+            assertTrue(imported.stream().anyMatch(s -> s.getName().equals("Imported Hatha")));
+            assertEquals(Arrays.asList(vinyasa.getId()), sessionSearchIndex.search("vinyasa", 10));
+        } finally {
+            sessionRepository.findAll().forEach(session -> sessionSearchIndex.remove(session.getId()));
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void testImport_JsonArray() throws Exception {
+        // Arrange
+        List<SessionDto> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new SessionDto(null, "Array " + i, new Date(), testTeacher.getId(), "Imported", null, null, null, null, null));
+        }
+        long before = sessionRepository.count();
+
+        try {
+            // Act & Assert
+            mockMvc.perform(post("/api/session/import")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(rows)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(5))
+                    .andExpect(jsonPath("$.failed").value(0))
+                    .andExpect(jsonPath("$.errors.length()").value(0));
+            assertEquals(before + 5, sessionRepository.count());
+        } finally {
+            sessionRepository.findAll().forEach(session -> sessionSearchIndex.remove(session.getId()));
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void testImport_TruncatedArray_KeepsRowsBefore() throws Exception {
+        // Arrange
+        String body = "[" + objectMapper.writeValueAsString(sessionDto) + ", {\"name\": ";
+
+        try {
+            // Act & Assert
+            mockMvc.perform(post("/api/session/import")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(1))
+                    .andExpect(jsonPath("$.failed").value(1))
+                    .andExpect(jsonPath("$.errors[0].row").value(1))
+                    .andExpect(jsonPath("$.errors[0].message").value("Row could not be read"));
+        } finally {
+            sessionRepository.findAll().forEach(session -> sessionSearchIndex.remove(session.getId()));
+        }
+    }
+
     @Test
     @WithMockUser
     void testUpdate_Success() throws Exception {
@@ -196,6 +714,28 @@ public class SessionControllerIntTest {
         assertEquals("Updated session description", updatedSession.getDescription());
     }
 
+    @Test
+    @WithMockUser
+    void testUpdate_MoreParticipantsThanCapacity() throws Exception {
+        // Arrange
+        User other = new User();
+        other.setEmail("other@test.com");
+        other.setFirstName("Other");
+        other.setLastName("User");
+        other.setPassword("hash");
+        other.setAdmin(false);
+        other = userRepository.save(other);
+        sessionDto.setCapacity(1);
+        sessionDto.setUsers(Arrays.asList(testUser.getId(), other.getId()));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isBadRequest());
+        assertNull(sessionRepository.findById(testSession.getId()).get().getCapacity());
+    }
+
     @Test
     @WithMockUser
     void testUpdate_BadRequest() throws Exception {
@@ -270,6 +810,96 @@ public class SessionControllerIntTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser
+    void testParticipate_NotFound() throws Exception {
+        // Act & Assert - Unknown session, then unknown user
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", 999999L, testUser.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), 999999L))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", 999999L, testUser.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void testParticipate_SingleStatementWhateverTheSessionSize() throws Exception {
+        // Arrange - a session that already has many participants
+        List<User> participants = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            User user = new User();
+            user.setEmail("crowd" + i + "@test.com");
+            user.setFirstName("Crowd");
+            user.setLastName("Member" + i);
+            user.setPassword("hash");
+            user.setAdmin(false);
+            participants.add(userRepository.save(user));
+        }
+        testSession.setUsers(participants);
+        sessionRepository.save(testSession);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+
+        // Assert - seat and row on the way in; row, seat and empty waitlist on the way out
+        assertEquals(5, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @WithMockUser
+    void testParticipate_CapacityAndWaitlist() throws Exception {
+        // Arrange - a one-seat session and two more users
+        testSession.setCapacity(1);
+        sessionRepository.save(testSession);
+        List<Long> others = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            User user = new User();
+            user.setEmail("waiting" + i + "@test.com");
+            user.setFirstName("Waiting");
+            user.setLastName("User" + i);
+            user.setPassword("hash");
+            user.setAdmin(false);
+            others.add(userRepository.save(user).getId());
+        }
+
+        // Act & Assert - the first user gets the seat, the others are queued in order
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), others.get(0)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), others.get(1)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), others.get(1)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/session/{id}/waitlist", testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(others.get(0)))
+                .andExpect(jsonPath("$[1]").value(others.get(1)));
+
+        // Act & Assert - leaving hands the seat to the oldest waiting user
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.capacity").value(1))
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0]").value(others.get(0)));
+
+        // Act & Assert - a waiting user can leave the queue
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), others.get(1)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/session/{id}/waitlist", testSession.getId()))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
     @Test
     @WithMockUser
     void testNoLongerParticipate_Success() throws Exception {
@@ -5,6 +5,14 @@ import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.SessionChangesResponse;
+import com.openclassrooms.starterjwt.repository.Revision;
+import com.openclassrooms.starterjwt.services.ChangeCursor;
+import com.openclassrooms.starterjwt.services.Participation;
+import com.openclassrooms.starterjwt.services.SessionChanges;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionImporter;
+import com.openclassrooms.starterjwt.services.SessionPage;
 import com.openclassrooms.starterjwt.services.SessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,12 +22,21 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,6 +52,12 @@ public class SessionControllerUnitTest {
     @Mock
     private SessionMapper sessionMapper;
 
+    @Mock
+    private SessionEventStream sessionEventStream;
+
+    @Mock
+    private SessionImporter sessionImporter;
+
     @InjectMocks
     private SessionController sessionController;
 
@@ -87,43 +110,86 @@ public class SessionControllerUnitTest {
         sessionDtos = new ArrayList<>(Arrays.asList(sessionDto));
     }
 
+    private static WebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/session"), new MockHttpServletResponse());
+    }
+
+    private static Revision revision(long count, LocalDateTime lastModified) {
+        return new Revision() {
+            @Override
+            public long getCount() {
+                return count;
+            }
+
+            @Override
+            public LocalDateTime getLastModified() {
+                return lastModified;
+            }
+        };
+    }
+
     @Test
     void testFindById_Success() {
         // Arrange
+        Map<Long, List<Long>> participants = Collections.singletonMap(1L, Collections.singletonList(1L));
+        when(sessionService.getRevision(1L)).thenReturn(revision(1, LocalDateTime.now()));
         when(sessionService.getById(1L)).thenReturn(session);
-        when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+        when(sessionService.findParticipantIds(Collections.singletonList(session))).thenReturn(participants);
+        when(sessionMapper.toDto(Collections.singletonList(session), participants))
+                .thenReturn(Collections.singletonList(sessionDto));
 
         // Act
-        ResponseEntity<?> response = sessionController.findById("1");
+        ResponseEntity<?> response = sessionController.findById("1", request());
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(sessionDto, response.getBody());
+        assertNotNull(response.getHeaders().getETag());
         verify(sessionService, times(1)).getById(1L);
-        verify(sessionMapper, times(1)).toDto(session);
+        verify(sessionMapper, never()).toDto(any(Session.class));
     }
 
     @Test
     void testFindById_NotFound() {
         // Arrange
-        when(sessionService.getById(1L)).thenReturn(null);
+        when(sessionService.getRevision(1L)).thenReturn(revision(0, null));
 
         // Act
-        ResponseEntity<?> response = sessionController.findById("1");
+        ResponseEntity<?> response = sessionController.findById("1", request());
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
-        verify(sessionService, times(1)).getById(1L);
+        verify(sessionService, never()).getById(anyLong());
         verify(sessionMapper, never()).toDto(any(Session.class));
     }
 
+    @Test
+    void testFindById_NotModified() {
+        // Arrange
+        when(sessionService.getRevision(1L)).thenReturn(revision(1, LocalDateTime.now()));
+        when(sessionService.getById(1L)).thenReturn(session);
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Collections.singletonList(sessionDto));
+        String eTag = sessionController.findById("1", request()).getHeaders().getETag();
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/api/session/1");
+        conditional.addHeader("If-None-Match", eTag);
+
+        // Act
+        ResponseEntity<?> response = sessionController.findById("1", new ServletWebRequest(conditional, new MockHttpServletResponse()));
+
+        // Assert - answered before loading or mapping the session
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(eTag, response.getHeaders().getETag());
+        verify(sessionService, times(1)).getById(1L);
+        verify(sessionMapper, times(1)).toDto(anyList(), anyMap());
+    }
+
     @Test
     void testFindById_InvalidId() {
         // Act
-        ResponseEntity<?> response = sessionController.findById("invalid");
+        ResponseEntity<?> response = sessionController.findById("invalid", request());
 
         // Assert
         assertNotNull(response);
@@ -136,18 +202,173 @@ public class SessionControllerUnitTest {
     @Test
     void testFindAll() {
         // Arrange
+        Map<Long, List<Long>> participants = Collections.singletonMap(1L, Collections.singletonList(1L));
+        when(sessionService.getRevision()).thenReturn(revision(1, LocalDateTime.now()));
         when(sessionService.findAll()).thenReturn(sessions);
-        when(sessionMapper.toDto(sessions)).thenReturn(sessionDtos);
+        when(sessionService.findParticipantIds(sessions)).thenReturn(participants);
+        when(sessionMapper.toDto(sessions, participants)).thenReturn(sessionDtos);
 
         // Act
-        ResponseEntity<?> response = sessionController.findAll();
+        ResponseEntity<?> response = sessionController.findAll(null, null, request());
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(sessionDtos, response.getBody());
         verify(sessionService, times(1)).findAll();
-        verify(sessionMapper, times(1)).toDto(sessions);
+        verify(sessionMapper, times(1)).toDto(sessions, participants);
+        verify(sessionMapper, never()).toDto(sessions);
+    }
+
+    @Test
+    void testFindAll_Page() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionController, "maxPageSize", 100);
+        SessionCursor cursor = new SessionCursor(new Date(1000L), 5L);
+        SessionCursor next = SessionCursor.after(session);
+        when(sessionService.findPage(any(SessionCursor.class), eq(100))).thenReturn(new SessionPage(sessions, next));
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = sessionController.findAll(cursor.encode(), 500, request());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(sessionDtos, response.getBody());
+        assertEquals(next.encode(), response.getHeaders().getFirst("X-Next-Cursor"));
+        verify(sessionService, never()).findAll();
+    }
+
+    @Test
+    void testFindAll_LastPageHasNoCursor() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionController, "maxPageSize", 100);
+        when(sessionService.findPage(null, 20)).thenReturn(new SessionPage(sessions, null));
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = sessionController.findAll("", null, request());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertFalse(response.getHeaders().containsKey("X-Next-Cursor"));
+    }
+
+    @Test
+    void testFindAll_InvalidPageSize() {
+        // Act
+        ResponseEntity<?> response = sessionController.findAll(null, 0, request());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    void testSearch() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionController, "maxPageSize", 100);
+        when(sessionService.search("yoga", 100)).thenReturn(sessions);
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = sessionController.search("yoga", 500);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(sessionDtos, response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, sessionController.search("yoga", 0).getStatusCode());
+    }
+
+    @Test
+    void testFindBetween() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "maxRangeDays", 31);
+        Date from = new Date(0L);
+        Date to = new Date(TimeUnit.DAYS.toMillis(7));
+        when(sessionService.findBetween(from, to, 1L)).thenReturn(sessions);
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = sessionController.findBetween(from, to, 1L);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(sessionDtos, response.getBody());
+    }
+
+    @Test
+    void testFindBetween_BadRange() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "maxRangeDays", 31);
+        Date from = new Date(0L);
+
+        // Act & Assert - empty, reversed and too long ranges
+        assertEquals(HttpStatus.BAD_REQUEST, sessionController.findBetween(from, from, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, sessionController.findBetween(new Date(1000L), from, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                sessionController.findBetween(from, new Date(TimeUnit.DAYS.toMillis(32)), null).getStatusCode());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    void testFindUpcoming() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionController, "maxPageSize", 100);
+        when(sessionService.findUpcoming(null, 20)).thenReturn(sessions);
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = sessionController.findUpcoming(null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(sessionDtos, response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, sessionController.findUpcoming(1L, 0).getStatusCode());
+    }
+
+    @Test
+    void testFindChanges() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionController, "maxPageSize", 100);
+        ChangeCursor since = new ChangeCursor(LocalDateTime.of(2024, 1, 1, 10, 0), 3L);
+        ChangeCursor next = new ChangeCursor(LocalDateTime.of(2024, 1, 2, 10, 0), 7L);
+        when(sessionService.findChanges(any(ChangeCursor.class), any(LocalDateTime.class), eq(100)))
+                .thenReturn(new SessionChanges(sessions, Collections.singletonList(4L), next, true));
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = sessionController.findChanges(since.encode(), 500);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        SessionChangesResponse body = (SessionChangesResponse) response.getBody();
+        assertEquals(sessionDtos, body.getSessions());
+        assertEquals(Collections.singletonList(4L), body.getDeleted());
+        assertEquals(next.encode(), body.getNext());
+        assertTrue(body.isHasMore());
+        assertEquals(HttpStatus.BAD_REQUEST, sessionController.findChanges(null, 0).getStatusCode());
+    }
+
+    @Test
+    void testEvents() {
+        // Arrange
+        SseEmitter emitter = new SseEmitter();
+        when(sessionEventStream.subscribe()).thenReturn(emitter);
+
+        // Act & Assert
+        assertSame(emitter, sessionController.events());
     }
 
     @Test
@@ -248,7 +469,7 @@ public class SessionControllerUnitTest {
     @Test
     void testParticipate_Success() {
         // Arrange
-        doNothing().when(sessionService).participate(1L, 1L);
+        when(sessionService.participate(1L, 1L)).thenReturn(Participation.PARTICIPATING);
 
         // Act
         ResponseEntity<?> response = sessionController.participate("1", "1");
@@ -259,6 +480,32 @@ public class SessionControllerUnitTest {
         verify(sessionService, times(1)).participate(1L, 1L);
     }
 
+    @Test
+    void testParticipate_Waitlisted() {
+        // Arrange
+        when(sessionService.participate(1L, 1L)).thenReturn(Participation.WAITLISTED);
+
+        // Act
+        ResponseEntity<?> response = sessionController.participate("1", "1");
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    }
+
+    @Test
+    void testFindWaitlist() {
+        // Arrange
+        when(sessionService.findWaitlist(1L)).thenReturn(Arrays.asList(3L, 2L));
+
+        // Act
+        ResponseEntity<?> response = sessionController.findWaitlist("1");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Arrays.asList(3L, 2L), response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, sessionController.findWaitlist("invalid").getStatusCode());
+    }
+
     @Test
     void testParticipate_InvalidId() {
         // Act
@@ -0,0 +1,111 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Subscribes to the session events and books a seat. Without the test transaction of the other
+ * integration tests, so that the booking commits and its event is delivered.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application.properties")
+public class SessionEventStreamIntTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionEventStream sessionEventStream;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    private Session session;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+        session = sessionRepository.save(Session.builder()
+                .name("Streamed Session")
+                .date(new Date())
+                .description("Watched by the calendar")
+                .users(new ArrayList<>())
+                .build());
+        user = userRepository.save(new User("events@test.com", "Eve", "Events", "hash", false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from PARTICIPATE where session_id = ?", session.getId());
+        sessionRepository.deleteById(session.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    @WithMockUser
+    void testEvents_PushesCommittedBooking() throws Exception {
+        // Arrange
+        int subscribers = sessionEventStream.size();
+        MvcResult result = mockMvc.perform(get("/api/session/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(subscribers + 1, sessionEventStream.size());
+
+        // Act
+        sessionService.participate(session.getId(), user.getId());
+
+        // Assert
+        String expected = "data:{\"type\":\"PARTICIPANTS\",\"sessionId\":" + session.getId() + "}";
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.getResponse().getContentAsString().contains(expected)) {
+            assertTrue(System.nanoTime() < deadline, "Event not received in time");
+            Thread.sleep(10);
+        }
+        assertTrue(result.getResponse().getContentAsString().contains("event:session"));
+        assertTrue(result.getResponse().getContentType().startsWith("text/event-stream"));
+
+        // Closing the connection unsubscribes
+        result.getRequest().getAsyncContext().complete();
+        assertEquals(subscribers, sessionEventStream.size());
+    }
+}
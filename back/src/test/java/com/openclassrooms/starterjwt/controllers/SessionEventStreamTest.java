@@ -0,0 +1,247 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.services.SessionChangedEvent;
+import com.openclassrooms.starterjwt.services.SessionsImportedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionEventStreamTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SessionEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Heartbeats are triggered by hand
+        stream = new SessionEventStream(new ObjectMapper(), BUFFER_SIZE, 2, 3600000, 60000, 60000, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.destroy();
+    }
+
+    /**
+     * Keeps the frames it is asked to send, optionally waiting for a latch first like a client that does not
+     * read, or failing like a client that went away.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+
+        final CountDownLatch unblocked;
+
+        final boolean failing;
+
+        volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch unblocked, boolean failing) {
+            this.unblocked = unblocked;
+            this.failing = failing;
+        }
+
+        RecordingEmitter() {
+            this(new CountDownLatch(0), false);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                unblocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder frame = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                frame.append(data.getData());
+            }
+            frames.add(frame.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    /**
+     * A client whose first write never returns before it is released, even when its thread is interrupted.
+     */
+    private static class StuckEmitter extends RecordingEmitter {
+        final CountDownLatch writing = new CountDownLatch(1);
+
+        StuckEmitter(CountDownLatch unblocked) {
+            super(unblocked, false);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            writing.countDown();
+            boolean interrupted = false;
+            while (unblocked.getCount() > 0) {
+                try {
+                    unblocked.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            super.send(builder);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static SessionChangedEvent updated(long sessionId) {
+        return new SessionChangedEvent(SessionChangedEvent.Type.UPDATED, sessionId, "Yoga", "Flow");
+    }
+
+    @Test
+    void testOnSessionChanged_SendsCompactEventToEverySubscriber() throws Exception {
+        // Arrange
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        stream.register(first);
+        stream.register(second);
+
+        // Act
+        stream.onSessionChanged(updated(3L));
+        stream.onSessionChanged(new SessionChangedEvent(SessionChangedEvent.Type.PARTICIPANTS, 3L, null, null));
+
+        // Assert - ids increase, fields other than the type and the session id are not sent
+        await(() -> first.frames.size() == 2 && second.frames.size() == 2);
+        assertEquals("id:1\nevent:session\ndata:{\"type\":\"UPDATED\",\"sessionId\":3}\n\n", first.frames.get(0));
+        assertEquals("id:2\nevent:session\ndata:{\"type\":\"PARTICIPANTS\",\"sessionId\":3}\n\n", second.frames.get(1));
+    }
+
+    @Test
+    void testOnSessionsImported_SendsOneEventPerChunk() throws Exception {
+        // Arrange
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.register(emitter);
+
+        // Act
+        stream.onSessionsImported(new SessionsImportedEvent(Arrays.asList(7L, 8L, 9L)));
+
+        // Assert
+        await(() -> emitter.frames.size() == 1);
+        assertEquals("id:1\nevent:session\ndata:{\"type\":\"IMPORTED\",\"sessionIds\":[7,8,9]}\n\n",
+                emitter.frames.get(0));
+    }
+
+    @Test
+    void testHeartbeat_SentAsComment() throws Exception {
+        // Arrange
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.register(emitter);
+
+        // Act
+        stream.heartbeat();
+
+        // Assert
+        await(() -> emitter.frames.size() == 1);
+        assertEquals(":heartbeat\n\n", emitter.frames.get(0));
+    }
+
+    @Test
+    void testSlowSubscriber_IsEvictedWithoutDelayingOthers() throws Exception {
+        // Arrange - the slow client's first send blocks, so its buffer fills up behind it
+        CountDownLatch unblocked = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(unblocked, false);
+        RecordingEmitter fast = new RecordingEmitter();
+        stream.register(slow);
+        stream.register(fast);
+
+        // Act - at the pace the fast client reads, so only the slow one falls behind
+        for (int i = 1; i <= 2 * BUFFER_SIZE; i++) {
+            stream.onSessionChanged(updated(i));
+            int sent = i;
+            await(() -> fast.frames.size() == sent);
+        }
+
+        // Assert
+        assertEquals(1, stream.size());
+        assertEquals(1.0, meterRegistry.get("sessions.events.evicted").counter().count());
+
+        // Once a pending write returns, the sender completes the evicted connection and sends nothing more
+        unblocked.countDown();
+        await(() -> slow.completed);
+        assertTrue(slow.frames.size() <= 1);
+    }
+
+    @Test
+    void testStuckWrite_GivenUpWithoutHoldingTheOnlySender() throws Exception {
+        // Arrange - a single sender thread, stuck writing to one client
+        SimpleMeterRegistry singleRegistry = new SimpleMeterRegistry();
+        SessionEventStream single = new SessionEventStream(new ObjectMapper(), BUFFER_SIZE, 1, 3600000, 60000, 100,
+                singleRegistry);
+        CountDownLatch unblocked = new CountDownLatch(1);
+        StuckEmitter stuck = new StuckEmitter(unblocked);
+        RecordingEmitter other = new RecordingEmitter();
+        try {
+            single.register(stuck);
+            single.heartbeat();
+            assertTrue(stuck.writing.await(5, TimeUnit.SECONDS));
+            single.register(other);
+
+            // Act
+            single.onSessionChanged(updated(3L));
+
+            // Assert - the other client is served once the stuck write is given up
+            await(() -> other.frames.size() == 1);
+            assertEquals("id:1\nevent:session\ndata:{\"type\":\"UPDATED\",\"sessionId\":3}\n\n", other.frames.get(0));
+            assertEquals(1, single.size());
+            assertEquals(1.0, singleRegistry.get("sessions.events.evicted").counter().count());
+
+            // The stuck connection is completed once its write returns
+            unblocked.countDown();
+            await(() -> stuck.completed);
+        } finally {
+            unblocked.countDown();
+            single.destroy();
+        }
+    }
+
+    @Test
+    void testFailedSend_RemovesSubscriber() throws Exception {
+        // Arrange
+        RecordingEmitter gone = new RecordingEmitter(new CountDownLatch(0), true);
+        stream.register(gone);
+
+        // Act
+        stream.heartbeat();
+
+        // Assert
+        await(() -> stream.size() == 0);
+        assertEquals(0.0, meterRegistry.get("sessions.events.subscribers").gauge().value());
+    }
+}
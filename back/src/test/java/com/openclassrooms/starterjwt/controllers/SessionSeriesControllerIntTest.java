@@ -0,0 +1,401 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionSeriesDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionSeriesRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionSeriesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@TestPropertySource(locations = "classpath:application.properties")
+public class SessionSeriesControllerIntTest {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionSeriesService sessionSeriesService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private SessionSeriesRepository sessionSeriesRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Teacher teacher;
+
+    private SessionSeries series;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        teacher = new Teacher();
+        teacher.setFirstName("Series");
+        teacher.setLastName("Teacher");
+        teacher = teacherRepository.save(teacher);
+
+        // Mondays and Thursdays at 18:00 UTC from Monday 2 March 2026, without the 12th
+        series = sessionSeriesService.create(SessionSeries.builder()
+                .name("Evening flow")
+                .description("Weekly")
+                .capacity(10)
+                .teacher(teacher)
+                .startsAt(Date.from(Instant.parse("2026-03-02T18:00:00Z")))
+                .timeZone("UTC")
+                .frequency(SessionSeries.Frequency.WEEKLY)
+                .interval(1)
+                .byDay(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY))
+                .count(8)
+                .exceptions(new HashSet<>(Collections.singletonList(LocalDate.of(2026, 3, 12))))
+                .build());
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("Series");
+        user.setLastName("Member");
+        user.setPassword("hash");
+        user.setAdmin(false);
+        return userRepository.save(user);
+    }
+
+    @Test
+    @WithMockUser
+    void testCreate() throws Exception {
+        // Arrange
+        SessionSeriesDto dto = new SessionSeriesDto();
+        dto.setName("Morning yoga");
+        dto.setDescription("Every other day");
+        dto.setTeacher_id(teacher.getId());
+        dto.setStartsAt(Date.from(Instant.parse("2026-04-01T07:30:00.250Z")));
+        dto.setTimeZone("Europe/Paris");
+        dto.setFrequency(SessionSeries.Frequency.DAILY);
+        dto.setInterval(2);
+        dto.setCount(5);
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teacher_id").value(teacher.getId()))
+                .andReturn();
+
+        // Assert - the start is kept to the second
+        JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+        SessionSeries saved = sessionSeriesService.findById(created.get("id").asLong());
+        assertEquals(Instant.parse("2026-04-01T07:30:00Z"), saved.getStartsAt().toInstant());
+        assertEquals(Instant.parse("2026-04-09T07:30:00Z"), saved.getEndsAt().toInstant());
+        mockMvc.perform(get("/api/series/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Morning yoga"));
+    }
+
+    @Test
+    @WithMockUser
+    void testCreate_Invalid() throws Exception {
+        // Arrange
+        SessionSeriesDto dto = new SessionSeriesDto();
+        dto.setName("Daily on Mondays");
+        dto.setDescription("Not a rule");
+        dto.setTeacher_id(teacher.getId());
+        dto.setStartsAt(new Date());
+        dto.setTimeZone("UTC");
+        dto.setFrequency(SessionSeries.Frequency.DAILY);
+        dto.setByDay(EnumSet.of(DayOfWeek.MONDAY));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest());
+        dto.setByDay(null);
+        dto.setTimeZone("Mars/Olympus");
+        mockMvc.perform(post("/api/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindOccurrences_ExpandedWithoutSessions() throws Exception {
+        // Act & Assert - from included, to excluded, the exception left out, nothing written
+        mockMvc.perform(get("/api/series/occurrences")
+                        .param("from", "2026-03-05T18:00:00.000Z")
+                        .param("to", "2026-03-19T18:00:00.000Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].date").value("2026-03-05T18:00:00.000+00:00"))
+                .andExpect(jsonPath("$[1].date").value("2026-03-09T18:00:00.000+00:00"))
+                .andExpect(jsonPath("$[2].date").value("2026-03-16T18:00:00.000+00:00"))
+                .andExpect(jsonPath("$[0].series_id").value(series.getId()))
+                .andExpect(jsonPath("$[0].session_id").isEmpty())
+                .andExpect(jsonPath("$[0].capacity").value(10));
+        assertTrue(sessionRepository.findOccurrences(Collections.singletonList(series.getId()),
+                Date.from(Instant.parse("2026-01-01T00:00:00Z")), Date.from(Instant.parse("2027-01-01T00:00:00Z"))).isEmpty());
+
+        mockMvc.perform(get("/api/series/occurrences")
+                        .param("from", "2026-03-01T00:00:00.000Z")
+                        .param("to", "2026-04-01T00:00:00.000Z")
+                        .param("teacherId", String.valueOf(teacher.getId() + 1000)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/series/occurrences")
+                        .param("from", "2026-04-01T00:00:00.000Z")
+                        .param("to", "2026-03-01T00:00:00.000Z"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testParticipate_MaterializesOccurrenceOnce() throws Exception {
+        // Arrange
+        User first = user("first@series.com");
+        User second = user("second@series.com");
+        String date = "2026-03-09T18:00:00.000Z";
+
+        // Act
+        MvcResult booked = mockMvc.perform(post("/api/series/" + series.getId() + "/participate/" + first.getId())
+                        .param("date", date))
+                .andExpect(status().isOk())
+                .andReturn();
+        mockMvc.perform(post("/api/series/" + series.getId() + "/participate/" + second.getId())
+                        .param("date", date))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Location", booked.getResponse().getHeader("Location")));
+
+        // Assert - one session for both, listed with the occurrence
+        Optional<Session> session = sessionRepository.findOccurrence(series.getId(), Date.from(Instant.parse(date)));
+        assertTrue(session.isPresent());
+        assertEquals("/api/session/" + session.get().getId(), booked.getResponse().getHeader("Location"));
+        assertEquals("Evening flow", session.get().getName());
+        mockMvc.perform(get("/api/series/occurrences")
+                        .param("from", date)
+                        .param("to", "2026-03-13T00:00:00.000Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].session_id").value(session.get().getId()))
+                .andExpect(jsonPath("$[0].participantCount").value(2));
+    }
+
+    @Test
+    @WithMockUser
+    void testParticipate_NotAnOccurrence() throws Exception {
+        // Arrange
+        User user = user("nobody@series.com");
+
+        // Act & Assert - a Tuesday, then the exception, then an unknown series
+        mockMvc.perform(post("/api/series/" + series.getId() + "/participate/" + user.getId())
+                        .param("date", "2026-03-10T18:00:00.000Z"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/series/" + series.getId() + "/participate/" + user.getId())
+                        .param("date", "2026-03-12T18:00:00.000Z"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/series/" + (series.getId() + 1000) + "/participate/" + user.getId())
+                        .param("date", "2026-03-09T18:00:00.000Z"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/series/abc/participate/" + user.getId())
+                        .param("date", "2026-03-09T18:00:00.000Z"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testParticipate_RefusedBookingLeavesNoSession() throws Exception {
+        // Without the test transaction, so that the booking commits or rolls back on its own
+        String date = "2026-03-16T18:00:00.000Z";
+        try {
+            // Act - an unknown user cannot be booked
+            mockMvc.perform(post("/api/series/" + series.getId() + "/participate/999999")
+                            .param("date", date))
+                    .andExpect(status().isNotFound());
+
+            // Assert - the occurrence was not materialized either
+            assertFalse(sessionRepository.findOccurrence(series.getId(), Date.from(Instant.parse(date))).isPresent());
+        } finally {
+            sessionSeriesRepository.deleteById(series.getId());
+            teacherRepository.deleteById(teacher.getId());
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void testCreate_UnknownTeacher() throws Exception {
+        // Arrange
+        SessionSeriesDto dto = seriesDto();
+        dto.setTeacher_id(999999L);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: No teacher with id 999999!"));
+    }
+
+    private SessionSeriesDto seriesDto() {
+        SessionSeriesDto dto = new SessionSeriesDto();
+        dto.setName("Evening flow");
+        dto.setDescription("Twice a week");
+        dto.setCapacity(10);
+        dto.setTeacher_id(teacher.getId());
+        dto.setStartsAt(Date.from(Instant.parse("2026-03-02T18:00:00Z")));
+        dto.setTimeZone("UTC");
+        dto.setFrequency(SessionSeries.Frequency.WEEKLY);
+        dto.setByDay(EnumSet.of(DayOfWeek.MONDAY));
+        dto.setCount(8);
+        return dto;
+    }
+
+    @Test
+    @WithMockUser
+    void testUpdate() throws Exception {
+        // Arrange - Mondays only from now on, under another name
+        SessionSeriesDto dto = seriesDto();
+
+        // Act
+        mockMvc.perform(put("/api/series/" + series.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(series.getId()))
+                .andExpect(jsonPath("$.description").value("Twice a week"));
+
+        // Assert - eight Mondays, the last one on 20 April
+        SessionSeries updated = sessionSeriesService.findById(series.getId());
+        assertEquals(Instant.parse("2026-04-20T18:00:00Z"), updated.getEndsAt().toInstant());
+        mockMvc.perform(get("/api/series/occurrences")
+                        .param("from", "2026-03-05T00:00:00.000Z")
+                        .param("to", "2026-03-12T00:00:00.000Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].date").value("2026-03-09T18:00:00.000+00:00"));
+        mockMvc.perform(put("/api/series/" + (series.getId() + 1000))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void testCancel_DeletesSessionsYetToCome() throws Exception {
+        // Arrange - a daily series that started five days ago, booked once before and once after now
+        Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(5, ChronoUnit.DAYS).plus(18, ChronoUnit.HOURS);
+        SessionSeries daily = sessionSeriesService.create(SessionSeries.builder()
+                .name("Daily flow")
+                .description("Every day")
+                .teacher(teacher)
+                .startsAt(Date.from(start))
+                .timeZone("UTC")
+                .frequency(SessionSeries.Frequency.DAILY)
+                .interval(1)
+                .build());
+        User user = user("cancel@series.com");
+        Date past = Date.from(start);
+        Date future = Date.from(start.plus(10, ChronoUnit.DAYS));
+        Long pastSession = sessionSeriesService.participate(daily.getId(), past, user.getId()).getSessionId();
+        sessionSeriesService.participate(daily.getId(), future, user.getId());
+
+        // Act
+        mockMvc.perform(post("/api/series/" + daily.getId() + "/cancel"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.until").isNotEmpty());
+
+        // Assert - the past session is kept, nothing is left to book
+        assertTrue(sessionRepository.findById(pastSession).isPresent());
+        assertFalse(sessionRepository.findOccurrence(daily.getId(), future).isPresent());
+        mockMvc.perform(post("/api/series/" + daily.getId() + "/participate/" + user.getId())
+                        .param("date", DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX")
+                                .withZone(ZoneOffset.UTC).format(future.toInstant())))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/series/" + (daily.getId() + 1000) + "/cancel"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void testAddException() throws Exception {
+        // Arrange
+        User user = user("exception@series.com");
+
+        // Act
+        mockMvc.perform(post("/api/series/" + series.getId() + "/exceptions")
+                        .param("date", "2026-03-16"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exceptions.length()").value(2));
+
+        // Assert - neither listed nor bookable any more
+        mockMvc.perform(get("/api/series/occurrences")
+                        .param("from", "2026-03-16T00:00:00.000Z")
+                        .param("to", "2026-03-17T00:00:00.000Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(post("/api/series/" + series.getId() + "/participate/" + user.getId())
+                        .param("date", "2026-03-16T18:00:00.000Z"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/series/" + (series.getId() + 1000) + "/exceptions")
+                        .param("date", "2026-03-16"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -19,6 +19,9 @@ import org.springframework.web.context.WebApplicationContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -106,4 +109,64 @@ public class TeacherControllerIntTest {
         assertThat(responseContent).contains(anotherTeacher.getFirstName());
         assertThat(responseContent).contains(anotherTeacher.getLastName());
     }
+
+    @Test
+    @WithMockUser
+    void testFindAll_ConditionalGet() throws Exception {
+        // Arrange
+        String eTag = mockMvc.perform(get("/api/teacher"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert - the client copy is current
+        mockMvc.perform(get("/api/teacher").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+
+        // Act & Assert - a new teacher changes the validator
+        Teacher anotherTeacher = new Teacher();
+        anotherTeacher.setFirstName("Jane");
+        anotherTeacher.setLastName("Smith");
+        teacherRepository.saveAndFlush(anotherTeacher);
+        mockMvc.perform(get("/api/teacher").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindById_ConditionalGet() throws Exception {
+        // Arrange
+        String eTag = mockMvc.perform(get("/api/teacher/{id}", testTeacher.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/teacher/{id}", testTeacher.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser
+    void testStreamAll() throws Exception {
+        // Arrange - more teachers than one chunk
+        for (int i = 0; i < 4; i++) {
+            Teacher teacher = new Teacher();
+            teacher.setFirstName("Streamed");
+            teacher.setLastName("Teacher" + i);
+            teacherRepository.save(teacher);
+        }
+        int count = (int) teacherRepository.count();
+
+        // Act & Assert
+        String eTag = mockMvc.perform(get("/api/teacher").param("stream", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.length()").value(count))
+                .andExpect(jsonPath("$[?(@.lastName == 'Teacher3')].firstName").value("Streamed"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/teacher").param("stream", "true").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+    }
 }
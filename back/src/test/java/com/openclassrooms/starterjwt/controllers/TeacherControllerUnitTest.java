@@ -1,8 +1,12 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.Revision;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,14 +16,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -79,14 +89,33 @@ public class TeacherControllerUnitTest {
         teacherDtoList = Arrays.asList(teacherDto1, teacherDto2);
     }
 
+    private static WebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/teacher"), new MockHttpServletResponse());
+    }
+
+    private static Revision revision(long count, LocalDateTime lastModified) {
+        return new Revision() {
+            @Override
+            public long getCount() {
+                return count;
+            }
+
+            @Override
+            public LocalDateTime getLastModified() {
+                return lastModified;
+            }
+        };
+    }
+
     @Test
     void testFindById_Success() {
         // Arrange
+        when(teacherService.getRevision(1L)).thenReturn(revision(1, LocalDateTime.now()));
         when(teacherService.findById(1L)).thenReturn(teacher1);
         when(teacherMapper.toDto(teacher1)).thenReturn(teacherDto1);
 
         // Act
-        ResponseEntity<?> response = teacherController.findById("1");
+        ResponseEntity<?> response = teacherController.findById("1", request());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -98,22 +127,22 @@ public class TeacherControllerUnitTest {
     @Test
     void testFindById_NotFound() {
         // Arrange
-        when(teacherService.findById(999L)).thenReturn(null);
+        when(teacherService.getRevision(999L)).thenReturn(revision(0, null));
 
         // Act
-        ResponseEntity<?> response = teacherController.findById("999");
+        ResponseEntity<?> response = teacherController.findById("999", request());
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
-        verify(teacherService).findById(999L);
+        verify(teacherService, never()).findById(anyLong());
         verify(teacherMapper, never()).toDto(any(Teacher.class));
     }
 
     @Test
     void testFindById_BadRequest() {
         // Act
-        ResponseEntity<?> response = teacherController.findById("invalid-id");
+        ResponseEntity<?> response = teacherController.findById("invalid-id", request());
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -125,11 +154,12 @@ public class TeacherControllerUnitTest {
     @Test
     void testFindAll_Success() {
         // Arrange
+        when(teacherService.getRevision()).thenReturn(revision(2, LocalDateTime.now()));
         when(teacherService.findAll()).thenReturn(teacherList);
         when(teacherMapper.toDto(teacherList)).thenReturn(teacherDtoList);
 
         // Act
-        ResponseEntity<?> response = teacherController.findAll();
+        ResponseEntity<?> response = teacherController.findAll(request());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -144,11 +174,12 @@ public class TeacherControllerUnitTest {
         List<Teacher> emptyList = new ArrayList<>();
         List<TeacherDto> emptyDtoList = new ArrayList<>();
         
+        when(teacherService.getRevision()).thenReturn(revision(0, null));
         when(teacherService.findAll()).thenReturn(emptyList);
         when(teacherMapper.toDto(emptyList)).thenReturn(emptyDtoList);
 
         // Act
-        ResponseEntity<?> response = teacherController.findAll();
+        ResponseEntity<?> response = teacherController.findAll(request());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -156,4 +187,69 @@ public class TeacherControllerUnitTest {
         verify(teacherService).findAll();
         verify(teacherMapper).toDto(emptyList);
     }
+
+    @Test
+    void testFindAll_NotModified() {
+        // Arrange
+        when(teacherService.getRevision()).thenReturn(revision(2, LocalDateTime.now()));
+        String eTag = teacherController.findAll(request()).getHeaders().getETag();
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/api/teacher");
+        conditional.addHeader("If-None-Match", eTag);
+
+        // Act
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(conditional, new MockHttpServletResponse()));
+
+        // Assert - answered before loading or mapping the teachers
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(teacherService, times(1)).findAll();
+    }
+
+    @Test
+    void testStreamAll_EndsTheArray() throws Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        TeacherController controller = new TeacherController(teacherService, teacherMapper, objectMapper);
+        when(teacherService.getRevision()).thenReturn(revision(2, LocalDateTime.now()));
+        doAnswer(invocation -> {
+            Consumer<Teacher> consumer = invocation.getArgument(1);
+            teacherList.forEach(consumer);
+            return null;
+        }).when(teacherService).streamAll(anyInt(), any());
+        when(teacherMapper.toDto(teacher1)).thenReturn(teacherDto1);
+        when(teacherMapper.toDto(teacher2)).thenReturn(teacherDto2);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        controller.streamAll(request(), response);
+
+        // Assert
+        JsonNode body = objectMapper.readTree(response.getContentAsString());
+        assertTrue(body.isArray());
+        assertEquals(2, body.size());
+    }
+
+    @Test
+    void testStreamAll_FailureMidwayLeavesTheArrayOpen() throws Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        TeacherController controller = new TeacherController(teacherService, teacherMapper, objectMapper);
+        when(teacherService.getRevision()).thenReturn(revision(2, LocalDateTime.now()));
+        doAnswer(invocation -> {
+            Consumer<Teacher> consumer = invocation.getArgument(1);
+            consumer.accept(teacher1);
+            throw new IllegalStateException("Connection lost");
+        }).when(teacherService).streamAll(anyInt(), any());
+        when(teacherMapper.toDto(teacher1)).thenReturn(teacherDto1);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> controller.streamAll(request(), response));
+
+        // Assert - the teacher written so far is sent, but not as a complete array
+        String body = response.getContentAsString();
+        assertTrue(body.startsWith("[{"));
+        assertTrue(body.contains("\"firstName\":\"John\""));
+        assertThrows(JsonProcessingException.class, () -> objectMapper.readTree(body));
+    }
 }
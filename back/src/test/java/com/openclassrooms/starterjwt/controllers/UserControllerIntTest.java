@@ -1,7 +1,9 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,10 +21,20 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -42,6 +54,12 @@ public class UserControllerIntTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -140,4 +158,64 @@ public class UserControllerIntTest {
         mockMvc.perform(delete("/api/user/{id}", otherUser.getId()))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    @WithMockUser
+    void testFindById_ConditionalGet() throws Exception {
+        // Arrange
+        String eTag = mockMvc.perform(get("/api/user/{id}", testUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/user/{id}", testUser.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/user/{id}", otherUser.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindSessions_OnlyTheUsersSessionsInPages() throws Exception {
+        // Arrange - five sessions, the user books three of them and the other user all of them
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Session session = new Session();
+            session.setName("Session " + i);
+            session.setDate(new Date(1_700_000_000_000L + 60000L * (5 - i)));
+            session.setDescription("Booked");
+            session.setUsers(i % 2 == 0 ? Arrays.asList(testUser, otherUser) : Collections.singletonList(otherUser));
+            sessions.add(sessionRepository.save(session));
+        }
+        sessionRepository.flush();
+
+        // Act - date order is the reverse of creation order
+        MvcResult first = mockMvc.perform(get("/api/user/{id}/sessions", testUser.getId()).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("Session 4", "Session 2")))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+        String cursor = first.getResponse().getHeader("X-Next-Cursor");
+
+        // Assert
+        mockMvc.perform(get("/api/user/{id}/sessions", testUser.getId()).param("size", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("Session 0")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        mockMvc.perform(get("/api/user/{id}/sessions", otherUser.getId()))
+                .andExpect(jsonPath("$.length()").value(5));
+        mockMvc.perform(get("/api/user/{id}/sessions", 999L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testFindSessions_UsesUserIndex() {
+        // Act - H2 names the index it picked in the plan
+        String plan = (String) entityManager.createNativeQuery(
+                "explain select session_id from PARTICIPATE where user_id = 1").getSingleResult();
+
+        // Assert
+        assertThat(plan.toUpperCase()).contains("IDX_PARTICIPATE_USER_SESSION");
+    }
 }
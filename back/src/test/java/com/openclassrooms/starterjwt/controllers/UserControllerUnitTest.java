@@ -1,9 +1,17 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.Revision;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionPage;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,12 +20,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,6 +49,12 @@ public class UserControllerUnitTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -71,14 +93,38 @@ public class UserControllerUnitTest {
         userDto.setUpdatedAt(LocalDateTime.now());
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static WebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/user"), new MockHttpServletResponse());
+    }
+
+    private static Revision revision(long count, LocalDateTime lastModified) {
+        return new Revision() {
+            @Override
+            public long getCount() {
+                return count;
+            }
+
+            @Override
+            public LocalDateTime getLastModified() {
+                return lastModified;
+            }
+        };
+    }
+
     @Test
     void testFindById_Success() {
         // Arrange
+        when(userService.getRevision(1L)).thenReturn(revision(1, LocalDateTime.now()));
         when(userService.findById(1L)).thenReturn(user);
         when(userMapper.toDto(user)).thenReturn(userDto);
 
         // Act
-        ResponseEntity<?> response = userController.findById("1");
+        ResponseEntity<?> response = userController.findById("1", request());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -90,22 +136,22 @@ public class UserControllerUnitTest {
     @Test
     void testFindById_NotFound() {
         // Arrange
-        when(userService.findById(999L)).thenReturn(null);
+        when(userService.getRevision(999L)).thenReturn(revision(0, null));
 
         // Act
-        ResponseEntity<?> response = userController.findById("999");
+        ResponseEntity<?> response = userController.findById("999", request());
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
-        verify(userService).findById(999L);
+        verify(userService, never()).findById(anyLong());
         verify(userMapper, never()).toDto(any(User.class));
     }
 
     @Test
     void testFindById_BadRequest() {
         // Act
-        ResponseEntity<?> response = userController.findById("invalid-id");
+        ResponseEntity<?> response = userController.findById("invalid-id", request());
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -114,6 +160,46 @@ public class UserControllerUnitTest {
         verify(userMapper, never()).toDto(any(User.class));
     }
 
+    @Test
+    void testFindSessions_PageWithNextCursor() {
+        // Arrange
+        ReflectionTestUtils.setField(userController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(userController, "maxPageSize", 100);
+        Session session = new Session();
+        session.setId(4L);
+        session.setDate(new Date(1000L));
+        List<Session> sessions = Collections.singletonList(session);
+        List<SessionDto> sessionDtos = Collections.singletonList(new SessionDto());
+        SessionCursor after = new SessionCursor(new Date(500L), 2L);
+        when(userService.getRevision(1L)).thenReturn(revision(1, LocalDateTime.now()));
+        when(sessionService.findParticipationPage(eq(1L), any(SessionCursor.class), eq(100)))
+                .thenReturn(new SessionPage(sessions, SessionCursor.after(session)));
+        when(sessionService.findParticipantIds(sessions)).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(sessions, Collections.emptyMap())).thenReturn(sessionDtos);
+
+        // Act
+        ResponseEntity<?> response = userController.findSessions("1", after.encode(), 500);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(sessionDtos, response.getBody());
+        assertEquals(SessionCursor.after(session).encode(),
+                response.getHeaders().getFirst(SessionController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void testFindSessions_NotFoundAndBadRequest() {
+        // Arrange
+        ReflectionTestUtils.setField(userController, "defaultPageSize", 20);
+        when(userService.getRevision(2L)).thenReturn(revision(0, null));
+
+        // Act & Assert
+        assertEquals(HttpStatus.NOT_FOUND, userController.findSessions("2", null, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, userController.findSessions("abc", null, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, userController.findSessions("2", null, 0).getStatusCode());
+        verifyNoInteractions(sessionService);
+    }
+
     @Test
     void testSave_Success() {
         // Arrange
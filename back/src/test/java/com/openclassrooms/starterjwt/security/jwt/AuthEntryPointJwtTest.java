@@ -0,0 +1,65 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthEntryPointJwtTest {
+
+    @Mock
+    private AuthFailureMonitor authFailureMonitor;
+
+    @InjectMocks
+    private AuthEntryPointJwt authEntryPointJwt;
+
+    @Test
+    void testCommence_WritesUnauthorizedBody() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/api/session");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        authEntryPointJwt.commence(request, response,
+                new InsufficientAuthenticationException("Full authentication is required to access this resource"));
+
+        // Assert
+        assertEquals(401, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        JsonNode body = new ObjectMapper().readTree(response.getContentAsByteArray());
+        assertEquals(401, body.get("status").asInt());
+        assertEquals("Unauthorized", body.get("error").asText());
+        assertEquals("Full authentication is required to access this resource", body.get("message").asText());
+        assertEquals("/api/session", body.get("path").asText());
+        verify(authFailureMonitor, times(1)).unauthorized();
+    }
+
+    @Test
+    void testCommence_EscapesPath() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/api/\"x\\y\n\u0001é");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        authEntryPointJwt.commence(request, response, new InsufficientAuthenticationException(null));
+
+        // Assert
+        JsonNode body = new ObjectMapper().readTree(response.getContentAsByteArray());
+        assertEquals("/api/\"x\\y\n\u0001é", body.get("path").asText());
+        assertEquals("", body.get("message").asText());
+    }
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthFailureMonitorTest {
+
+    @Test
+    void testCountsByReason() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthFailureMonitor monitor = new AuthFailureMonitor(60000, meterRegistry);
+
+        // Act
+        monitor.tokenRejected(JwtFailure.EXPIRED);
+        monitor.tokenRejected(JwtFailure.EXPIRED);
+        monitor.tokenRejected(JwtFailure.INVALID_SIGNATURE);
+        monitor.unauthorized();
+        monitor.filterError(new IllegalStateException());
+
+        // Assert
+        assertEquals(2, meterRegistry.get("auth.failures").tag("reason", "expired").counter().count());
+        assertEquals(1, meterRegistry.get("auth.failures").tag("reason", "invalid_signature").counter().count());
+        assertEquals(0, meterRegistry.get("auth.failures").tag("reason", "malformed").counter().count());
+        assertEquals(1, meterRegistry.get("auth.failures").tag("reason", "unauthorized").counter().count());
+        assertEquals(1, meterRegistry.get("auth.failures").tag("reason", "filter_error").counter().count());
+    }
+
+    @Test
+    void testSummaryLoggedWithoutLosingCounts() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthFailureMonitor monitor = new AuthFailureMonitor(0, meterRegistry);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            monitor.tokenRejected(JwtFailure.MALFORMED);
+        }
+
+        // Assert
+        assertEquals(10, meterRegistry.get("auth.failures").tag("reason", "malformed").counter().count());
+    }
+}
@@ -0,0 +1,241 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthTokenFilterTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private AuthFailureMonitor authFailureMonitor;
+
+    @InjectMocks
+    private AuthTokenFilter authTokenFilter;
+
+    private MockHttpServletRequest request;
+    private UserDetailsImpl userDetails;
+    private JwtClaims claims;
+    private JwtClaims legacyClaims;
+
+    @BeforeEach
+    void setUp() {
+        request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+
+        userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .admin(false)
+                .build();
+
+        claims = JwtClaims.builder()
+                .subject("test@test.com")
+                .userId(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .expirationMs(Long.MAX_VALUE)
+                .build();
+        legacyClaims = JwtClaims.builder()
+                .subject("test@test.com")
+                .expirationMs(Long.MAX_VALUE)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testDoFilter_AuthenticatesFromClaimsWithoutUserLookup() throws Exception {
+        // Arrange
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.valid(claims));
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        UserDetailsImpl principal = (UserDetailsImpl) authentication.getPrincipal();
+        assertEquals(1L, principal.getId());
+        assertEquals("test@test.com", principal.getUsername());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void testDoFilter_FallsBackToUserLookupForLegacyToken() throws Exception {
+        // Arrange
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.valid(legacyClaims));
+        when(userDetailsService.loadUserByUsername("test@test.com")).thenReturn(userDetails);
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertEquals(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        verify(userDetailsService, times(1)).loadUserByUsername("test@test.com");
+    }
+
+    @Test
+    void testDoFilter_UserLookupEnabled() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(authTokenFilter, "userLookup", true);
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.valid(claims));
+        when(userDetailsService.loadUserByUsername("test@test.com")).thenReturn(userDetails);
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userDetailsService, times(1)).loadUserByUsername("test@test.com");
+    }
+
+    @Test
+    void testDoFilter_InvalidToken() throws Exception {
+        // Arrange
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.invalid(JwtFailure.INVALID_SIGNATURE));
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testDoFilter_RefreshTokenRejected() throws Exception {
+        // Arrange
+        JwtClaims refreshClaims = JwtClaims.builder()
+                .type(JwtClaims.TYPE_REFRESH)
+                .subject("test@test.com")
+                .userId(1L)
+                .expirationMs(Long.MAX_VALUE)
+                .build();
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.valid(refreshClaims));
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testDoFilter_EventsTicketRejectedAsBearer() throws Exception {
+        // Arrange
+        JwtClaims ticketClaims = JwtClaims.builder()
+                .type(JwtClaims.TYPE_EVENTS_TICKET)
+                .subject("test@test.com")
+                .userId(1L)
+                .expirationMs(Long.MAX_VALUE)
+                .build();
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.valid(ticketClaims));
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static MockHttpServletRequest eventsRequest(String uri) {
+        MockHttpServletRequest ticketRequest = new MockHttpServletRequest("GET", uri);
+        ticketRequest.setParameter(AuthTokenFilter.TICKET_PARAMETER, "ticket");
+        return ticketRequest;
+    }
+
+    @Test
+    void testDoFilter_EventsTicketOpensEventStreamOnce() throws Exception {
+        // Arrange
+        JwtClaims ticketClaims = JwtClaims.builder()
+                .tokenId("ticket-id")
+                .type(JwtClaims.TYPE_EVENTS_TICKET)
+                .subject("test@test.com")
+                .userId(1L)
+                .expirationMs(Long.MAX_VALUE)
+                .build();
+        when(jwtUtils.verify("ticket")).thenReturn(JwtVerification.valid(ticketClaims));
+        when(jwtUtils.revoke(ticketClaims)).thenReturn(true, false);
+
+        // Act & Assert - the first use authenticates and spends the ticket
+        authTokenFilter.doFilter(eventsRequest(AuthTokenFilter.EVENTS_PATH), new MockHttpServletResponse(),
+                new MockFilterChain());
+        assertEquals(1L, ((UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
+                .getId());
+
+        SecurityContextHolder.clearContext();
+        authTokenFilter.doFilter(eventsRequest(AuthTokenFilter.EVENTS_PATH), new MockHttpServletResponse(),
+                new MockFilterChain());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testDoFilter_EventsTicketIgnoredElsewhere() throws Exception {
+        // Act
+        authTokenFilter.doFilter(eventsRequest("/api/session"), new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(jwtUtils);
+    }
+
+    @Test
+    void testDoFilter_AccessTokenNotAcceptedAsTicket() throws Exception {
+        // Arrange
+        when(jwtUtils.verify("ticket")).thenReturn(JwtVerification.valid(claims));
+
+        // Act
+        authTokenFilter.doFilter(eventsRequest(AuthTokenFilter.EVENTS_PATH), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(jwtUtils, never()).revoke(any());
+    }
+
+    @Test
+    void testDoFilter_UnexpectedErrorIsCounted() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(authTokenFilter, "userLookup", true);
+        when(jwtUtils.verify("token")).thenReturn(JwtVerification.valid(claims));
+        IllegalStateException error = new IllegalStateException("database down");
+        when(userDetailsService.loadUserByUsername("test@test.com")).thenThrow(error);
+        MockFilterChain filterChain = new MockFilterChain();
+
+        // Act
+        authTokenFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(filterChain.getRequest());
+        verify(authFailureMonitor, times(1)).filterError(error);
+    }
+}
@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtKeyRingTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testHs512_Disabled() {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("HS512", "", "", true, 0, 60000);
+
+        // Act & Assert
+        assertFalse(keyRing.isEnabled());
+        assertThrows(IllegalStateException.class, keyRing::rotate);
+    }
+
+    @Test
+    void testUnknownAlgorithm() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new JwtKeyRing("PS256", "", "", true, 0, 60000));
+    }
+
+    @Test
+    void testAsymmetricWithoutKeyStore_FailsUnlessEphemeral() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing("ES256", "", "", false, 0, 60000));
+        assertFalse(new JwtKeyRing("HS512", "", "", false, 0, 60000).isEnabled());
+        assertTrue(new JwtKeyRing("ES256", "", "", true, 0, 60000).isEnabled());
+    }
+
+    @Test
+    void testJwks_PublishesActiveAndNextKeys() throws Exception {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", "", "", true, 0, 60000);
+
+        // Act
+        JsonNode keys = objectMapper.readTree(keyRing.getJwks()).get("keys");
+
+        // Assert
+        assertEquals(2, keys.size());
+        JsonNode active = keys.get(0);
+        assertEquals(keyRing.signingKey().getKid(), active.get("kid").asText());
+        assertEquals("EC", active.get("kty").asText());
+        assertEquals("P-256", active.get("crv").asText());
+        assertEquals("ES256", active.get("alg").asText());
+        assertEquals("sig", active.get("use").asText());
+        assertEquals(43, active.get("x").asText().length());
+        assertEquals(43, active.get("y").asText().length());
+        assertFalse(active.has("d"));
+    }
+
+    @Test
+    void testRotate_PromotesPublishedKeyAndKeepsPrevious() throws Exception {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("RS256", "", "", true, 0, 60000);
+        String previousKid = keyRing.signingKey().getKid();
+        String nextKid = objectMapper.readTree(keyRing.getJwks()).get("keys").get(1).get("kid").asText();
+        String previousETag = keyRing.getJwksETag();
+
+        // Act
+        String kid = keyRing.rotate();
+
+        // Assert
+        assertEquals(nextKid, kid);
+        assertEquals(kid, keyRing.signingKey().getKid());
+        assertNotNull(keyRing.get(previousKid));
+        assertNull(keyRing.get(previousKid).getPrivateKey());
+        assertEquals(3, objectMapper.readTree(keyRing.getJwks()).get("keys").size());
+        assertNotEquals(previousETag, keyRing.getJwksETag());
+    }
+
+    @Test
+    void testRotate_DropsKeysOnceTheirTokensExpired() throws Exception {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", "", "", true, 0, 0);
+        String firstKid = keyRing.signingKey().getKid();
+
+        // Act
+        keyRing.rotate();
+
+        // Assert
+        assertNull(keyRing.get(firstKid));
+        assertEquals(2, objectMapper.readTree(keyRing.getJwks()).get("keys").size());
+    }
+
+    @Test
+    void testSigningKey_RotatesWhenDue() throws Exception {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", "", "", true, 1, 60000);
+        String firstKid = keyRing.signingKey().getKid();
+        Thread.sleep(5);
+
+        // Act
+        String kid = keyRing.signingKey().getKid();
+
+        // Assert
+        assertNotEquals(firstKid, kid);
+    }
+}
@@ -0,0 +1,238 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtTokenEngineTest {
+
+    private final String jwtSecret = "openclassroomsSecretKey";
+
+    private final JwtTokenEngine engine = new JwtTokenEngine(jwtSecret);
+
+    private JwtClaims claims(long expirationMs) {
+        return JwtClaims.builder()
+                .subject("test@test.com")
+                .userId(42L)
+                .firstName("Hélène")
+                .lastName("Doe")
+                .admin(true)
+                .issuedAtMs(System.currentTimeMillis())
+                .expirationMs(expirationMs)
+                .build();
+    }
+
+    @Test
+    void testSignAndVerify_RoundTrip() {
+        // Arrange
+        String token = engine.sign(claims(System.currentTimeMillis() + 60000));
+
+        // Act
+        JwtVerification verification = engine.verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertEquals("test@test.com", verification.getClaims().getSubject());
+        assertEquals(42L, verification.getClaims().getUserId());
+        assertEquals("Hélène", verification.getClaims().getFirstName());
+        assertEquals("Doe", verification.getClaims().getLastName());
+        assertTrue(verification.getClaims().isAdmin());
+    }
+
+    @Test
+    void testSign_ReadableByJjwt() {
+        // Arrange
+        String token = engine.sign(claims(System.currentTimeMillis() + 60000));
+
+        // Act
+        Claims parsed = Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody();
+
+        // Assert
+        assertEquals("test@test.com", parsed.getSubject());
+        assertEquals(42, parsed.get("id", Number.class).intValue());
+    }
+
+    @Test
+    void testVerify_AcceptsJjwtToken() {
+        // Arrange
+        String token = Jwts.builder()
+                .setSubject("test@test.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .compact();
+
+        // Act
+        JwtVerification verification = engine.verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertEquals("test@test.com", verification.getClaims().getSubject());
+        assertNull(verification.getClaims().getUserId());
+    }
+
+    @Test
+    void testVerify_TamperedPayload() {
+        // Arrange
+        String token = engine.sign(claims(System.currentTimeMillis() + 60000));
+        String[] parts = token.split("\\.");
+        String forged = engine.sign(claims(System.currentTimeMillis() + 120000)).split("\\.")[1];
+
+        // Act
+        JwtVerification verification = engine.verify(parts[0] + "." + forged + "." + parts[2]);
+
+        // Assert
+        assertEquals(JwtFailure.INVALID_SIGNATURE, verification.getFailure());
+    }
+
+    @Test
+    void testVerify_OtherAlgorithmIsUnsupported() {
+        // Arrange
+        String token = Jwts.builder()
+                .setSubject("test@test.com")
+                .signWith(SignatureAlgorithm.HS256, jwtSecret)
+                .compact();
+
+        // Act & Assert
+        assertEquals(JwtFailure.UNSUPPORTED, engine.verify(token).getFailure());
+    }
+
+    @Test
+    void testVerify_UnsignedTokenIsUnsupported() {
+        // Arrange
+        String token = Jwts.builder().setSubject("test@test.com").compact();
+
+        // Act & Assert
+        assertEquals(JwtFailure.UNSUPPORTED, engine.verify(token).getFailure());
+    }
+
+    @Test
+    void testVerify_Expired() {
+        // Arrange
+        String token = engine.sign(claims(System.currentTimeMillis() - 1000));
+
+        // Act & Assert
+        assertEquals(JwtFailure.EXPIRED, engine.verify(token).getFailure());
+    }
+
+    @Test
+    void testVerify_Malformed() {
+        assertEquals(JwtFailure.MALFORMED, engine.verify("invalidToken").getFailure());
+        assertEquals(JwtFailure.MALFORMED, engine.verify("a.b.c.d").getFailure());
+        assertEquals(JwtFailure.MALFORMED, engine.verify("eyJhbGciOiJIUzUxMiJ9.e30.%%%").getFailure());
+    }
+
+    private static JwtKeyRing keyRing(String algorithm) {
+        return new JwtKeyRing(algorithm, "", "", true, 0, 60000);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ES256", "RS256"})
+    void testSignAndVerify_AsymmetricRoundTrip(String algorithm) {
+        // Arrange
+        JwtKeyRing keyRing = keyRing(algorithm);
+        JwtTokenEngine asymmetricEngine = new JwtTokenEngine(jwtSecret, keyRing);
+        String token = asymmetricEngine.sign(claims(System.currentTimeMillis() + 60000));
+
+        // Act
+        JwtVerification verification = asymmetricEngine.verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertEquals(42L, verification.getClaims().getUserId());
+        assertEquals("Hélène", verification.getClaims().getFirstName());
+        Claims jjwtClaims = Jwts.parser()
+                .setSigningKey(keyRing.signingKey().getPublicKey())
+                .parseClaimsJws(token)
+                .getBody();
+        assertEquals("test@test.com", jjwtClaims.getSubject());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ES256", "RS256"})
+    void testVerify_AcceptsJjwtAsymmetricToken(String algorithm) {
+        // Arrange
+        JwtKeyRing keyRing = keyRing(algorithm);
+        JwtSigningKey signingKey = keyRing.signingKey();
+        String token = Jwts.builder()
+                .setHeaderParam("kid", signingKey.getKid())
+                .setSubject("test@test.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.forName(algorithm), signingKey.getPrivateKey())
+                .compact();
+
+        // Act
+        JwtVerification verification = new JwtTokenEngine(jwtSecret, keyRing).verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertEquals("test@test.com", verification.getClaims().getSubject());
+    }
+
+    @Test
+    void testVerify_AsymmetricTamperedOrUnknownKey() {
+        // Arrange
+        JwtTokenEngine asymmetricEngine = new JwtTokenEngine(jwtSecret, keyRing("ES256"));
+        JwtTokenEngine otherEngine = new JwtTokenEngine(jwtSecret, keyRing("ES256"));
+        String token = asymmetricEngine.sign(claims(System.currentTimeMillis() + 60000));
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + engine.sign(claims(Long.MAX_VALUE)).split("\\.")[1] + "." + parts[2];
+
+        // Act & Assert
+        assertEquals(JwtFailure.INVALID_SIGNATURE, asymmetricEngine.verify(forged).getFailure());
+        assertEquals(JwtFailure.INVALID_SIGNATURE, otherEngine.verify(token).getFailure());
+        assertEquals(JwtFailure.INVALID_SIGNATURE, engine.verify(token).getFailure());
+    }
+
+    @Test
+    void testVerify_AsymmetricEngineAcceptsHs512UntilCutOff() {
+        // Arrange
+        String token = engine.sign(claims(System.currentTimeMillis() + 60000));
+        String tomorrow = Instant.now().plus(1, ChronoUnit.DAYS).toString();
+
+        // Act
+        JwtVerification verification = new JwtTokenEngine(jwtSecret, keyRing("ES256"), tomorrow).verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+    }
+
+    @Test
+    void testVerify_AsymmetricEngineRejectsHs512AfterCutOff() {
+        // Arrange
+        String token = engine.sign(claims(System.currentTimeMillis() + 60000));
+        String yesterday = Instant.now().minus(1, ChronoUnit.DAYS).toString();
+
+        // Act & Assert - past the cut-off, and by default once asymmetric keys are configured
+        assertEquals(JwtFailure.UNSUPPORTED,
+                new JwtTokenEngine(jwtSecret, keyRing("ES256"), yesterday).verify(token).getFailure());
+        assertEquals(JwtFailure.UNSUPPORTED,
+                new JwtTokenEngine(jwtSecret, keyRing("ES256")).verify(token).getFailure());
+        assertTrue(new JwtTokenEngine(jwtSecret, new JwtKeyRing("HS512", "", "", false, 0, 60000), yesterday)
+                .verify(token).isValid());
+    }
+
+    @Test
+    void testVerify_KeyOfOtherAlgorithmRejected() {
+        // Arrange
+        JwtKeyRing keyRing = keyRing("RS256");
+        JwtSigningKey signingKey = keyRing.signingKey();
+        String token = Jwts.builder()
+                .setHeaderParam("kid", signingKey.getKid())
+                .setSubject("test@test.com")
+                .signWith(SignatureAlgorithm.RS512, signingKey.getPrivateKey())
+                .compact();
+
+        // Act & Assert
+        assertEquals(JwtFailure.UNSUPPORTED, new JwtTokenEngine(jwtSecret, keyRing).verify(token).getFailure());
+    }
+}
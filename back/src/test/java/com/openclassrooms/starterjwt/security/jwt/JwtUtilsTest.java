@@ -11,6 +11,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.Authentication;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -32,14 +33,26 @@ public class JwtUtilsTest {
     @Mock
     private UserDetailsImpl userDetails;
 
+    @Mock
+    private AuthFailureMonitor authFailureMonitor;
+
     private String jwtSecret = "openclassroomsSecretKey";
     private int jwtExpirationMs = 86400000; // 1 day
 
+    @Spy
+    private JwtTokenEngine jwtTokenEngine = new JwtTokenEngine(jwtSecret);
+
+    @Spy
+    private VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(100, 60000);
+
+    @Spy
+    private TokenRevocationList tokenRevocationList = new TokenRevocationList(604800000L, 60000L);
+
     @BeforeEach
     void setUp() {
         // Set values for @Value annotated fields using ReflectionTestUtils
-        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", jwtSecret);
         ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", jwtExpirationMs);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 604800000L);
     }
 
     @Test
@@ -152,4 +165,136 @@ public class JwtUtilsTest {
         // Assert
         assertFalse(isValid);
     }
+
+    @Test
+    void testVerify_ReturnsClaims() {
+        // Arrange
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .admin(true)
+                .password("encodedPassword")
+                .build();
+        when(authentication.getPrincipal()).thenReturn(principal);
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        // Act
+        JwtVerification verification = jwtUtils.verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertNull(verification.getFailure());
+        UserDetailsImpl extracted = verification.getClaims().toUserDetails();
+        assertNotNull(extracted);
+        assertEquals(1L, extracted.getId());
+        assertEquals("test@test.com", extracted.getUsername());
+        assertEquals("John", extracted.getFirstName());
+        assertEquals("Doe", extracted.getLastName());
+        assertTrue(extracted.getAdmin());
+        assertNull(extracted.getPassword());
+    }
+
+    @Test
+    void testVerify_LegacyTokenWithoutClaims() {
+        // Arrange
+        String token = Jwts.builder()
+                .setSubject("test@test.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
+                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .compact();
+
+        // Act
+        JwtVerification verification = jwtUtils.verify(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertEquals("test@test.com", verification.getClaims().getSubject());
+        assertNull(verification.getClaims().toUserDetails());
+    }
+
+    @Test
+    void testVerify_ReportsFailureType() {
+        // Arrange
+        String expiredToken = Jwts.builder()
+                .setSubject("test@test.com")
+                .setExpiration(new Date((new Date()).getTime() - 1000))
+                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .compact();
+        String forgedToken = Jwts.builder()
+                .setSubject("test@test.com")
+                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
+                .signWith(SignatureAlgorithm.HS512, "wrongSecret")
+                .compact();
+
+        // Act & Assert
+        assertEquals(JwtFailure.EXPIRED, jwtUtils.verify(expiredToken).getFailure());
+        assertEquals(JwtFailure.INVALID_SIGNATURE, jwtUtils.verify(forgedToken).getFailure());
+        assertEquals(JwtFailure.MALFORMED, jwtUtils.verify("invalidToken").getFailure());
+        assertEquals(JwtFailure.EMPTY, jwtUtils.verify("").getFailure());
+        assertEquals(0, verifiedTokenCache.size());
+        Mockito.verify(authFailureMonitor).tokenRejected(JwtFailure.EXPIRED);
+        Mockito.verify(authFailureMonitor).tokenRejected(JwtFailure.INVALID_SIGNATURE);
+        Mockito.verify(authFailureMonitor).tokenRejected(JwtFailure.MALFORMED);
+        Mockito.verify(authFailureMonitor).tokenRejected(JwtFailure.EMPTY);
+    }
+
+    @Test
+    void testVerify_ServesRepeatedTokenFromCache() {
+        // Arrange
+        String token = Jwts.builder()
+                .setSubject("test@test.com")
+                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
+                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .compact();
+
+        // Act
+        JwtVerification first = jwtUtils.verify(token);
+        JwtVerification second = jwtUtils.verify(token);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, verifiedTokenCache.size());
+    }
+
+    @Test
+    void testGenerateRefreshToken() {
+        // Arrange
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .build();
+
+        // Act
+        JwtClaims access = jwtUtils.verify(jwtUtils.generateJwtToken(principal)).getClaims();
+        JwtClaims refresh = jwtUtils.verify(jwtUtils.generateRefreshToken(principal)).getClaims();
+
+        // Assert
+        assertFalse(access.isRefreshToken());
+        assertTrue(refresh.isRefreshToken());
+        assertNotNull(access.getTokenId());
+        assertNotEquals(access.getTokenId(), refresh.getTokenId());
+        assertTrue(refresh.getExpirationMs() > access.getExpirationMs());
+    }
+
+    @Test
+    void testVerify_RevokedTokenRejectedEvenWhenCached() {
+        // Arrange
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .build();
+        String token = jwtUtils.generateJwtToken(principal);
+        JwtVerification verification = jwtUtils.verify(token);
+        assertEquals(1, verifiedTokenCache.size());
+
+        // Act
+        jwtUtils.revoke(verification.getClaims());
+
+        // Assert
+        assertEquals(JwtFailure.REVOKED, jwtUtils.verify(token).getFailure());
+        assertTrue(jwtUtils.verify(jwtUtils.generateJwtToken(principal)).isValid());
+    }
 }
@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRevocationListTest {
+
+    private static JwtClaims claims(String tokenId, Long userId, long issuedAtMs) {
+        return JwtClaims.builder()
+                .tokenId(tokenId)
+                .subject("test@test.com")
+                .userId(userId)
+                .issuedAtMs(issuedAtMs)
+                .expirationMs(System.currentTimeMillis() + 60000)
+                .build();
+    }
+
+    @Test
+    void testRevokeToken() {
+        // Arrange
+        TokenRevocationList revocationList = new TokenRevocationList(60000, 60000);
+        long now = System.currentTimeMillis();
+
+        // Act
+        boolean revoked = revocationList.revokeToken("revoked", now + 60000);
+
+        // Assert
+        assertTrue(revoked);
+        assertFalse(revocationList.revokeToken("revoked", now + 60000));
+        assertTrue(revocationList.isRevoked(claims("revoked", 1L, now)));
+        assertFalse(revocationList.isRevoked(claims("other", 1L, now)));
+        assertFalse(revocationList.isRevoked(claims(null, null, now)));
+    }
+
+    @Test
+    void testRevokeUser_OnlyTokensIssuedBefore() {
+        // Arrange
+        TokenRevocationList revocationList = new TokenRevocationList(60000, 60000);
+        long now = System.currentTimeMillis();
+
+        // Act
+        revocationList.revokeUser(1L);
+
+        // Assert
+        assertTrue(revocationList.isRevoked(claims("a", 1L, now - 1000)));
+        assertFalse(revocationList.isRevoked(claims("b", 1L, now + 10000)));
+        assertFalse(revocationList.isRevoked(claims("c", 2L, now - 1000)));
+    }
+
+    @Test
+    void testRevokeToken_AlreadyExpiredIsIgnored() {
+        // Arrange
+        TokenRevocationList revocationList = new TokenRevocationList(60000, 60000);
+
+        // Act
+        revocationList.revokeToken("expired", System.currentTimeMillis() - 1);
+
+        // Assert
+        assertEquals(0, revocationList.size());
+    }
+
+    @Test
+    void testPurge_DropsExpiredEntries() throws InterruptedException {
+        // Arrange
+        TokenRevocationList revocationList = new TokenRevocationList(60000, 0);
+        long now = System.currentTimeMillis();
+        revocationList.revokeToken("short", now + 20);
+        revocationList.revokeToken("long", now + 60000);
+        Thread.sleep(50);
+
+        // Act
+        revocationList.revokeToken("next", now + 60000);
+
+        // Assert
+        assertEquals(2, revocationList.size());
+        assertTrue(revocationList.isRevoked(claims("long", 1L, now)));
+        assertTrue(revocationList.isRevoked(claims("next", 1L, now)));
+        assertFalse(revocationList.isRevoked(claims("short", 1L, now)));
+    }
+}
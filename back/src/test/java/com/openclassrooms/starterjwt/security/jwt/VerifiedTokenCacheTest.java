@@ -0,0 +1,95 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerifiedTokenCacheTest {
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private Function<String, JwtVerification> verifierExpiringAt(long expirationMs) {
+        return token -> {
+            verifications.incrementAndGet();
+            return JwtVerification.valid(JwtClaims.builder().subject(token).expirationMs(expirationMs).build());
+        };
+    }
+
+    @Test
+    void testGetOrVerify_VerifiesOncePerToken() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000);
+        Function<String, JwtVerification> verifier = verifierExpiringAt(System.currentTimeMillis() + 60000);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            cache.getOrVerify("token", verifier);
+        }
+
+        // Assert
+        assertEquals(1, verifications.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testGetOrVerify_DoesNotCacheExpiredOrInvalidTokens() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000);
+
+        // Act
+        cache.getOrVerify("expired", verifierExpiringAt(System.currentTimeMillis() - 1));
+        cache.getOrVerify("expired", verifierExpiringAt(System.currentTimeMillis() - 1));
+        cache.getOrVerify("forged", token -> JwtVerification.invalid(JwtFailure.INVALID_SIGNATURE));
+
+        // Assert
+        assertEquals(2, verifications.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testGetOrVerify_ReverifiesAfterCachePeriod() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 0);
+        Function<String, JwtVerification> verifier = verifierExpiringAt(System.currentTimeMillis() + 60000);
+
+        // Act
+        cache.getOrVerify("token", verifier);
+        cache.getOrVerify("token", verifier);
+
+        // Assert
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void testGetOrVerify_StaysBounded() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 60000);
+        Function<String, JwtVerification> verifier = verifierExpiringAt(System.currentTimeMillis() + 60000);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            cache.getOrVerify("token-" + i, verifier);
+        }
+
+        // Assert
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    void testGetOrVerify_Disabled() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(0, 60000);
+        Function<String, JwtVerification> verifier = verifierExpiringAt(System.currentTimeMillis() + 60000);
+
+        // Act
+        cache.getOrVerify("token", verifier);
+        cache.getOrVerify("token", verifier);
+
+        // Assert
+        assertEquals(2, verifications.get());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,18 @@
+package com.openclassrooms.starterjwt.security.password;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BCryptStrengthCalibratorTest {
+
+    @Test
+    void testCalibrate_NoBudgetKeepsMinimum() {
+        assertEquals(4, BCryptStrengthCalibrator.calibrate(0, 4, 6));
+    }
+
+    @Test
+    void testCalibrate_LargeBudgetReachesMaximum() {
+        assertEquals(6, BCryptStrengthCalibrator.calibrate(60000, 4, 6));
+    }
+}
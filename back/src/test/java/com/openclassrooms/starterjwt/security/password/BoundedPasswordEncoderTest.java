@@ -0,0 +1,148 @@
+package com.openclassrooms.starterjwt.security.password;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.destroy();
+    }
+
+    @Test
+    void testEncodeAndMatches_DelegateOnPool() {
+        // Arrange
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, 5000, 1, meterRegistry);
+
+        // Act
+        String encoded = encoder.encode("password123");
+
+        // Assert
+        assertTrue(encoder.matches("password123", encoded));
+        assertFalse(encoder.matches("wrongPassword", encoded));
+        assertEquals(1, meterRegistry.get("auth.password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password.hashing").tag("operation", "matches").timer().count());
+        assertEquals(0.0, meterRegistry.get("auth.password.hashing.queue").gauge().value());
+    }
+
+    @Test
+    void testEncode_RejectsWhenSaturated() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        encoder = new BoundedPasswordEncoder(blocking, 1, 1, 5000, 3, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("auth.password.hashing.queue").gauge().value() < 1) {
+            Thread.sleep(1);
+        }
+
+        // Act
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> encoder.encode("third"));
+
+        // Assert
+        assertEquals(3, exception.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("auth.password.hashing.rejected").counter().count());
+        release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS));
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testMatches_RejectsAfterMaxWait() {
+        // Arrange
+        PasswordEncoder slow = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        encoder = new BoundedPasswordEncoder(slow, 1, 1, 10, 1, meterRegistry);
+
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class, () -> encoder.matches("password", "encoded"));
+    }
+
+    @Test
+    void testEncode_QueuedTaskGivenUp_NeverHashes() throws Exception {
+        // Arrange - one thread held busy, so the second call waits in the queue until it gives up
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger hashed = new AtomicInteger();
+        PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                if ("first".contentEquals(rawPassword)) {
+                    started.countDown();
+                    // Not cut short when its own caller gives up, like a hash already computing
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (release.getCount() > 0 && System.nanoTime() < deadline) {
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            // Keep holding the thread
+                        }
+                    }
+                }
+                hashed.incrementAndGet();
+                return super.encode(rawPassword);
+            }
+        };
+        encoder = new BoundedPasswordEncoder(blocking, 1, 1, 50, 1, meterRegistry);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return encoder.encode("first");
+            } catch (ServiceUnavailableException e) {
+                return null;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        assertThrows(ServiceUnavailableException.class, () -> encoder.encode("second"));
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        encoder.destroy();
+        Thread.sleep(100);
+
+        // Assert - only the hash already running was done
+        assertEquals(1, hashed.get());
+        assertEquals(0.0, meterRegistry.get("auth.password.hashing.queue").gauge().value());
+    }
+}
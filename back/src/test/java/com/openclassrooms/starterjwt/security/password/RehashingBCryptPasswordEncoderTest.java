@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.security.password;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RehashingBCryptPasswordEncoderTest {
+
+    private final RehashingBCryptPasswordEncoder encoder = new RehashingBCryptPasswordEncoder(5);
+
+    @Test
+    void testUpgradeEncoding_SameStrength() {
+        assertFalse(encoder.upgradeEncoding(encoder.encode("password123")));
+    }
+
+    @Test
+    void testUpgradeEncoding_WeakerOrStrongerHash() {
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password123")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password123")));
+    }
+
+    @Test
+    void testUpgradeEncoding_NotABCryptHash() {
+        assertFalse(encoder.upgradeEncoding("encodedPassword"));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+}
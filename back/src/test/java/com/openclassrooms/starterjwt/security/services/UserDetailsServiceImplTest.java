@@ -37,6 +37,7 @@ public class UserDetailsServiceImplTest {
         user.setFirstName("John");
         user.setLastName("Doe");
         user.setPassword("password123");
+        user.setAdmin(true);
     }
 
     @Test
@@ -56,6 +57,7 @@ public class UserDetailsServiceImplTest {
         assertEquals(user.getFirstName(), userDetailsImpl.getFirstName());
         assertEquals(user.getLastName(), userDetailsImpl.getLastName());
         assertEquals(user.getPassword(), userDetailsImpl.getPassword());
+        assertTrue(userDetailsImpl.getAdmin());
         verify(userRepository, times(1)).findByEmail(email);
     }
 
@@ -75,4 +77,26 @@ public class UserDetailsServiceImplTest {
         assertTrue(actualMessage.contains(expectedMessage));
         verify(userRepository, times(1)).findByEmail(nonExistentEmail);
     }
+
+    @Test
+    void testUpdatePassword() {
+        // Arrange
+        UserDetailsImpl userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username(email)
+                .firstName("John")
+                .lastName("Doe")
+                .admin(true)
+                .password("oldHash")
+                .build();
+
+        // Act
+        UserDetails updated = userDetailsService.updatePassword(userDetails, "newHash");
+
+        // Assert
+        assertEquals("newHash", updated.getPassword());
+        assertEquals(1L, ((UserDetailsImpl) updated).getId());
+        assertTrue(((UserDetailsImpl) updated).getAdmin());
+        verify(userRepository, times(1)).updatePassword(email, "newHash");
+    }
 }
@@ -0,0 +1,78 @@
+package com.openclassrooms.starterjwt.security.throttle;
+
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginThrottleTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginThrottle = new LoginThrottle(2, 60000, 3, 60000, 60000, meterRegistry);
+    }
+
+    @Test
+    void testAcquire_ThrottlesByEmailIgnoringCase() {
+        // Arrange
+        loginThrottle.acquire("test@test.com", "10.0.0.1");
+        loginThrottle.acquire("TEST@test.com ", "10.0.0.2");
+
+        // Act
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> loginThrottle.acquire("test@test.com", "10.0.0.3"));
+
+        // Assert
+        assertEquals(60, exception.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.get("auth.login.throttled").tag("key", "email").counter().count());
+    }
+
+    @Test
+    void testAcquire_ThrottlesByAddress() {
+        // Arrange
+        loginThrottle.acquire("a@test.com", "10.0.0.1");
+        loginThrottle.acquire("b@test.com", "10.0.0.1");
+        loginThrottle.acquire("c@test.com", "10.0.0.1");
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> loginThrottle.acquire("d@test.com", "10.0.0.1"));
+        assertEquals(1, meterRegistry.get("auth.login.throttled").tag("key", "ip").counter().count());
+    }
+
+    @Test
+    void testSucceeded_RestoresEmailBudget() {
+        // Arrange
+        loginThrottle.acquire("test@test.com", "10.0.0.1");
+        loginThrottle.acquire("test@test.com", "10.0.0.2");
+
+        // Act
+        loginThrottle.succeeded("test@test.com");
+
+        // Assert
+        assertDoesNotThrow(() -> loginThrottle.acquire("test@test.com", "10.0.0.3"));
+    }
+
+    @Test
+    void testAcquire_RefusedForEmail_LeavesAddressBudget() {
+        // Arrange - the email spent from elsewhere
+        loginThrottle.acquire("locked@test.com", "10.0.0.9");
+        loginThrottle.acquire("locked@test.com", "10.0.0.9");
+
+        // Act - attempts on the locked email from a shared address
+        for (int i = 0; i < 5; i++) {
+            assertThrows(TooManyRequestsException.class, () -> loginThrottle.acquire("locked@test.com", "10.0.0.1"));
+        }
+
+        // Assert - the address still has its whole budget for the others behind it
+        assertDoesNotThrow(() -> loginThrottle.acquire("a@test.com", "10.0.0.1"));
+        assertDoesNotThrow(() -> loginThrottle.acquire("b@test.com", "10.0.0.1"));
+        assertDoesNotThrow(() -> loginThrottle.acquire("c@test.com", "10.0.0.1"));
+        assertEquals(5, meterRegistry.get("auth.login.throttled").tag("key", "email").counter().count());
+    }
+}
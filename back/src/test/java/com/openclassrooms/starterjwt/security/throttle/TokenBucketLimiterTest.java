@@ -0,0 +1,112 @@
+package com.openclassrooms.starterjwt.security.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketLimiterTest {
+
+    @Test
+    void testTryAcquire_AllowsBurstThenRejects() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1000, 60000);
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("key", 0));
+        assertEquals(0, limiter.tryAcquire("key", 0));
+        assertEquals(0, limiter.tryAcquire("key", 0));
+        assertEquals(1000, limiter.tryAcquire("key", 0));
+        assertEquals(0, limiter.tryAcquire("other", 0));
+    }
+
+    @Test
+    void testTryAcquire_RefillsOverTime() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1000, 60000);
+        limiter.tryAcquire("key", 0);
+
+        // Act & Assert
+        assertEquals(400, limiter.tryAcquire("key", 600));
+        assertEquals(0, limiter.tryAcquire("key", 1000));
+    }
+
+    @Test
+    void testReset() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1000, 60000);
+        limiter.tryAcquire("key", 0);
+
+        // Act
+        limiter.reset("key");
+
+        // Assert
+        assertEquals(0, limiter.tryAcquire("key", 0));
+    }
+
+    @Test
+    void testSweep_DropsFullBuckets() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1000, 5000);
+        limiter.tryAcquire("idle", 0);
+        limiter.tryAcquire("busy", 9000);
+        limiter.tryAcquire("busy", 9000);
+
+        // Act
+        limiter.tryAcquire("new", 9500);
+
+        // Assert
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void testTryAcquire_ConcurrentCallersNeverExceedCapacity() throws Exception {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, 60000, 60000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                int granted = 0;
+                for (int i = 0; i < 100; i++) {
+                    if (limiter.tryAcquire("key", 0) == 0) {
+                        granted++;
+                    }
+                }
+                return granted;
+            }));
+        }
+        int granted = 0;
+        for (Future<Integer> result : results) {
+            granted += result.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(100, granted);
+    }
+
+    @Test
+    void testWaitMsAndRelease() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1000, 60000);
+
+        // Act & Assert - looking takes nothing, a released token can be taken again
+        assertEquals(0, limiter.waitMs("key", 0));
+        assertEquals(0, limiter.waitMs("key", 0));
+        assertEquals(0, limiter.tryAcquire("key", 0));
+        assertEquals(1000, limiter.waitMs("key", 0));
+        limiter.release("key");
+        assertEquals(0, limiter.waitMs("key", 0));
+        assertEquals(0, limiter.tryAcquire("key", 0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecurrenceTest {
+
+    private static SessionSeries series(String startsAt, String zone, SessionSeries.Frequency frequency, int interval) {
+        return SessionSeries.builder()
+                .startsAt(Date.from(Instant.parse(startsAt)))
+                .timeZone(zone)
+                .frequency(frequency)
+                .interval(interval)
+                .build();
+    }
+
+    private static List<Instant> instants(String... values) {
+        return Arrays.stream(values).map(Instant::parse).collect(Collectors.toList());
+    }
+
+    private static final Instant FROM = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static final Instant TO = Instant.parse("2027-01-01T00:00:00Z");
+
+    @Test
+    void testBetween_DailyWithInterval() {
+        // Arrange
+        SessionSeries series = series("2026-03-02T09:00:00Z", "UTC", SessionSeries.Frequency.DAILY, 2).setCount(3);
+
+        // Act
+        List<Instant> occurrences = Recurrence.of(series).between(FROM, TO);
+
+        // Assert
+        assertEquals(instants("2026-03-02T09:00:00Z", "2026-03-04T09:00:00Z", "2026-03-06T09:00:00Z"), occurrences);
+    }
+
+    @Test
+    void testBetween_WeeklyOnDays_StartDayLeftOut() {
+        // Arrange - starts on a Wednesday, which the rule does not list
+        SessionSeries series = series("2026-03-04T18:00:00Z", "UTC", SessionSeries.Frequency.WEEKLY, 1)
+                .setByDay(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY))
+                .setCount(4);
+
+        // Act
+        List<Instant> occurrences = Recurrence.of(series).between(FROM, TO);
+
+        // Assert
+        assertEquals(instants("2026-03-05T18:00:00Z", "2026-03-09T18:00:00Z", "2026-03-12T18:00:00Z",
+                "2026-03-16T18:00:00Z"), occurrences);
+    }
+
+    @Test
+    void testBetween_UntilAndExceptions() {
+        // Arrange
+        SessionSeries series = series("2026-03-02T10:00:00Z", "UTC", SessionSeries.Frequency.WEEKLY, 1)
+                .setUntil(Date.from(Instant.parse("2026-03-23T10:00:00Z")))
+                .setExceptions(new HashSet<>(Collections.singletonList(LocalDate.of(2026, 3, 9))));
+
+        // Act
+        List<Instant> occurrences = Recurrence.of(series).between(FROM, TO);
+
+        // Assert - until included, the exception left out
+        assertEquals(instants("2026-03-02T10:00:00Z", "2026-03-16T10:00:00Z", "2026-03-23T10:00:00Z"), occurrences);
+    }
+
+    @Test
+    void testBetween_KeepsLocalTimeAcrossDaylightSaving() {
+        // Arrange - 09:00 in Paris, which moves to summer time on 2026-03-29
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        SessionSeries series = series("2026-03-28T08:00:00Z", "Europe/Paris", SessionSeries.Frequency.DAILY, 1)
+                .setCount(3);
+
+        // Act
+        List<Instant> occurrences = Recurrence.of(series).between(FROM, TO);
+
+        // Assert
+        assertEquals(instants("2026-03-28T08:00:00Z", "2026-03-29T07:00:00Z", "2026-03-30T07:00:00Z"), occurrences);
+        occurrences.forEach(occurrence -> assertEquals(LocalTime.of(9, 0), occurrence.atZone(paris).toLocalTime()));
+    }
+
+    @Test
+    void testBetween_FarWindow_SameAsWalkingFromStart() {
+        // Arrange
+        SessionSeries series = series("2026-03-04T18:00:00Z", "UTC", SessionSeries.Frequency.WEEKLY, 2)
+                .setByDay(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY));
+        Instant from = Instant.parse("2031-06-10T00:00:00Z");
+        Instant to = Instant.parse("2031-07-10T00:00:00Z");
+
+        // Act
+        List<Instant> window = Recurrence.of(series).between(from, to);
+
+        // Assert
+        List<Instant> walked = Recurrence.of(series).between(FROM, to).stream()
+                .filter(occurrence -> !occurrence.isBefore(from))
+                .collect(Collectors.toList());
+        assertFalse(window.isEmpty());
+        assertEquals(walked, window);
+    }
+
+    @Test
+    void testOccursAt() {
+        // Arrange
+        Recurrence recurrence = Recurrence.of(series("2026-03-02T09:00:00Z", "UTC", SessionSeries.Frequency.DAILY, 2));
+
+        // Act & Assert
+        assertTrue(recurrence.occursAt(Instant.parse("2026-05-01T09:00:00Z")));
+        assertFalse(recurrence.occursAt(Instant.parse("2026-05-02T09:00:00Z")));
+        assertFalse(recurrence.occursAt(Instant.parse("2026-05-01T09:30:00Z")));
+        assertFalse(recurrence.occursAt(Instant.parse("2026-02-28T09:00:00Z")));
+    }
+
+    @Test
+    void testEnd() {
+        // Arrange
+        SessionSeries counted = series("2026-03-02T09:00:00Z", "UTC", SessionSeries.Frequency.WEEKLY, 1).setCount(3);
+        SessionSeries until = series("2026-03-02T09:00:00Z", "UTC", SessionSeries.Frequency.WEEKLY, 1)
+                .setCount(10)
+                .setUntil(Date.from(Instant.parse("2026-03-20T00:00:00Z")));
+        SessionSeries endless = series("2026-03-02T09:00:00Z", "UTC", SessionSeries.Frequency.WEEKLY, 1);
+
+        // Act & Assert - the earlier of the count and until
+        assertEquals(Instant.parse("2026-03-16T09:00:00Z"), Recurrence.of(counted).end());
+        assertEquals(Instant.parse("2026-03-20T00:00:00Z"), Recurrence.of(until).end());
+        assertNull(Recurrence.of(endless).end());
+    }
+}
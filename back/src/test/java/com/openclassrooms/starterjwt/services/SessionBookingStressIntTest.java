@@ -0,0 +1,146 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Books a small session from many threads at once, without the test transaction of the other integration
+ * tests so that every booking commits on its own, and checks that exactly the capacity is admitted and the
+ * waitlist is promoted in order.
+ */
+@Log4j2
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application.properties")
+public class SessionBookingStressIntTest {
+
+    private static final int USERS = 200;
+
+    private static final int CAPACITY = 50;
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Session session;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        session = sessionRepository.save(Session.builder()
+                .name("Stress Session")
+                .date(new Date())
+                .description("Opens to a crowd")
+                .capacity(CAPACITY)
+                .users(new ArrayList<>())
+                .build());
+        userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("stress" + i + "@test.com", "User" + i, "Stress", "hash", false);
+            userIds.add(userRepository.save(user).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from PARTICIPATE where session_id = ?", session.getId());
+        waitlistRepository.deleteAll(waitlistRepository.findBySessionIdOrderByIdAsc(session.getId()));
+        sessionRepository.deleteById(session.getId());
+        userRepository.deleteAllById(userIds);
+    }
+
+    private long runConcurrently(List<Long> users, Consumer<Long> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long userId : users) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                action.accept(userId);
+                return null;
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - began;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private List<Long> participants() {
+        return jdbcTemplate.queryForList("select user_id from PARTICIPATE where session_id = ?", Long.class, session.getId());
+    }
+
+    @Test
+    void testConcurrentBookings_AdmitExactlyCapacityAndPromoteInOrder() throws Exception {
+        // Act - everyone books at the same moment
+        Map<Long, Participation> outcomes = new ConcurrentHashMap<>();
+        long elapsed = runConcurrently(userIds, userId -> outcomes.put(userId, sessionService.participate(session.getId(), userId)));
+        log.info("{} concurrent bookings in {} ms ({} bookings/s)", USERS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                USERS * TimeUnit.SECONDS.toNanos(1) / elapsed);
+
+        // Assert - exactly the capacity got a seat, everyone else waits, nobody twice
+        List<Long> participants = participants();
+        List<Long> waitlist = sessionService.findWaitlist(session.getId());
+        assertEquals(CAPACITY, participants.size());
+        assertEquals(CAPACITY, new HashSet<>(participants).size());
+        assertEquals(USERS - CAPACITY, waitlist.size());
+        assertTrue(Collections.disjoint(participants, waitlist));
+        assertEquals(CAPACITY, sessionRepository.findById(session.getId()).get().getParticipantCount());
+        assertEquals(CAPACITY, outcomes.values().stream().filter(o -> o == Participation.PARTICIPATING).count());
+
+        // Act - half of the participants leave at the same moment
+        List<Long> leaving = participants.subList(0, CAPACITY / 2);
+        runConcurrently(leaving, userId -> sessionService.noLongerParticipate(session.getId(), userId));
+
+        // Assert - the seats went to the oldest waiting users
+        List<Long> after = participants();
+        assertEquals(CAPACITY, after.size());
+        assertTrue(after.containsAll(waitlist.subList(0, CAPACITY / 2)));
+        assertEquals(waitlist.subList(CAPACITY / 2, waitlist.size()), sessionService.findWaitlist(session.getId()));
+        assertEquals(CAPACITY, sessionRepository.findById(session.getId()).get().getParticipantCount());
+    }
+}
@@ -0,0 +1,225 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionImporterTest {
+
+    @Mock
+    private TeacherRepository teacherRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private SessionSearchIndex sessionSearchIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SessionImporter importer(int chunkSize, int maxReportedErrors) {
+        return new SessionImporter(teacherRepository, userRepository, entityManager, sessionSearchIndex,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager, eventPublisher,
+                10, chunkSize, maxReportedErrors);
+    }
+
+    private static SessionDto row(String name, Long teacherId, Long... userIds) {
+        return new SessionDto(null, name, new Date(), teacherId, "Imported", null, Arrays.asList(userIds), null, null, null);
+    }
+
+    /**
+     * Rows as a parser hands them out, each one read or failing when asked for.
+     */
+    @SafeVarargs
+    private static Iterator<SessionDto> rows(Supplier<SessionDto>... rows) {
+        Iterator<Supplier<SessionDto>> iterator = Arrays.asList(rows).iterator();
+        return new Iterator<SessionDto>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public SessionDto next() {
+                return iterator.next().get();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenTeacherAndUser() {
+        Teacher teacher = new Teacher();
+        teacher.setId(1L);
+        User user = new User();
+        user.setId(1L);
+        when(teacherRepository.findAllById(anyIterable())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).contains(1L)
+                        ? Collections.singletonList(teacher) : Collections.emptyList());
+        lenient().when(userRepository.findAllById(anyIterable())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).contains(1L)
+                        ? Collections.singletonList(user) : Collections.emptyList());
+    }
+
+    @Test
+    void testImportAll_SavesValidRowsAndReportsOthers() {
+        // Arrange
+        givenTeacherAndUser();
+        Iterator<SessionDto> rows = Arrays.asList(
+                row("Vinyasa", 1L, 1L),
+                row("", 1L),
+                row("Hatha", 9L),
+                row("Yin", 1L, 1L, 1L),
+                row("Pilates", 1L, 7L)).iterator();
+
+        // Act
+        SessionImportReport report = importer(2, 10).importAll(rows);
+
+        // Assert - a flush per chunk of valid rows, the index rebuilt once
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(Arrays.asList(1, 2, 4),
+                report.getErrors().stream().map(SessionImportReport.RowError::getRow).collect(Collectors.toList()));
+        assertEquals("name: must not be blank", report.getErrors().get(0).getMessage());
+        assertEquals("teacher_id: no teacher 9", report.getErrors().get(1).getMessage());
+        assertEquals("users: no user [7]", report.getErrors().get(2).getMessage());
+
+        ArgumentCaptor<Session> saved = ArgumentCaptor.forClass(Session.class);
+        verify(entityManager, times(2)).persist(saved.capture());
+        assertEquals("Vinyasa", saved.getAllValues().get(0).getName());
+        assertEquals(1, saved.getAllValues().get(1).getParticipantCount());
+        verify(entityManager, times(2)).flush();
+        verify(sessionSearchIndex).rebuild();
+    }
+
+    @Test
+    void testImportAll_PublishesOneEventPerChunk() {
+        // Arrange - ids handed out on persist, as by the sequence
+        givenTeacherAndUser();
+        AtomicLong ids = new AtomicLong();
+        doAnswer(invocation -> {
+            invocation.<Session>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(Session.class));
+        Iterator<SessionDto> rows = Arrays.asList(
+                row("Vinyasa", 1L), row("Hatha", 1L), row("Yin", 1L), row("Pilates", 9L)).iterator();
+
+        // Act
+        importer(2, 10).importAll(rows);
+
+        // Assert - the last chunk announces only the session it saved
+        ArgumentCaptor<SessionsImportedEvent> events = ArgumentCaptor.forClass(SessionsImportedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(Arrays.asList(1L, 2L), events.getAllValues().get(0).getSessionIds());
+        assertEquals(Collections.singletonList(3L), events.getAllValues().get(1).getSessionIds());
+    }
+
+    @Test
+    void testImportAll_SkipsUnreadableRow() {
+        // Arrange
+        givenTeacherAndUser();
+        Iterator<SessionDto> rows = rows(
+                () -> row("Vinyasa", 1L),
+                () -> {
+                    throw new IllegalArgumentException("Unexpected token");
+                },
+                () -> row("Hatha", 1L));
+
+        // Act
+        SessionImportReport report = importer(10, 10).importAll(rows);
+
+        // Assert
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getErrors().get(0).getRow());
+        assertEquals("Row could not be read", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void testImportAll_RejectedChunk_RetriedRowByRow() {
+        // Arrange
+        givenTeacherAndUser();
+        doAnswer(invocation -> {
+            if (invocation.<Session>getArgument(0).getName().equals("Broken")) {
+                throw new PersistenceException("Data too long");
+            }
+            return null;
+        }).when(entityManager).persist(any(Session.class));
+        List<SessionDto> rows = Arrays.asList(row("Vinyasa", 1L), row("Broken", 1L), row("Hatha", 1L));
+
+        // Act
+        SessionImportReport report = importer(10, 10).importAll(rows.iterator());
+
+        // Assert - the chunk rolled back, then each row in its own transaction
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(1, report.getErrors().get(0).getRow());
+        assertEquals("Session could not be saved", report.getErrors().get(0).getMessage());
+        verify(transactionManager, times(1 + 3)).getTransaction(any());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void testImportAll_ChunksRunUnderTheWriteTimeout() {
+        // Arrange
+        givenTeacherAndUser();
+
+        // Act
+        importer(10, 10).importAll(Collections.singletonList(row("Vinyasa", 1L)).iterator());
+
+        // Assert - the change feed holds back changes longer than a chunk may take to commit
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(10, definition.getValue().getTimeout());
+    }
+
+    @Test
+    void testImportAll_CapsReportedErrors() {
+        // Arrange
+        Iterator<SessionDto> rows = Arrays.asList(row("", 1L), row(null, 1L), row("", null)).iterator();
+
+        // Act
+        SessionImportReport report = importer(10, 2).importAll(rows);
+
+        // Assert - nothing saved, so the index is left alone
+        assertEquals(0, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(2, report.getErrors().size());
+        verifyNoInteractions(entityManager, sessionSearchIndex, eventPublisher);
+    }
+}
@@ -0,0 +1,157 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionSearchIndexTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    private SessionSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SessionSearchIndex(sessionRepository);
+        index.index(1L, "Morning Yoga", "Gentle vinyasa flow to start the day");
+        index.index(2L, "Power Yoga", "A dynamic class with Hélène");
+        index.index(3L, "Meditation", "Breathing and yoga nidra");
+        index.index(4L, "Pilates", "Core strength with a yogi");
+    }
+
+    @Test
+    void testTokenize_IgnoresCaseAndAccents() {
+        assertEquals(Arrays.asList("helene", "s", "cafe", "2024"), SessionSearchIndex.tokenize("Hélène's CAFÉ-2024!"));
+        assertTrue(SessionSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void testSearch_RanksNameMatchesFirst() {
+        // Act
+        List<Long> result = index.search("yoga", 10);
+
+        // Assert - name matches outrank a description match; equal scores keep id order
+        assertEquals(Arrays.asList(1L, 2L, 3L), result);
+    }
+
+    @Test
+    void testSearch_PrefixAndAccents() {
+        assertEquals(Arrays.asList(1L, 2L, 4L, 3L), index.search("yog", 10));
+        assertEquals(Collections.singletonList(2L), index.search("HELENE", 10));
+        assertEquals(Collections.singletonList(2L), index.search("hél", 10));
+    }
+
+    @Test
+    void testSearch_ExactTermOutranksPrefix() {
+        // Arrange
+        index.index(5L, "Yogi", "");
+
+        // Act & Assert - "yogi" only matches whole terms, "yog" prefixes both yoga and yogi
+        assertEquals(Arrays.asList(5L, 4L), index.search("yogi", 10));
+        assertEquals(5, index.search("yog", 10).size());
+    }
+
+    @Test
+    void testSearch_EveryWordMustMatch() {
+        assertEquals(Collections.singletonList(3L), index.search("yoga breathing", 10));
+        assertEquals(Collections.singletonList(1L), index.search("morn yo", 10));
+        assertTrue(index.search("yoga unknown", 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_PrefixMatchesEveryTerm() {
+        // Arrange - more terms share the prefix than a word used to expand to, the relevant one sorting last
+        for (long id = 10; id < 50; id++) {
+            index.index(id, "Stretching" + (char) ('a' + id % 26) + id, "");
+        }
+        index.index(50L, "Stretchingzz", "Evening class");
+
+        // Act & Assert
+        assertEquals(Collections.singletonList(50L), index.search("stretch evening", 10));
+        assertEquals(Collections.singletonList(50L), index.search("evening stretch", 10));
+        assertEquals(41, index.search("stretch", 100).size());
+    }
+
+    @Test
+    void testSearch_ShortWordsAreNotPrefixes() {
+        // Arrange
+        index.index(5L, "A class", "");
+
+        // Act & Assert
+        assertEquals(Arrays.asList(5L, 2L, 4L), index.search("a", 10));
+        assertTrue(index.search("y", 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_Limit() {
+        assertEquals(Arrays.asList(1L, 2L), index.search("yoga", 2));
+        assertTrue(index.search("yoga", 0).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+        assertTrue(index.search(null, 10).isEmpty());
+    }
+
+    @Test
+    void testIndex_UpdateReplacesTerms() {
+        // Act
+        index.index(1L, "Evening Stretch", "Wind down");
+
+        // Assert
+        assertEquals(Arrays.asList(2L, 3L), index.search("yoga", 10));
+        assertEquals(Collections.singletonList(1L), index.search("evening", 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testRemove() {
+        // Act
+        index.remove(2L);
+        index.remove(99L);
+
+        // Assert
+        assertTrue(index.search("helene", 10).isEmpty());
+        assertEquals(Arrays.asList(1L, 3L), index.search("yoga", 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testOnSessionChanged() {
+        // Act
+        index.onSessionChanged(new SessionChangedEvent(SessionChangedEvent.Type.CREATED, 7L, "Aerial yoga", null));
+        index.onSessionChanged(new SessionChangedEvent(SessionChangedEvent.Type.DELETED, 1L, null, null));
+        index.onSessionChanged(new SessionChangedEvent(SessionChangedEvent.Type.PARTICIPANTS, 2L, null, null));
+
+        // Assert - a change of participants leaves the indexed text alone
+        assertEquals(Collections.singletonList(7L), index.search("aerial", 10));
+        assertFalse(index.search("yoga", 10).contains(1L));
+        assertTrue(index.search("yoga", 10).contains(2L));
+    }
+
+    @Test
+    void testRebuild_ReplacesContentFromRepository() {
+        // Arrange
+        when(sessionRepository.streamSearchFields()).thenReturn(Stream.of(
+                new Object[]{10L, "Yin Yoga", "Slow"},
+                new Object[]{11L, "Yoga Nidra", null}));
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(10L, 11L), index.search("yoga", 10));
+        assertTrue(index.search("pilates", 10).isEmpty());
+    }
+}
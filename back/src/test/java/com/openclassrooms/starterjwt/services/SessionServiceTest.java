@@ -1,22 +1,36 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.GoneException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionTombstone;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,6 +45,21 @@ public class SessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private SessionSearchIndex sessionSearchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SessionTombstones sessionTombstones;
+
     @InjectMocks
     private SessionService sessionService;
 
@@ -64,6 +93,22 @@ public class SessionServiceTest {
         assertEquals(session.getId(), result.getId());
         assertEquals(session.getName(), result.getName());
         verify(sessionRepository, times(1)).save(session);
+        ArgumentCaptor<SessionChangedEvent> event = ArgumentCaptor.forClass(SessionChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(SessionChangedEvent.Type.CREATED, event.getValue().getType());
+        assertEquals("Test Session", event.getValue().getName());
+    }
+
+    @Test
+    void testCreate_MoreParticipantsThanCapacity() {
+        // Arrange
+        session.setCapacity(1);
+        session.setUsers(Arrays.asList(new User(), new User()));
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.create(session));
+        verify(sessionRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -73,13 +118,17 @@ public class SessionServiceTest {
 
         // Assert
         verify(sessionRepository, times(1)).deleteById(1L);
+        verify(waitlistRepository, times(1)).deleteBySession(1L);
+        verify(sessionTombstones, times(1)).record(1L);
+        verify(eventPublisher).publishEvent(argThat((SessionChangedEvent event) ->
+                event.getType() == SessionChangedEvent.Type.DELETED && event.getSessionId() == 1L));
     }
 
     @Test
     void testFindAll() {
         // Arrange
         List<Session> sessions = Arrays.asList(session);
-        when(sessionRepository.findAll()).thenReturn(sessions);
+        when(sessionRepository.findAllWithTeacher()).thenReturn(sessions);
 
         // Act
         List<Session> result = sessionService.findAll();
@@ -88,7 +137,248 @@ public class SessionServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(session.getId(), result.get(0).getId());
-        verify(sessionRepository, times(1)).findAll();
+        verify(sessionRepository, times(1)).findAllWithTeacher();
+    }
+
+    @Test
+    void testFindParticipantIds() {
+        // Arrange
+        Session other = session(2L, 0L);
+        when(sessionRepository.findParticipants(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                new Object[]{1, 10}, new Object[]{1, 11}, new Object[]{2L, 10L}));
+
+        // Act
+        Map<Long, List<Long>> participants = sessionService.findParticipantIds(Arrays.asList(session, other));
+
+        // Assert
+        assertEquals(Arrays.asList(10L, 11L), participants.get(1L));
+        assertEquals(Arrays.asList(10L), participants.get(2L));
+        verify(sessionRepository, never()).findAllParticipants();
+    }
+
+    @Test
+    void testFindParticipantIds_NoSessions() {
+        // Act
+        Map<Long, List<Long>> participants = sessionService.findParticipantIds(new ArrayList<>());
+
+        // Assert
+        assertTrue(participants.isEmpty());
+        verifyNoInteractions(sessionRepository);
+    }
+
+    private Session session(long id, long date) {
+        Session page = new Session();
+        page.setId(id);
+        page.setDate(new Date(date));
+        return page;
+    }
+
+    @Test
+    void testFindPage_FirstPageWithNext() {
+        // Arrange
+        List<Session> rows = Arrays.asList(session(1L, 1000L), session(2L, 2000L), session(3L, 3000L));
+        when(sessionRepository.findFirstPage(PageRequest.of(0, 3))).thenReturn(rows);
+
+        // Act
+        SessionPage page = sessionService.findPage(null, 2);
+
+        // Assert
+        assertEquals(2, page.getSessions().size());
+        assertEquals(2L, page.getNext().getId());
+        assertEquals(2000L, page.getNext().getDate().getTime());
+    }
+
+    @Test
+    void testFindPage_AfterCursorLastPage() {
+        // Arrange
+        Date date = new Date(2000L);
+        List<Session> rows = Arrays.asList(session(3L, 3000L));
+        when(sessionRepository.findPageAfter(date, 2L, PageRequest.of(0, 3))).thenReturn(rows);
+
+        // Act
+        SessionPage page = sessionService.findPage(new SessionCursor(date, 2L), 2);
+
+        // Assert
+        assertEquals(1, page.getSessions().size());
+        assertNull(page.getNext());
+        verify(sessionRepository, never()).findFirstPage(any());
+    }
+
+    @Test
+    void testFindParticipationPage_KeepsJoinTableOrderWithNext() {
+        // Arrange - one extra id tells that another page follows
+        when(sessionRepository.findParticipationIds(5L, PageRequest.of(0, 3))).thenReturn(Arrays.asList(3L, 1L, 2L));
+        when(sessionRepository.findAllWithTeacherById(Arrays.asList(3L, 1L)))
+                .thenReturn(Arrays.asList(session(1L, 2000L), session(3L, 1000L)));
+
+        // Act
+        SessionPage page = sessionService.findParticipationPage(5L, null, 2);
+
+        // Assert
+        assertEquals(Arrays.asList(3L, 1L),
+                page.getSessions().stream().map(Session::getId).collect(Collectors.toList()));
+        assertEquals(1L, page.getNext().getId());
+        assertEquals(2000L, page.getNext().getDate().getTime());
+    }
+
+    @Test
+    void testFindParticipationPage_AfterCursor() {
+        // Arrange
+        Date date = new Date(2000L);
+        when(sessionRepository.findParticipationIdsAfter(5L, date, 1L, PageRequest.of(0, 3)))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        SessionPage page = sessionService.findParticipationPage(5L, new SessionCursor(date, 1L), 2);
+
+        // Assert - no booking left, no second query
+        assertTrue(page.getSessions().isEmpty());
+        assertNull(page.getNext());
+        verify(sessionRepository, never()).findAllWithTeacherById(any());
+    }
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private Session changed(long id, int second) {
+        Session changed = new Session();
+        changed.setId(id);
+        changed.setUpdatedAt(T0.plusSeconds(second));
+        return changed;
+    }
+
+    private SessionTombstone tombstone(long id, int second) {
+        return new SessionTombstone(id, T0.plusSeconds(second));
+    }
+
+    @Test
+    void testFindChanges_MergesWritesAndDeletionsInTimeOrder() {
+        // Arrange
+        ChangeCursor since = new ChangeCursor(T0, 0L);
+        LocalDateTime until = T0.plusSeconds(60);
+        when(sessionRepository.findChangedAfter(T0, 0L, until, PageRequest.of(0, 4)))
+                .thenReturn(Arrays.asList(changed(1L, 1), changed(3L, 3), changed(5L, 5)));
+        when(sessionTombstones.findAfter(since, until, 4)).thenReturn(Arrays.asList(tombstone(2L, 2), tombstone(4L, 4)));
+
+        // Act
+        SessionChanges changes = sessionService.findChanges(since, until, 3);
+
+        // Assert - the page ends at the third change, which the next call starts after
+        assertEquals(Arrays.asList(1L, 3L),
+                changes.getSessions().stream().map(Session::getId).collect(Collectors.toList()));
+        assertEquals(Collections.singletonList(2L), changes.getDeletedIds());
+        assertTrue(changes.hasMore());
+        assertEquals(T0.plusSeconds(3), changes.getNext().getTime());
+        assertEquals(3L, changes.getNext().getId());
+    }
+
+    @Test
+    void testFindChanges_EverythingReturnedContinuesFromUntil() {
+        // Arrange
+        ChangeCursor since = new ChangeCursor(T0, 0L);
+        LocalDateTime until = T0.plusSeconds(60);
+        when(sessionRepository.findChangedAfter(T0, 0L, until, PageRequest.of(0, 11)))
+                .thenReturn(Collections.singletonList(changed(1L, 1)));
+        when(sessionTombstones.findAfter(since, until, 11)).thenReturn(Collections.singletonList(tombstone(2L, 2)));
+
+        // Act
+        SessionChanges changes = sessionService.findChanges(since, until, 10);
+
+        // Assert
+        assertEquals(1, changes.getSessions().size());
+        assertEquals(Collections.singletonList(2L), changes.getDeletedIds());
+        assertFalse(changes.hasMore());
+        assertEquals(until, changes.getNext().getTime());
+    }
+
+    @Test
+    void testFindChanges_WithoutCursorReadsSessionsOnly() {
+        // Arrange
+        LocalDateTime until = T0.plusSeconds(60);
+        when(sessionRepository.findChangedUntil(until, PageRequest.of(0, 11)))
+                .thenReturn(Collections.singletonList(changed(1L, 1)));
+
+        // Act
+        SessionChanges changes = sessionService.findChanges(null, until, 10);
+
+        // Assert
+        assertEquals(1, changes.getSessions().size());
+        assertTrue(changes.getDeletedIds().isEmpty());
+        verify(sessionTombstones, never()).findAfter(any(), any(), anyInt());
+        verify(sessionTombstones, never()).isExpired(any());
+    }
+
+    @Test
+    void testFindChanges_ExpiredCursor() {
+        // Arrange
+        ChangeCursor since = new ChangeCursor(T0, 0L);
+        when(sessionTombstones.isExpired(since)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(GoneException.class, () -> sessionService.findChanges(since, T0.plusSeconds(60), 10));
+        verify(sessionRepository, never()).findChangedAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    void testChangeCursor_RoundTripAndInvalid() {
+        // Arrange - sub-millisecond precision must survive
+        ChangeCursor cursor = new ChangeCursor(T0.plusNanos(123456000L), 42L);
+
+        // Act
+        ChangeCursor decoded = ChangeCursor.decode(cursor.encode());
+
+        // Assert
+        assertEquals(cursor.getTime(), decoded.getTime());
+        assertEquals(42L, decoded.getId());
+        assertThrows(BadRequestException.class, () -> ChangeCursor.decode("not a cursor"));
+        assertThrows(BadRequestException.class, () -> ChangeCursor.decode("YWJjfjE"));
+    }
+
+    @Test
+    void testFindBetween() {
+        // Arrange
+        Date from = new Date(1000L);
+        Date to = new Date(5000L);
+        List<Session> all = Arrays.asList(session(1L, 1000L), session(2L, 2000L));
+        List<Session> ofTeacher = Collections.singletonList(session(2L, 2000L));
+        when(sessionRepository.findBetween(from, to)).thenReturn(all);
+        when(sessionRepository.findBetween(7L, from, to)).thenReturn(ofTeacher);
+
+        // Act & Assert
+        assertEquals(all, sessionService.findBetween(from, to, null));
+        assertEquals(ofTeacher, sessionService.findBetween(from, to, 7L));
+    }
+
+    @Test
+    void testFindUpcoming() {
+        // Arrange
+        List<Session> upcoming = Collections.singletonList(session(3L, 3000L));
+        when(sessionRepository.findUpcoming(eq(7L), any(Date.class), eq(PageRequest.of(0, 5)))).thenReturn(upcoming);
+        long before = System.currentTimeMillis();
+
+        // Act
+        List<Session> result = sessionService.findUpcoming(7L, 5);
+
+        // Assert - upcoming means from now on
+        assertEquals(upcoming, result);
+        ArgumentCaptor<Date> from = ArgumentCaptor.forClass(Date.class);
+        verify(sessionRepository).findUpcoming(eq(7L), from.capture(), eq(PageRequest.of(0, 5)));
+        assertTrue(from.getValue().getTime() >= before);
+        verify(sessionRepository, never()).findUpcoming(any(Date.class), any());
+    }
+
+    @Test
+    void testSessionCursor_RoundTripAndInvalid() {
+        // Arrange
+        SessionCursor cursor = new SessionCursor(new Date(123456789L), 42L);
+
+        // Act
+        SessionCursor decoded = SessionCursor.decode(cursor.encode());
+
+        // Assert
+        assertEquals(123456789L, decoded.getDate().getTime());
+        assertEquals(42L, decoded.getId());
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("not a cursor"));
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("YWJj"));
     }
 
     @Test
@@ -125,6 +415,7 @@ public class SessionServiceTest {
         updatedSession.setName("Updated Session");
         updatedSession.setDescription("Updated Description");
         
+        when(sessionRepository.lock(1L)).thenReturn(1);
         when(sessionRepository.save(any(Session.class))).thenReturn(updatedSession);
 
         // Act
@@ -138,96 +429,258 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).save(updatedSession);
     }
 
+    @Test
+    void testUpdate_MoreParticipantsThanCapacity() {
+        // Arrange
+        Session updatedSession = new Session();
+        updatedSession.setCapacity(1);
+        updatedSession.setUsers(Arrays.asList(new User(), new User()));
+
+        // Act & Assert - refused before the row is even locked
+        assertThrows(BadRequestException.class, () -> sessionService.update(1L, updatedSession));
+        verify(sessionRepository, never()).lock(any());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void testUpdate_NotFound() {
+        // Arrange
+        when(sessionRepository.lock(99L)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> sessionService.update(99L, new Session()));
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void testStreamAll_ChunksWithParticipants() {
+        // Arrange
+        List<Session> sessions = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            Session streamed = new Session();
+            streamed.setId(id);
+            sessions.add(streamed);
+        }
+        when(sessionRepository.streamAll()).thenReturn(sessions.stream());
+        when(sessionRepository.findParticipants(Arrays.asList(1L, 2L)))
+                .thenReturn(Collections.singletonList(new Object[]{1L, 7L}));
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Map<Long, List<Long>>> participants = new ArrayList<>();
+
+        // Act
+        sessionService.streamAll(2, (chunk, participantIds) -> {
+            chunks.add(chunk.stream().map(Session::getId).collect(Collectors.toList()));
+            participants.add(participantIds);
+        });
+
+        // Assert - one participant query and one eviction per chunk
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList(3L, 4L), Collections.singletonList(5L)), chunks);
+        assertEquals(Collections.singletonList(7L), participants.get(0).get(1L));
+        verify(sessionRepository, times(3)).findParticipants(any());
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void testSearch_KeepsIndexOrderAndSkipsDeletedSessions() {
+        // Arrange
+        Session other = new Session();
+        other.setId(2L);
+        when(sessionSearchIndex.search("yoga", 10)).thenReturn(Arrays.asList(2L, 3L, 1L));
+        when(sessionRepository.findAllWithTeacherById(Arrays.asList(2L, 3L, 1L))).thenReturn(Arrays.asList(session, other));
+
+        // Act
+        List<Session> result = sessionService.search("yoga", 10);
+
+        // Assert
+        assertEquals(Arrays.asList(other, session), result);
+    }
+
+    @Test
+    void testSearch_NoMatch() {
+        // Arrange
+        when(sessionSearchIndex.search("pilates", 10)).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        assertTrue(sessionService.search("pilates", 10).isEmpty());
+        verify(sessionRepository, never()).findAllWithTeacherById(any());
+    }
+
     @Test
     void testParticipate_Success() {
         // Arrange
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(1);
 
         // Act
-        sessionService.participate(1L, 1L);
+        Participation result = sessionService.participate(1L, 1L);
 
         // Assert
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(sessionRepository, times(1)).save(session);
-        assertTrue(session.getUsers().contains(user));
+        assertEquals(Participation.PARTICIPATING, result);
+        verify(sessionRepository, never()).lock(any());
+        verify(sessionRepository, never()).findById(any());
+        verifyNoInteractions(userRepository, waitlistRepository);
+        verify(eventPublisher).publishEvent(argThat((SessionChangedEvent event) ->
+                event.getType() == SessionChangedEvent.Type.PARTICIPANTS && event.getSessionId() == 1L));
     }
 
     @Test
     void testParticipate_SessionNotFound() {
         // Arrange
-        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(sessionRepository.reserveSeat(99L)).thenReturn(0);
+        when(sessionRepository.lock(99L)).thenReturn(0);
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> sessionService.participate(99L, 1L));
-        verify(sessionRepository, times(1)).findById(99L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository, never()).addParticipant(any(), any());
     }
 
     @Test
     void testParticipate_UserNotFound() {
         // Arrange
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 99L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(99L)).thenReturn(false);
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> sessionService.participate(1L, 99L));
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(99L);
-        verify(sessionRepository, never()).save(any());
+        verify(userRepository, times(1)).existsById(99L);
     }
 
     @Test
     void testParticipate_AlreadyParticipating() {
         // Arrange
-        session.getUsers().add(user);
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
+    }
+
+    @Test
+    void testParticipate_ConcurrentDuplicate() {
+        // Arrange
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenThrow(new DataIntegrityViolationException("uk_participate"));
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
+    }
+
+    @Test
+    void testParticipate_FullSessionWaitlists() {
+        // Arrange
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(sessionRepository.lock(1L)).thenReturn(1);
+        when(waitlistRepository.enqueue(1L, 1L)).thenReturn(1);
+
+        // Act
+        Participation result = sessionService.participate(1L, 1L);
+
+        // Assert
+        assertEquals(Participation.WAITLISTED, result);
+        verify(sessionRepository, times(2)).reserveSeat(1L);
+        verify(sessionRepository, never()).addParticipant(any(), any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testParticipate_SeatFreedWhileLocking() {
+        // Arrange
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0, 1);
+        when(sessionRepository.lock(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(1);
+
+        // Act
+        Participation result = sessionService.participate(1L, 1L);
+
+        // Assert
+        assertEquals(Participation.PARTICIPATING, result);
+        verifyNoInteractions(waitlistRepository);
+    }
+
+    @Test
+    void testParticipate_AlreadyWaiting() {
+        // Arrange
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(sessionRepository.lock(1L)).thenReturn(1);
+        when(waitlistRepository.enqueue(1L, 1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(1L)).thenReturn(true);
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(sessionRepository, never()).save(any());
     }
 
     @Test
     void testNoLongerParticipate_Success() {
         // Arrange
-        session.getUsers().add(user);
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.empty());
+
+        // Act
+        sessionService.noLongerParticipate(1L, 1L);
+
+        // Assert - the seat is released and no one was waiting for it
+        verify(sessionRepository, times(1)).releaseSeat(1L);
+        verify(sessionRepository, never()).reserveSeat(any());
+        verify(sessionRepository, never()).existsById(any());
+        verify(sessionRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(argThat((SessionChangedEvent event) ->
+                event.getType() == SessionChangedEvent.Type.PARTICIPANTS && event.getSessionId() == 1L));
+    }
+
+    @Test
+    void testNoLongerParticipate_PromotesOldestWaitingUser() {
+        // Arrange
+        WaitlistEntry head = WaitlistEntry.builder().id(7L).sessionId(1L).userId(2L).build();
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(head), Optional.empty());
+        when(waitlistRepository.claim(7L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(1);
 
         // Act
         sessionService.noLongerParticipate(1L, 1L);
 
         // Assert
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(sessionRepository, times(1)).save(session);
-        assertFalse(session.getUsers().contains(user));
+        verify(waitlistRepository, times(1)).claim(7L);
+        verify(sessionRepository, times(1)).addParticipant(1L, 2L);
+        verify(sessionRepository, times(1)).releaseSeat(1L);
+    }
+
+    @Test
+    void testNoLongerParticipate_LeavesWaitlist() {
+        // Arrange
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(0);
+        when(waitlistRepository.dequeue(1L, 1L)).thenReturn(1);
+
+        // Act
+        sessionService.noLongerParticipate(1L, 1L);
+
+        // Assert
+        verify(sessionRepository, never()).releaseSeat(any());
     }
 
     @Test
     void testNoLongerParticipate_SessionNotFound() {
         // Arrange
-        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
+        when(sessionRepository.removeParticipant(99L, 1L)).thenReturn(0);
+        when(sessionRepository.existsById(99L)).thenReturn(false);
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(99L, 1L));
-        verify(sessionRepository, times(1)).findById(99L);
-        verify(sessionRepository, never()).save(any());
     }
 
     @Test
     void testNoLongerParticipate_NotParticipating() {
         // Arrange
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> sessionService.noLongerParticipate(1L, 1L));
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(sessionRepository, never()).save(any());
     }
 }
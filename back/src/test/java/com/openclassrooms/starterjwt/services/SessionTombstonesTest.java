@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SessionTombstoneRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionTombstonesTest {
+
+    @Mock
+    private SessionTombstoneRepository sessionTombstoneRepository;
+
+    @Test
+    void testRecord_CompactsAtMostOncePerInterval() {
+        // Arrange
+        SessionTombstones tombstones = new SessionTombstones(sessionTombstoneRepository, 30, 3600000);
+        LocalDateTime before = LocalDateTime.now();
+
+        // Act
+        tombstones.record(1L);
+        tombstones.record(2L);
+
+        // Assert - the first deletion compacts what is older than the retention, the second one is too soon
+        verify(sessionTombstoneRepository).insert(eq(1L), any(LocalDateTime.class));
+        verify(sessionTombstoneRepository).insert(eq(2L), any(LocalDateTime.class));
+        ArgumentCaptor<LocalDateTime> compactedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(sessionTombstoneRepository, times(1)).deleteOlderThan(compactedBefore.capture());
+        assertFalse(compactedBefore.getValue().isBefore(before.minusDays(30)));
+        assertTrue(compactedBefore.getValue().isBefore(before.minusDays(29)));
+    }
+
+    @Test
+    void testIsExpired() {
+        // Arrange
+        SessionTombstones tombstones = new SessionTombstones(sessionTombstoneRepository, 30, 3600000);
+
+        // Act & Assert
+        assertTrue(tombstones.isExpired(new ChangeCursor(LocalDateTime.now().minusDays(31), 1L)));
+        assertFalse(tombstones.isExpired(new ChangeCursor(LocalDateTime.now().minusDays(29), 1L)));
+    }
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,9 +10,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +26,9 @@ public class TeacherServiceTest {
     @Mock
     private TeacherRepository teacherRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private TeacherService teacherService;
 
@@ -97,4 +104,36 @@ public class TeacherServiceTest {
         assertNull(result);
         verify(teacherRepository, times(1)).findById(99L);
     }
+
+    @Test
+    void testFindReferenced() {
+        // Arrange
+        when(teacherRepository.findById(1L)).thenReturn(Optional.of(teacher));
+        when(teacherRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertSame(teacher, teacherService.findReferenced(1L));
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> teacherService.findReferenced(99L));
+        assertEquals("Error: No teacher with id 99!", exception.getMessage());
+    }
+
+    @Test
+    void testStreamAll_ClearsPersistenceContextByChunk() {
+        // Arrange
+        Teacher other = new Teacher();
+        other.setId(2L);
+        Teacher third = new Teacher();
+        third.setId(3L);
+        when(teacherRepository.streamAll()).thenReturn(Stream.of(teacher, other, third));
+        List<Teacher> consumed = new ArrayList<>();
+
+        // Act
+        teacherService.streamAll(2, consumed::add);
+
+        // Assert
+        assertEquals(Arrays.asList(teacher, other, third), consumed);
+        verify(entityManager, times(1)).clear();
+        verify(teacherRepository, never()).findAll();
+    }
 }
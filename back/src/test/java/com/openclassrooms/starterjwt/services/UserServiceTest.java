@@ -1,7 +1,9 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,9 +11,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,6 +26,9 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private TokenRevocationList tokenRevocationList;
+
     @InjectMocks
     private UserService userService;
 
@@ -40,6 +49,7 @@ public class UserServiceTest {
 
         // Assert
         verify(userRepository, times(1)).deleteById(1L);
+        verify(tokenRevocationList, times(1)).revokeUser(1L);
     }
 
     @Test
@@ -69,4 +79,43 @@ public class UserServiceTest {
         assertNull(result);
         verify(userRepository, times(1)).findById(99L);
     }
+
+    @Test
+    void testFindAllById_SingleQueryInRequestedOrder() {
+        // Arrange
+        User other = new User();
+        other.setId(2L);
+        other.setEmail("other@test.com");
+        when(userRepository.findAllById(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(user, other));
+
+        // Act
+        List<User> result = userService.findAllById(Arrays.asList(2L, 1L, 2L));
+
+        // Assert
+        assertEquals(Arrays.asList(other, user), result);
+        verify(userRepository, times(1)).findAllById(any());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void testFindAllById_UnknownId() {
+        // Arrange
+        when(userRepository.findAllById(Arrays.asList(1L, 99L))).thenReturn(Collections.singletonList(user));
+
+        // Act
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> userService.findAllById(Arrays.asList(1L, 99L)));
+
+        // Assert
+        assertEquals("Error: No user with id [99]!", exception.getMessage());
+    }
+
+    @Test
+    void testFindAllById_NullOrEmpty() {
+        // Act & Assert
+        assertTrue(userService.findAllById(null).isEmpty());
+        assertTrue(userService.findAllById(Collections.emptyList()).isEmpty());
+        assertThrows(BadRequestException.class, () -> userService.findAllById(Arrays.asList(1L, null)));
+        verifyNoInteractions(userRepository);
+    }
 }
@@ -3,7 +3,7 @@ CREATE TABLE `TEACHERS` (
   `last_name` VARCHAR(40),
   `first_name` VARCHAR(40),
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
 );
 
 CREATE TABLE `SESSIONS` (
@@ -12,8 +12,36 @@ CREATE TABLE `SESSIONS` (
   `description` VARCHAR(2000),
   `date` TIMESTAMP,
   `teacher_id` int,
+  `capacity` INT,
+  `participant_count` INT NOT NULL DEFAULT 0,
+  `series_id` INT,
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  UNIQUE KEY `uk_sessions_series_date` (`series_id`, `date`)
+);
+
+CREATE TABLE `SESSION_SERIES` (
+  `id` INT PRIMARY KEY,
+  `name` VARCHAR(50),
+  `description` VARCHAR(2000),
+  `capacity` INT,
+  `teacher_id` INT,
+  `starts_at` DATETIME NOT NULL,
+  `time_zone` VARCHAR(64) NOT NULL,
+  `frequency` VARCHAR(10) NOT NULL,
+  `repeat_interval` INT NOT NULL DEFAULT 1,
+  `by_day` VARCHAR(70),
+  `repeat_until` DATETIME,
+  `repeat_count` INT,
+  `ends_at` DATETIME,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
+);
+
+CREATE TABLE `SESSION_SERIES_EXCEPTIONS` (
+  `series_id` INT NOT NULL,
+  `exception_date` DATE NOT NULL,
+  PRIMARY KEY (`series_id`, `exception_date`)
 );
 
 CREATE TABLE `USERS` (
@@ -24,17 +52,52 @@ CREATE TABLE `USERS` (
   `email` VARCHAR(255),
   `password` VARCHAR(255),
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
 );
 
 CREATE TABLE `PARTICIPATE` (
-  `user_id` INT, 
-  `session_id` INT
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  PRIMARY KEY (`session_id`, `user_id`)
 );
 
+CREATE TABLE `WAITLIST` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY `uk_waitlist_session_user` (`session_id`, `user_id`)
+);
+
+CREATE TABLE `SESSION_TOMBSTONES` (
+  `session_id` INT PRIMARY KEY,
+  `deleted_at` DATETIME(3) NOT NULL
+);
+
+-- Hibernate hands out ids in blocks of 50 from these tables, the stored value being the highest id of the
+-- next block. They are seeded at the end, once the rows below exist; an existing database is migrated with
+-- sequences.sql.
+CREATE TABLE `TEACHERS_SEQ` (`next_val` BIGINT);
+CREATE TABLE `SESSIONS_SEQ` (`next_val` BIGINT);
+CREATE TABLE `USERS_SEQ` (`next_val` BIGINT);
+CREATE TABLE `SESSION_SERIES_SEQ` (`next_val` BIGINT);
+
 ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
+ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`series_id`) REFERENCES `SESSION_SERIES` (`id`);
+ALTER TABLE `SESSION_SERIES` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
+ALTER TABLE `SESSION_SERIES_EXCEPTIONS` ADD FOREIGN KEY (`series_id`) REFERENCES `SESSION_SERIES` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+
+CREATE INDEX `idx_sessions_date_id` ON `SESSIONS` (`date`, `id`);
+CREATE INDEX `idx_sessions_teacher_date` ON `SESSIONS` (`teacher_id`, `date`);
+CREATE INDEX `idx_sessions_updated_at_id` ON `SESSIONS` (`updated_at`, `id`);
+CREATE INDEX `idx_session_series_ends_at` ON `SESSION_SERIES` (`ends_at`);
+CREATE INDEX `idx_participate_user_session` ON `PARTICIPATE` (`user_id`, `session_id`);
+CREATE INDEX `idx_waitlist_session_id` ON `WAITLIST` (`session_id`, `id`);
+CREATE INDEX `idx_session_tombstones_deleted_at` ON `SESSION_TOMBSTONES` (`deleted_at`, `session_id`);
 
 INSERT INTO TEACHERS (first_name, last_name)
 VALUES ('Margot', 'DELAHAYE'),
@@ -42,5 +105,9 @@ VALUES ('Margot', 'DELAHAYE'),
 
 
 INSERT INTO USERS (first_name, last_name, admin, email, password)
-VALUES ('Admin', 'Admin', true, 'yoga@studio.com', '$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq'); 
+VALUES ('Admin', 'Admin', true, 'yoga@studio.com', '$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq');
 
+INSERT INTO `TEACHERS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `TEACHERS`;
+INSERT INTO `SESSIONS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `SESSIONS`;
+INSERT INTO `USERS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `USERS`;
+INSERT INTO `SESSION_SERIES_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `SESSION_SERIES`;
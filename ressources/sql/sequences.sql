@@ -0,0 +1,17 @@
+-- Moves an existing database to the id blocks Hibernate allocates from the *_SEQ tables. Run it with the
+-- application stopped: each table is seeded past its highest id, so that no new row reuses an existing one.
+-- Safe to run again.
+CREATE TABLE IF NOT EXISTS `TEACHERS_SEQ` (`next_val` BIGINT);
+CREATE TABLE IF NOT EXISTS `SESSIONS_SEQ` (`next_val` BIGINT);
+CREATE TABLE IF NOT EXISTS `USERS_SEQ` (`next_val` BIGINT);
+CREATE TABLE IF NOT EXISTS `SESSION_SERIES_SEQ` (`next_val` BIGINT);
+
+DELETE FROM `TEACHERS_SEQ`;
+DELETE FROM `SESSIONS_SEQ`;
+DELETE FROM `USERS_SEQ`;
+DELETE FROM `SESSION_SERIES_SEQ`;
+
+INSERT INTO `TEACHERS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `TEACHERS`;
+INSERT INTO `SESSIONS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `SESSIONS`;
+INSERT INTO `USERS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `USERS`;
+INSERT INTO `SESSION_SERIES_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `SESSION_SERIES`;